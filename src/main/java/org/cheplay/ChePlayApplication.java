@@ -2,9 +2,11 @@ package org.cheplay;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.neo4j.repository.config.EnableNeo4jRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableNeo4jRepositories(basePackages = "org.cheplay.repository")
+@EnableScheduling
 public class ChePlayApplication {
     public static void main(String[] args) {
         SpringApplication.run(ChePlayApplication.class, args);
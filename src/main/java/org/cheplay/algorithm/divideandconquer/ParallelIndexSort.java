@@ -0,0 +1,89 @@
+package org.cheplay.algorithm.divideandconquer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts positions [0, n) by a primitive double key without boxing: a stable merge sort over an
+ * int[] permutation, with both halves sorted in parallel on a ForkJoin pool until ranges get
+ * small enough for a sequential insertion sort.
+ */
+public class ParallelIndexSort {
+    /** Ranges at or below this size are sorted on the current thread. */
+    static final int SEQUENTIAL_THRESHOLD = 8192;
+    private static final int INSERTION_THRESHOLD = 32;
+
+    /** Permutation p of [0, n) with keys[p[0]] <= keys[p[1]] <= ...; ties keep index order. */
+    public static int[] sortByKey(double[] keys, int n) {
+        return sortByKey(keys, n, ForkJoinPool.commonPool());
+    }
+
+    public static int[] sortByKey(double[] keys, int n, ForkJoinPool pool) {
+        if (n < 0 || n > keys.length) throw new IllegalArgumentException("n out of range: " + n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        if (n < 2) return order;
+        int[] buffer = new int[n];
+        SortTask task = new SortTask(keys, order, buffer, 0, n);
+        if (n <= SEQUENTIAL_THRESHOLD) task.compute();
+        else pool.invoke(task);
+        return order;
+    }
+
+    private static final class SortTask extends RecursiveAction {
+        private final double[] keys;
+        private final int[] order, buffer;
+        private final int lo, hi;
+
+        SortTask(double[] keys, int[] order, int[] buffer, int lo, int hi) {
+            this.keys = keys;
+            this.order = order;
+            this.buffer = buffer;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= INSERTION_THRESHOLD) {
+                insertionSort();
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            SortTask left = new SortTask(keys, order, buffer, lo, mid);
+            SortTask right = new SortTask(keys, order, buffer, mid, hi);
+            if (hi - lo > SEQUENTIAL_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            merge(mid);
+        }
+
+        private void insertionSort() {
+            for (int i = lo + 1; i < hi; i++) {
+                int x = order[i];
+                double k = keys[x];
+                int j = i - 1;
+                while (j >= lo && Double.compare(keys[order[j]], k) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = x;
+            }
+        }
+
+        private void merge(int mid) {
+            // already in order: nothing to move
+            if (Double.compare(keys[order[mid - 1]], keys[order[mid]]) <= 0) return;
+            System.arraycopy(order, lo, buffer, lo, mid - lo);
+            int i = lo, j = mid, k = lo;
+            while (i < mid && j < hi) {
+                if (Double.compare(keys[order[j]], keys[buffer[i]]) < 0) order[k++] = order[j++];
+                else order[k++] = buffer[i++];
+            }
+            while (i < mid) order[k++] = buffer[i++];
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs an unweighted traversal (BFS) from every node of a CSR graph in parallel.
+ *
+ * Source ids are split into ranges across a ForkJoin pool. Each worker thread keeps one workspace
+ * (visited bitset, queue, levels) in a ThreadLocal and reuses it for every source it handles,
+ * clearing only the bits it set, so there is no allocation per source. Results go to per-source
+ * slots of shared arrays, which needs no locking because every slot has exactly one writer.
+ */
+public class AllSourcesTraversal {
+    /** Sources per leaf task; small enough to balance, large enough to amortize task overhead. */
+    static final int SOURCES_PER_TASK = 32;
+
+    /**
+     * Per-source results, indexed by source node: reached (nodes reached, source included),
+     * distanceSum (sum of hop distances) and harmonic (sum of 1/distance).
+     */
+    public record Result(int[] reached, long[] distanceSum, double[] harmonic) {
+        /** Wasserman-Faust closeness: scaled by the reached fraction so small components do not dominate. */
+        public double closeness(int source) {
+            int n = reached.length;
+            long d = distanceSum[source];
+            if (n <= 1 || d == 0) return 0.0;
+            double r = reached[source] - 1;
+            return (r / (n - 1)) * (r / d);
+        }
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    public static Result run(CsrGraph g) {
+        return run(g, ForkJoinPool.commonPool());
+    }
+
+    public static Result run(CsrGraph g, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        Result result = new Result(new int[n], new long[n], new double[n]);
+        if (n > 0) pool.invoke(new RangeTask(g, result, 0, n));
+        return result;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final CsrGraph g;
+        private final Result result;
+        private final int lo, hi;
+
+        RangeTask(CsrGraph g, Result result, int lo, int hi) {
+            this.g = g;
+            this.result = result;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > SOURCES_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new RangeTask(g, result, lo, mid), new RangeTask(g, result, mid, hi));
+                return;
+            }
+            Workspace ws = WORKSPACE.get();
+            ws.ensure(g.nodeCount());
+            for (int s = lo; s < hi; s++) ws.traverse(g, s, result);
+        }
+    }
+
+    private static final class Workspace {
+        long[] visited = new long[0];
+        int[] queue = new int[0];
+        int[] level = new int[0];
+
+        void ensure(int n) {
+            if (queue.length < n) {
+                visited = new long[(n + 63) >>> 6];
+                queue = new int[n];
+                level = new int[n];
+            }
+        }
+
+        void traverse(CsrGraph g, int s, Result out) {
+            int head = 0, tail = 0;
+            long distSum = 0;
+            double harmonic = 0;
+            queue[tail++] = s;
+            level[s] = 0;
+            visited[s >>> 6] |= 1L << s;
+            while (head < tail) {
+                int u = queue[head++];
+                int next = level[u] + 1;
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int v = g.target(e);
+                    long bit = 1L << v;
+                    if ((visited[v >>> 6] & bit) != 0) continue;
+                    visited[v >>> 6] |= bit;
+                    level[v] = next;
+                    queue[tail++] = v;
+                    distSum += next;
+                    harmonic += 1.0 / next;
+                }
+            }
+            for (int i = 0; i < tail; i++) visited[queue[i] >>> 6] = 0;
+            out.reached()[s] = tail;
+            out.distanceSum()[s] = distSum;
+            out.harmonic()[s] = harmonic;
+        }
+    }
+}
@@ -23,4 +23,94 @@ public class BFS {
         }
         return order;
     }
+
+    public static List<String> bfs(CsrGraph g, String start) {
+        int s = g.indexOf(start);
+        if (s < 0) return Collections.emptyList();
+        int[] queue = new int[g.nodeCount()];
+        boolean[] visited = new boolean[g.nodeCount()];
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        visited[s] = true;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                if (!visited[v]) {
+                    visited[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        List<String> order = new ArrayList<>(tail);
+        for (int i = 0; i < tail; i++) order.add(g.id(queue[i]));
+        return order;
+    }
+
+    /** Node reached by a multi-source BFS: its level and how many seeds sit at that distance from it. */
+    public record Hit(String node, int level, int seedHits) {}
+
+    /**
+     * One BFS from all seeds at once (level 0), stopping after maxDepth levels.
+     *
+     * seedHits counts the distinct seeds at exactly {@code level} hops, i.e. the seeds whose own BFS
+     * would reach the node first at that level. It is tracked with a small per-node seed bitset that
+     * is OR-ed along BFS edges between consecutive levels, so 200 seeds cost one traversal.
+     * Hits are returned in BFS order (by level); seeds are included with level 0.
+     */
+    public static List<Hit> multiSource(CsrGraph g, Collection<String> seeds, int maxDepth) {
+        int n = g.nodeCount();
+        int[] level = new int[n];
+        Arrays.fill(level, -1);
+        int[] queue = new int[n];
+        int tail = 0;
+        if (seeds != null) {
+            for (String id : seeds) {
+                int s = g.indexOf(id);
+                if (s < 0 || level[s] == 0) continue;
+                level[s] = 0;
+                queue[tail++] = s;
+            }
+        }
+        if (tail == 0) return Collections.emptyList();
+
+        int words = (tail + 63) >>> 6;
+        // bits for the node at queue position p live at [p * words, (p + 1) * words)
+        long[] bits = new long[Math.max(64, tail * 2) * words];
+        int[] pos = new int[n];
+        for (int p = 0; p < tail; p++) {
+            pos[queue[p]] = p;
+            bits[p * words + (p >>> 6)] |= 1L << p;
+        }
+
+        int head = 0;
+        while (head < tail) {
+            int u = queue[head];
+            int lu = level[u];
+            if (lu >= maxDepth) break;
+            int ub = head * words;
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                if (level[v] == -1) {
+                    level[v] = lu + 1;
+                    pos[v] = tail;
+                    if ((tail + 1) * words > bits.length) bits = Arrays.copyOf(bits, bits.length * 2);
+                    System.arraycopy(bits, ub, bits, tail * words, words);
+                    queue[tail++] = v;
+                } else if (level[v] == lu + 1) {
+                    int vb = pos[v] * words;
+                    for (int w = 0; w < words; w++) bits[vb + w] |= bits[ub + w];
+                }
+            }
+            head++;
+        }
+
+        List<Hit> out = new ArrayList<>(tail);
+        for (int p = 0; p < tail; p++) {
+            int hits = 0;
+            for (int w = 0; w < words; w++) hits += Long.bitCount(bits[p * words + w]);
+            out.add(new Hit(g.id(queue[p]), level[queue[p]], hits));
+        }
+        return out;
+    }
 }
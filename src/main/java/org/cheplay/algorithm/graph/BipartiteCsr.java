@@ -0,0 +1,169 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable user -> item incidence matrix in CSR form (the A of A^T A).
+ *
+ * Users and items are separate dense index spaces [0, userCount) and [0, itemCount), each with its
+ * own String dictionary. The items of user u live at positions [begin(u), end(u)) of one int column,
+ * sorted and without duplicates, so a user who interacted with an item several times counts once
+ * (the DISTINCT of the Cypher overlap queries).
+ */
+public final class BipartiteCsr {
+    private final String[] users;
+    private final String[] items;
+    private final Map<String, Integer> itemIndex;
+    private final int[] offsets;
+    private final int[] columns;
+
+    private BipartiteCsr(String[] users, String[] items, Map<String, Integer> itemIndex, int[] offsets, int[] columns) {
+        this.users = users;
+        this.items = items;
+        this.itemIndex = itemIndex;
+        this.offsets = offsets;
+        this.columns = columns;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int userCount() { return users.length; }
+
+    public int itemCount() { return items.length; }
+
+    /** Number of distinct (user, item) pairs. */
+    public int interactionCount() { return columns.length; }
+
+    public int begin(int user) { return offsets[user]; }
+
+    public int end(int user) { return offsets[user + 1]; }
+
+    public int degree(int user) { return offsets[user + 1] - offsets[user]; }
+
+    /** Item at an interaction position. */
+    public int item(int position) { return columns[position]; }
+
+    public String userId(int user) { return users[user]; }
+
+    public String itemId(int item) { return items[item]; }
+
+    /** Index of the given item id, or -1. */
+    public int itemIndexOf(String id) {
+        if (id == null) return -1;
+        Integer i = itemIndex.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /** Item -> user matrix (A^T); item overlaps of the transpose are user overlaps of this one. */
+    public BipartiteCsr transpose() {
+        int n = users.length, m = items.length, nnz = columns.length;
+        int[] off = new int[m + 1];
+        for (int c : columns) off[c + 1]++;
+        for (int i = 0; i < m; i++) off[i + 1] += off[i];
+        int[] cursor = Arrays.copyOf(off, m);
+        int[] cols = new int[nnz];
+        // ascending users keep every transposed row sorted
+        for (int u = 0; u < n; u++) {
+            for (int p = offsets[u]; p < offsets[u + 1]; p++) cols[cursor[columns[p]]++] = u;
+        }
+        Map<String, Integer> userIndex = new HashMap<>(Math.max(16, n * 2));
+        for (int u = 0; u < n; u++) userIndex.put(users[u], u);
+        return new BipartiteCsr(items, users, userIndex, off, cols);
+    }
+
+    /** Rough heap footprint, for logging. */
+    public long estimatedBytes() {
+        long bytes = 4L * offsets.length + 4L * columns.length;
+        for (String id : users) bytes += 8 + 40 + 2L * id.length();
+        for (String id : items) bytes += 8 + 48 + 16 + 40 + 2L * id.length();
+        return bytes;
+    }
+
+    /**
+     * Collects (user, item) pairs as they stream in from a query; build() sorts them into rows.
+     * Not thread-safe; one builder per load.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> userIndex = new HashMap<>();
+        private final Map<String, Integer> itemIndex = new HashMap<>();
+        private String[] users = new String[16];
+        private String[] items = new String[16];
+        private int userCount, itemCount;
+        private int[] rowOf = new int[64];
+        private int[] colOf = new int[64];
+        private int size;
+
+        private Builder() {}
+
+        public int addUser(String id) {
+            Integer existing = userIndex.get(id);
+            if (existing != null) return existing;
+            if (userCount == users.length) users = Arrays.copyOf(users, users.length * 2);
+            users[userCount] = id;
+            userIndex.put(id, userCount);
+            return userCount++;
+        }
+
+        public int addItem(String id) {
+            Integer existing = itemIndex.get(id);
+            if (existing != null) return existing;
+            if (itemCount == items.length) items = Arrays.copyOf(items, items.length * 2);
+            items[itemCount] = id;
+            itemIndex.put(id, itemCount);
+            return itemCount++;
+        }
+
+        public Builder add(String user, String item) {
+            return add(addUser(user), addItem(item));
+        }
+
+        public Builder add(int user, int item) {
+            if (user < 0 || user >= userCount || item < 0 || item >= itemCount) {
+                throw new IllegalArgumentException("interaction out of range: " + user + "->" + item);
+            }
+            if (size == rowOf.length) {
+                rowOf = Arrays.copyOf(rowOf, size * 2);
+                colOf = Arrays.copyOf(colOf, size * 2);
+            }
+            rowOf[size] = user;
+            colOf[size] = item;
+            size++;
+            return this;
+        }
+
+        public int userCount() { return userCount; }
+
+        public int itemCount() { return itemCount; }
+
+        public BipartiteCsr build() {
+            int n = userCount;
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) offsets[rowOf[i] + 1]++;
+            for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+            int[] cursor = Arrays.copyOf(offsets, n);
+            int[] cols = new int[size];
+            for (int i = 0; i < size; i++) cols[cursor[rowOf[i]]++] = colOf[i];
+
+            // sort and dedup each row in place, compacting rows to the left
+            int k = 0;
+            int rowStart = 0;
+            for (int u = 0; u < n; u++) {
+                int lo = rowStart, hi = offsets[u + 1];
+                rowStart = hi;
+                Arrays.sort(cols, lo, hi);
+                offsets[u] = k;
+                for (int p = lo; p < hi; p++) {
+                    if (p > lo && cols[p] == cols[p - 1]) continue;
+                    cols[k++] = cols[p];
+                }
+            }
+            offsets[n] = k;
+            return new BipartiteCsr(Arrays.copyOf(users, n), Arrays.copyOf(items, itemCount),
+                    new HashMap<>(itemIndex), offsets, k < size ? Arrays.copyOf(cols, k) : cols);
+        }
+    }
+}
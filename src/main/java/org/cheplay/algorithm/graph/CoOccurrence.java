@@ -0,0 +1,238 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sparse A^T A for a user -> item incidence matrix: for every pair of items, the number of distinct
+ * users who interacted with both. This is the overlap the songs_hybrid, movies_by_users and friend
+ * graphs compute in Cypher with a self-join; here it runs in memory over primitive columns.
+ *
+ * The work is partitioned by user: a user with d items contributes d(d-1)/2 pairs, and the user
+ * range is split on that prefix sum so every leaf task gets about PAIRS_PER_TASK pairs regardless
+ * of how skewed the histories are. Each task counts into its own open-addressing long -> int table
+ * (key = item pair packed into a long), so the hot loop takes no lock and allocates nothing per
+ * pair; tables are merged pairwise on join, smaller into larger. The final pairs are sorted by key,
+ * so the result does not depend on the pool size or on scheduling.
+ */
+public final class CoOccurrence {
+    /** Item pairs per leaf task; smaller inputs run on the calling thread. */
+    static final long PAIRS_PER_TASK = 1 << 18;
+
+    private CoOccurrence() {}
+
+    /** Cypher weight shared by all overlap graphs: 1 / (overlap + 1). */
+    public static final PairWeight INVERSE_OVERLAP = (i, j, overlap) -> 1.0 / (overlap + 1.0);
+
+    @FunctionalInterface
+    public interface PairWeight {
+        double weight(int first, int second, int overlap);
+    }
+
+    public static Pairs itemPairs(BipartiteCsr a) {
+        return itemPairs(a, ForkJoinPool.commonPool());
+    }
+
+    /** Item pairs (first < second) with at least one common user. */
+    public static Pairs itemPairs(BipartiteCsr a, ForkJoinPool pool) {
+        int n = a.userCount();
+        long[] work = new long[n + 1];
+        for (int u = 0; u < n; u++) {
+            long d = a.degree(u);
+            work[u + 1] = work[u] + d * (d - 1) / 2;
+        }
+        if (work[n] == 0) return new Pairs(a, new int[0], new int[0], new int[0]);
+        PairTask task = new PairTask(a, work, 0, n);
+        PairCounter counts = work[n] <= PAIRS_PER_TASK ? task.compute() : pool.invoke(task);
+        return counts.toPairs(a);
+    }
+
+    public static Pairs userPairs(BipartiteCsr a) {
+        return userPairs(a, ForkJoinPool.commonPool());
+    }
+
+    /** User pairs with at least one common item (A A^T); ids resolve to user ids. */
+    public static Pairs userPairs(BipartiteCsr a, ForkJoinPool pool) {
+        return itemPairs(a.transpose(), pool);
+    }
+
+    /** Unordered pairs with their overlap, sorted by (first, second). */
+    public static final class Pairs {
+        private final BipartiteCsr source;
+        private final int[] first;
+        private final int[] second;
+        private final int[] overlap;
+
+        private Pairs(BipartiteCsr source, int[] first, int[] second, int[] overlap) {
+            this.source = source;
+            this.first = first;
+            this.second = second;
+            this.overlap = overlap;
+        }
+
+        public int size() { return first.length; }
+
+        public int first(int k) { return first[k]; }
+
+        public int second(int k) { return second[k]; }
+
+        public int overlap(int k) { return overlap[k]; }
+
+        /** Id of an index returned by first() or second(). */
+        public String id(int index) { return source.itemId(index); }
+
+        /** first -> second edges, plus second -> first when symmetric. */
+        public CsrGraph toGraph(PairWeight weight, boolean symmetric) {
+            CsrGraph.Builder b = CsrGraph.builder();
+            for (int k = 0; k < first.length; k++) {
+                int from = b.addNode(id(first[k]));
+                int to = b.addNode(id(second[k]));
+                double w = weight.weight(first[k], second[k], overlap[k]);
+                b.addEdge(from, to, w);
+                if (symmetric) b.addEdge(to, from, w);
+            }
+            return b.build();
+        }
+    }
+
+    private static final class PairTask extends RecursiveTask<PairCounter> {
+        private final BipartiteCsr a;
+        private final long[] work;
+        private final int lo, hi;
+
+        PairTask(BipartiteCsr a, long[] work, int lo, int hi) {
+            this.a = a;
+            this.work = work;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected PairCounter compute() {
+            long pairs = work[hi] - work[lo];
+            if (pairs > PAIRS_PER_TASK && hi - lo > 1) {
+                int mid = splitPoint(work[lo] + pairs / 2);
+                PairTask right = new PairTask(a, work, mid, hi);
+                right.fork();
+                PairCounter left = new PairTask(a, work, lo, mid).compute();
+                PairCounter other = right.join();
+                if (other.size > left.size) {
+                    other.addAll(left);
+                    return other;
+                }
+                left.addAll(other);
+                return left;
+            }
+            PairCounter counts = new PairCounter((int) Math.min(pairs, 1 << 16));
+            for (int u = lo; u < hi; u++) {
+                int end = a.end(u);
+                for (int p = a.begin(u); p < end; p++) {
+                    long hiBits = (long) a.item(p) << 32;
+                    // rows are sorted, so item(p) < item(q) for every q > p
+                    for (int q = p + 1; q < end; q++) counts.add(hiBits | a.item(q), 1);
+                }
+            }
+            return counts;
+        }
+
+        /** First user in (lo, hi) whose prefix work reaches target; always leaves both halves non-empty. */
+        private int splitPoint(long target) {
+            int l = lo + 1, h = hi - 1;
+            while (l < h) {
+                int m = (l + h) >>> 1;
+                if (work[m] < target) l = m + 1;
+                else h = m;
+            }
+            return l;
+        }
+    }
+
+    /**
+     * Open-addressing long -> int counter with linear probing. Keys are packed pairs with
+     * first < second, so second >= 1 and 0 is never a key and marks empty slots.
+     */
+    static final class PairCounter {
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        int size;
+
+        PairCounter(int expected) {
+            int cap = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            keys = new long[cap];
+            values = new int[cap];
+            mask = cap - 1;
+        }
+
+        void add(long key, int delta) {
+            int slot = slot(key);
+            while (true) {
+                long k = keys[slot];
+                if (k == key) {
+                    values[slot] += delta;
+                    return;
+                }
+                if (k == 0) {
+                    keys[slot] = key;
+                    values[slot] = delta;
+                    // keep the load factor at or below 1/2
+                    if (++size * 2 > keys.length) grow();
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        int get(long key) {
+            int slot = slot(key);
+            while (true) {
+                long k = keys[slot];
+                if (k == key) return values[slot];
+                if (k == 0) return 0;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        void addAll(PairCounter other) {
+            for (int s = 0; s < other.keys.length; s++) {
+                if (other.keys[s] != 0) add(other.keys[s], other.values[s]);
+            }
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            mask = keys.length - 1;
+            for (int s = 0; s < oldKeys.length; s++) {
+                long k = oldKeys[s];
+                if (k == 0) continue;
+                int slot = slot(k);
+                while (keys[slot] != 0) slot = (slot + 1) & mask;
+                keys[slot] = k;
+                values[slot] = oldValues[s];
+            }
+        }
+
+        Pairs toPairs(BipartiteCsr source) {
+            long[] sorted = new long[size];
+            int k = 0;
+            for (long key : keys) if (key != 0) sorted[k++] = key;
+            Arrays.sort(sorted);
+            int[] first = new int[size], second = new int[size], overlap = new int[size];
+            for (int i = 0; i < size; i++) {
+                first[i] = (int) (sorted[i] >>> 32);
+                second[i] = (int) sorted[i];
+                overlap[i] = get(sorted[i]);
+            }
+            return new Pairs(source, first, second, overlap);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable compressed-sparse-row graph.
+ *
+ * Nodes are dense ints [0, nodeCount) with a String dictionary on the side. The out-edges of
+ * node u live at edge positions [begin(u), end(u)) of the targets/weights columns, sorted by
+ * target index and without duplicates (parallel edges keep the minimum weight, same as
+ * DynamicGraphAdapter did on the Map representation).
+ *
+ * HeapCsrGraph keeps the columns in Java arrays; OffHeapCsrGraph keeps them in direct or mapped
+ * buffers so huge graphs add almost nothing to the live heap. The algorithms only see this
+ * interface. Off-heap graphs are reference counted: whoever shares one must tryRetain() it first
+ * and release() it when done; for heap graphs both are no-ops.
+ */
+public interface CsrGraph {
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /** Convert the legacy Map adjacency into a CSR graph. */
+    static CsrGraph fromAdjacency(Map<String, Map<String, Double>> adj) {
+        Builder b = new Builder();
+        if (adj == null) return b.build();
+        for (String u : adj.keySet()) b.addNode(u);
+        for (Map.Entry<String, Map<String, Double>> u : adj.entrySet()) {
+            Map<String, Double> row = u.getValue();
+            if (row == null) continue;
+            for (Map.Entry<String, Double> v : row.entrySet()) {
+                if (v.getValue() == null) continue;
+                b.addEdge(u.getKey(), v.getKey(), v.getValue());
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Wraps already laid out CSR columns without copying, e.g. a snapshot read back from disk. Rows
+     * must be sorted by target and free of duplicates; only the shape of the columns is checked.
+     */
+    static CsrGraph fromColumns(String[] ids, int[] offsets, int[] targets, double[] weights) {
+        int n = ids.length;
+        if (offsets.length != n + 1 || offsets[0] != 0 || offsets[n] != targets.length
+                || weights.length != targets.length) {
+            throw new IllegalArgumentException("inconsistent CSR columns: " + n + " nodes, "
+                    + offsets.length + " offsets, " + targets.length + " targets, " + weights.length + " weights");
+        }
+        return new HeapCsrGraph(ids, dictionary(ids), offsets, targets, weights);
+    }
+
+    int nodeCount();
+
+    int edgeCount();
+
+    /** First edge position of u. */
+    int begin(int u);
+
+    /** One past the last edge position of u. */
+    int end(int u);
+
+    default int degree(int u) { return end(u) - begin(u); }
+
+    int target(int edge);
+
+    double weight(int edge);
+
+    String id(int node);
+
+    /** Index of the given id, or -1 if the node is not part of the graph. */
+    int indexOf(String id);
+
+    default boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    /** Source node of an edge position (binary search over the offsets). */
+    default int sourceOf(int edge) {
+        int lo = 0, hi = nodeCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (begin(mid) <= edge) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** Edge position of u->v, or -1. Rows are sorted by target so this is a binary search. */
+    default int findEdge(int u, int v) {
+        int lo = begin(u), hi = end(u) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = target(mid);
+            if (t < v) lo = mid + 1;
+            else if (t > v) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    default boolean hasEdge(int u, int v) {
+        return findEdge(u, v) >= 0;
+    }
+
+    /** Graph with every edge flipped; computed once and kept for later calls. */
+    CsrGraph reverse();
+
+    /**
+     * This graph if id is already a node, otherwise a copy with id appended as an isolated node.
+     * The edge columns are shared, only the offsets and the dictionary are copied.
+     */
+    CsrGraph withNode(String id);
+
+    /**
+     * 64-bit content hash of ids, structure and weights. The same graph loaded twice gets the same
+     * value whatever the storage, so derived results (e.g. reachability) can be cached per graph
+     * version.
+     */
+    long fingerprint();
+
+    /** Rough total footprint (heap plus off-heap), used for logging and cache accounting. */
+    long estimatedBytes();
+
+    /** Part of estimatedBytes() that lives outside the Java heap. */
+    default long offHeapBytes() { return 0L; }
+
+    /**
+     * Takes a reference before using a shared graph. False means the graph was already released
+     * and its memory may be gone; the caller has to get a fresh one.
+     */
+    default boolean tryRetain() { return true; }
+
+    /** Gives back a reference taken with tryRetain() (or the creator's initial one). */
+    default void release() {}
+
+    /** Convert back to the Map adjacency used by the older algorithm entry points. */
+    default Map<String, Map<String, Double>> toAdjacency() {
+        int n = nodeCount();
+        Map<String, Map<String, Double>> adj = new HashMap<>(Math.max(16, n * 2));
+        for (int u = 0; u < n; u++) {
+            Map<String, Double> row = new HashMap<>(Math.max(4, degree(u) * 2));
+            for (int e = begin(u); e < end(u); e++) row.put(id(target(e)), weight(e));
+            adj.put(id(u), row);
+        }
+        return adj;
+    }
+
+    List<String> ids();
+
+    /** Shared fingerprint computation so heap and off-heap copies of a graph hash the same. */
+    static long fingerprintOf(CsrGraph g) {
+        int n = g.nodeCount();
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < n; i++) h = mix(h, g.id(i).hashCode());
+        for (int u = 0; u < n; u++) h = mix(h, g.begin(u));
+        h = mix(h, g.edgeCount());
+        for (int e = 0, m = g.edgeCount(); e < m; e++) h = mix(h, g.target(e));
+        for (int e = 0, m = g.edgeCount(); e < m; e++) h = mix(h, Double.doubleToLongBits(g.weight(e)));
+        return h == 0 ? 1 : h;
+    }
+
+    private static long mix(long h, long x) {
+        h ^= x;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    /** id -> index map shared by the implementations. */
+    static Map<String, Integer> dictionary(String[] ids) {
+        Map<String, Integer> index = new HashMap<>(Math.max(16, ids.length * 2));
+        for (int i = 0; i < ids.length; i++) index.put(ids[i], i);
+        return index;
+    }
+
+    /**
+     * Collects nodes and edges into primitive columns, then lays them out as CSR in build().
+     * Not thread-safe; one builder per load.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private String[] ids = new String[16];
+        private int nodeCount;
+        private int[] src = new int[64];
+        private int[] dst = new int[64];
+        private double[] w = new double[64];
+        private int edgeCount;
+
+        private Builder() {}
+
+        public int addNode(String id) {
+            Integer existing = index.get(id);
+            if (existing != null) return existing;
+            if (nodeCount == ids.length) ids = Arrays.copyOf(ids, ids.length * 2);
+            ids[nodeCount] = id;
+            index.put(id, nodeCount);
+            return nodeCount++;
+        }
+
+        public Builder addEdge(String from, String to, double weight) {
+            return addEdge(addNode(from), addNode(to), weight);
+        }
+
+        public Builder addEdge(int from, int to, double weight) {
+            if (from < 0 || from >= nodeCount || to < 0 || to >= nodeCount) {
+                throw new IllegalArgumentException("edge endpoint out of range: " + from + "->" + to);
+            }
+            if (edgeCount == src.length) {
+                int cap = src.length * 2;
+                src = Arrays.copyOf(src, cap);
+                dst = Arrays.copyOf(dst, cap);
+                w = Arrays.copyOf(w, cap);
+            }
+            src[edgeCount] = from;
+            dst[edgeCount] = to;
+            w[edgeCount] = weight;
+            edgeCount++;
+            return this;
+        }
+
+        public int nodeCount() { return nodeCount; }
+
+        public int edgeCount() { return edgeCount; }
+
+        public HeapCsrGraph build() {
+            int n = nodeCount;
+            int m = edgeCount;
+            // two stable counting-sort passes (by target, then by source) give rows sorted by target
+            int[] byTarget = countingSort(dst, identity(m), n);
+            int[] order = countingSort(src, byTarget, n);
+
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int k = 0;
+            int prevSrc = -1, prevDst = -1;
+            for (int i = 0; i < m; i++) {
+                int e = order[i];
+                int s = src[e], t = dst[e];
+                if (s == prevSrc && t == prevDst) {
+                    if (w[e] < weights[k - 1]) weights[k - 1] = w[e];
+                    continue;
+                }
+                targets[k] = t;
+                weights[k] = w[e];
+                offsets[s + 1]++;
+                prevSrc = s;
+                prevDst = t;
+                k++;
+            }
+            for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+            if (k < m) {
+                targets = Arrays.copyOf(targets, k);
+                weights = Arrays.copyOf(weights, k);
+            }
+            return new HeapCsrGraph(Arrays.copyOf(ids, n), new HashMap<>(index), offsets, targets, weights);
+        }
+
+        private static int[] identity(int m) {
+            int[] a = new int[m];
+            for (int i = 0; i < m; i++) a[i] = i;
+            return a;
+        }
+
+        private static int[] countingSort(int[] key, int[] in, int buckets) {
+            int[] count = new int[buckets + 1];
+            for (int e : in) count[key[e] + 1]++;
+            for (int i = 0; i < buckets; i++) count[i + 1] += count[i];
+            int[] out = new int[in.length];
+            for (int e : in) out[count[key[e]]++] = e;
+            return out;
+        }
+    }
+}
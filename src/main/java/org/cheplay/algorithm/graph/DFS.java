@@ -1,17 +1,88 @@
 package org.cheplay.algorithm.graph;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 
 public class DFS {
+    /** Node reached by a bounded DFS and its depth (start = 0) in the DFS tree. */
+    public record Visit(String node, int depth) {}
+
+    /**
+     * Preorder DFS filling visited/order. Runs on an explicit stack of neighbour iterators, so the
+     * visiting order is the same as the old recursive version but long chains no longer overflow.
+     */
     public static void dfs(String node,
                            Map<String, Map<String, Double>> adj,
                            Set<String> visited,
                            List<String> order) {
         if (node == null || visited.contains(node)) return;
+        Deque<Iterator<String>> stack = new ArrayDeque<>();
         visited.add(node);
         order.add(node);
-        for (String nb : adj.getOrDefault(node, Collections.emptyMap()).keySet()) {
-            if (!visited.contains(nb)) dfs(nb, adj, visited, order);
+        stack.push(adj.getOrDefault(node, Collections.emptyMap()).keySet().iterator());
+        while (!stack.isEmpty()) {
+            Iterator<String> it = stack.peek();
+            if (!it.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            String nb = it.next();
+            if (nb == null || visited.contains(nb)) continue;
+            visited.add(nb);
+            order.add(nb);
+            stack.push(adj.getOrDefault(nb, Collections.emptyMap()).keySet().iterator());
+        }
+    }
+
+    /** Preorder DFS on a CSR graph; same visiting order as the recursive version, kept on an explicit stack. */
+    public static List<String> dfs(CsrGraph g, String start) {
+        List<Visit> visits = bounded(g, start, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, null);
+        List<String> order = new ArrayList<>(visits.size());
+        for (Visit v : visits) order.add(v.node());
+        return order;
+    }
+
+    /**
+     * Explicit-stack DFS with limits, in preorder.
+     *
+     * maxDepth:   nodes deeper than this are not entered (they stay unvisited, so a shorter path
+     *             found later can still reach them).
+     * nodeBudget: stop after this many nodes were visited, start included.
+     * stopAfter:  stop once this many visited nodes passed {@code candidate} (0 = no early exit;
+     *             null candidate counts every node except the start).
+     */
+    public static List<Visit> bounded(CsrGraph g, String start, int maxDepth, int nodeBudget,
+                                      int stopAfter, IntPredicate candidate) {
+        int s = g.indexOf(start);
+        if (s < 0 || nodeBudget <= 0 || maxDepth < 0) return Collections.emptyList();
+        int n = g.nodeCount();
+        boolean[] visited = new boolean[n];
+        // the stack never holds more than min(n, maxDepth + 1) frames
+        int frames = (int) Math.min(n, (long) maxDepth + 1);
+        int[] stack = new int[frames];
+        int[] cursor = new int[frames];
+        List<Visit> out = new ArrayList<>();
+        int found = 0;
+        int top = 0;
+        stack[0] = s;
+        cursor[0] = g.begin(s);
+        visited[s] = true;
+        out.add(new Visit(g.id(s), 0));
+        while (top >= 0 && out.size() < nodeBudget) {
+            int u = stack[top];
+            // top is also the depth of u; children would be at top + 1
+            if (top == maxDepth || cursor[top] == g.end(u)) {
+                top--;
+                continue;
+            }
+            int v = g.target(cursor[top]++);
+            if (visited[v]) continue;
+            visited[v] = true;
+            out.add(new Visit(g.id(v), top + 1));
+            if (stopAfter > 0 && (candidate == null || candidate.test(v)) && ++found >= stopAfter) break;
+            stack[++top] = v;
+            cursor[top] = g.begin(v);
         }
+        return out;
     }
 }
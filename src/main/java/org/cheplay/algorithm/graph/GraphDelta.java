@@ -0,0 +1,93 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered batch of changes to a graph, applied with SegmentedCsrGraph.apply(): node insertions,
+ * edge insertions or weight changes (put) and edge removals. Later operations on the same edge win.
+ * Endpoints are node ids, so a delta can be computed once and applied to any graph of that type.
+ */
+public final class GraphDelta {
+
+    public enum Kind { NODE, PUT, REMOVE }
+
+    /** One change; to is null for NODE and weight is NaN for NODE and REMOVE. */
+    public record Op(Kind kind, String from, String to, double weight) {}
+
+    private final List<Op> ops;
+
+    private GraphDelta(List<Op> ops) {
+        this.ops = ops;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<Op> ops() {
+        return ops;
+    }
+
+    public int size() {
+        return ops.size();
+    }
+
+    public boolean isEmpty() {
+        return ops.isEmpty();
+    }
+
+    /** The same delta with every edge change also applied to the opposite direction (undirected graphs). */
+    public GraphDelta mirrored() {
+        List<Op> out = new ArrayList<>(ops.size() * 2);
+        for (Op op : ops) {
+            out.add(op);
+            if (op.kind() != Kind.NODE && !op.from().equals(op.to())) {
+                out.add(new Op(op.kind(), op.to(), op.from(), op.weight()));
+            }
+        }
+        return new GraphDelta(Collections.unmodifiableList(out));
+    }
+
+    public static final class Builder {
+        private final List<Op> ops = new ArrayList<>();
+
+        private Builder() {}
+
+        /** Adds id as an isolated node unless it already exists. */
+        public Builder addNode(String id) {
+            if (id == null) throw new IllegalArgumentException("node id is required");
+            ops.add(new Op(Kind.NODE, id, null, Double.NaN));
+            return this;
+        }
+
+        /**
+         * Inserts from->to or changes its weight; missing endpoints are added as nodes. Weights must
+         * be positive, like the ones DynamicGraphAdapter keeps when loading.
+         */
+        public Builder put(String from, String to, double weight) {
+            if (from == null || to == null) throw new IllegalArgumentException("edge endpoints are required");
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("edge weight must be positive and finite: " + weight);
+            }
+            ops.add(new Op(Kind.PUT, from, to, weight));
+            return this;
+        }
+
+        /** Removes from->to if present; unknown endpoints are ignored. */
+        public Builder remove(String from, String to) {
+            if (from == null || to == null) throw new IllegalArgumentException("edge endpoints are required");
+            ops.add(new Op(Kind.REMOVE, from, to, Double.NaN));
+            return this;
+        }
+
+        public int size() {
+            return ops.size();
+        }
+
+        public GraphDelta build() {
+            return new GraphDelta(Collections.unmodifiableList(new ArrayList<>(ops)));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-heap CsrGraph: the offsets, targets and weights columns are plain Java arrays.
+ *
+ * Nodes are dense ints [0, nodeCount) with a String dictionary on the side. The out-edges of
+ * node u live at edge positions [begin(u), end(u)) of the targets/weights columns, sorted by
+ * target index and without duplicates (parallel edges keep the minimum weight, same as
+ * DynamicGraphAdapter did on the Map representation).
+ */
+public final class HeapCsrGraph implements CsrGraph {
+    private final String[] ids;
+    private final Map<String, Integer> index;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private volatile HeapCsrGraph reverse;
+    private volatile long fingerprint;
+
+    HeapCsrGraph(String[] ids, Map<String, Integer> index, int[] offsets, int[] targets, double[] weights) {
+        this.ids = ids;
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int nodeCount() { return ids.length; }
+
+    @Override
+    public int edgeCount() { return targets.length; }
+
+    @Override
+    public int begin(int u) { return offsets[u]; }
+
+    @Override
+    public int end(int u) { return offsets[u + 1]; }
+
+    @Override
+    public int degree(int u) { return offsets[u + 1] - offsets[u]; }
+
+    @Override
+    public int target(int edge) { return targets[edge]; }
+
+    @Override
+    public double weight(int edge) { return weights[edge]; }
+
+    @Override
+    public String id(int node) { return ids[node]; }
+
+    @Override
+    public int indexOf(String id) {
+        if (id == null) return -1;
+        Integer i = index.get(id);
+        return i == null ? -1 : i;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return id != null && index.containsKey(id);
+    }
+
+    @Override
+    public int sourceOf(int edge) {
+        int lo = 0, hi = ids.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= edge) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    @Override
+    public int findEdge(int u, int v) {
+        int lo = offsets[u], hi = offsets[u + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = targets[mid];
+            if (t < v) lo = mid + 1;
+            else if (t > v) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** Graph with every edge flipped; computed once and kept for later calls. */
+    @Override
+    public HeapCsrGraph reverse() {
+        HeapCsrGraph r = reverse;
+        if (r == null) {
+            int n = ids.length;
+            int m = targets.length;
+            int[] off = new int[n + 1];
+            for (int e = 0; e < m; e++) off[targets[e] + 1]++;
+            for (int i = 0; i < n; i++) off[i + 1] += off[i];
+            int[] cursor = Arrays.copyOf(off, n);
+            int[] tgt = new int[m];
+            double[] w = new double[m];
+            // walking sources in ascending order keeps every reversed row sorted by target
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int pos = cursor[targets[e]]++;
+                    tgt[pos] = u;
+                    w[pos] = weights[e];
+                }
+            }
+            r = new HeapCsrGraph(ids, index, off, tgt, w);
+            r.reverse = this;
+            reverse = r;
+        }
+        return r;
+    }
+
+    /**
+     * This graph if id is already a node, otherwise a copy with id appended as an isolated node.
+     * The edge columns are shared, only the offsets and the dictionary are copied.
+     */
+    @Override
+    public HeapCsrGraph withNode(String id) {
+        if (contains(id)) return this;
+        int n = ids.length;
+        String[] ids2 = Arrays.copyOf(ids, n + 1);
+        ids2[n] = id;
+        Map<String, Integer> index2 = new HashMap<>(index);
+        index2.put(id, n);
+        int[] off = Arrays.copyOf(offsets, n + 2);
+        off[n + 1] = off[n];
+        return new HeapCsrGraph(ids2, index2, off, targets, weights);
+    }
+
+    @Override
+    public long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            h = CsrGraph.fingerprintOf(this);
+            fingerprint = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 4L * offsets.length + 4L * targets.length + 8L * weights.length;
+        // dictionary: array slot + HashMap node + boxed Integer + String header, plus characters
+        for (String id : ids) bytes += 8 + 48 + 16 + 40 + 2L * id.length();
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Map<String, Double>> toAdjacency() {
+        Map<String, Map<String, Double>> adj = new HashMap<>(Math.max(16, ids.length * 2));
+        for (int u = 0; u < ids.length; u++) {
+            Map<String, Double> row = new HashMap<>(Math.max(4, degree(u) * 2));
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) row.put(ids[targets[e]], weights[e]);
+            adj.put(ids[u], row);
+        }
+        return adj;
+    }
+
+    @Override
+    public List<String> ids() {
+        return Collections.unmodifiableList(Arrays.asList(ids));
+    }
+}
@@ -0,0 +1,312 @@
+package org.cheplay.algorithm.graph;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CsrGraph whose targets and weights columns (and, for graphs built here, the offsets) live in
+ * direct or memory-mapped ByteBuffers. Edge data, which dominates the size of the large
+ * projections, therefore never shows up in the live heap or in GC marking; what stays on the heap
+ * is the id dictionary, proportional to the node count.
+ *
+ * Lifecycle: the native memory is reference counted. The creator holds the first reference; every
+ * other user takes one with tryRetain() and gives it back with release() (or close()). When the
+ * count reaches zero the buffers are freed right away instead of waiting for a GC. view() hands out
+ * a reference that is given back by a Cleaner once the view becomes unreachable, for callers that
+ * cannot release explicitly. A direct buffer holds at most 2 GB, so one graph has at most
+ * 268 million edges.
+ */
+public final class OffHeapCsrGraph implements CsrGraph, AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private final String[] ids;
+    private final Map<String, Integer> index;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final DoubleBuffer weights;
+    private final Memory memory;
+    private volatile CsrGraph reverse;
+    private volatile long fingerprint;
+
+    private OffHeapCsrGraph(String[] ids, Map<String, Integer> index, IntBuffer offsets, IntBuffer targets,
+                            DoubleBuffer weights, Memory memory) {
+        this.ids = ids;
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.memory = memory;
+    }
+
+    /** Off-heap copy of any CsrGraph; the source can be dropped afterwards. */
+    public static OffHeapCsrGraph copyOf(CsrGraph g) {
+        int n = g.nodeCount(), m = g.edgeCount();
+        ByteBuffer off = allocate(4L * (n + 1));
+        ByteBuffer tgt = allocate(4L * m);
+        ByteBuffer w = allocate(8L * m);
+        IntBuffer offsets = off.asIntBuffer();
+        IntBuffer targets = tgt.asIntBuffer();
+        DoubleBuffer weights = w.asDoubleBuffer();
+        for (int u = 0; u < n; u++) offsets.put(u, g.begin(u));
+        offsets.put(n, m);
+        for (int e = 0; e < m; e++) {
+            targets.put(e, g.target(e));
+            weights.put(e, g.weight(e));
+        }
+        String[] ids = g.ids().toArray(new String[0]);
+        return new OffHeapCsrGraph(ids, CsrGraph.dictionary(ids), offsets, targets, weights,
+                new Memory(new ByteBuffer[] { off, tgt, w }, 16L * m + 4L * (n + 1), n));
+    }
+
+    /**
+     * Wraps columns that already live outside the heap, e.g. slices of a mapped snapshot file.
+     * owners are the original buffers (not slices) whose memory is freed on the last release.
+     */
+    public static OffHeapCsrGraph wrap(String[] ids, IntBuffer offsets, IntBuffer targets, DoubleBuffer weights,
+                                       ByteBuffer... owners) {
+        int n = ids.length;
+        if (offsets.limit() != n + 1 || offsets.get(0) != 0 || offsets.get(n) != targets.limit()
+                || weights.limit() != targets.limit()) {
+            throw new IllegalArgumentException("inconsistent CSR columns: " + n + " nodes, " + offsets.limit()
+                    + " offsets, " + targets.limit() + " targets, " + weights.limit() + " weights");
+        }
+        long bytes = 0;
+        for (ByteBuffer b : owners) bytes += b.capacity();
+        return new OffHeapCsrGraph(ids, CsrGraph.dictionary(ids), offsets, targets, weights,
+                new Memory(owners, bytes, n));
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("column too large for a direct buffer: " + bytes);
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public int nodeCount() { return ids.length; }
+
+    @Override
+    public int edgeCount() { return targets.limit(); }
+
+    @Override
+    public int begin(int u) { return offsets.get(u); }
+
+    @Override
+    public int end(int u) { return offsets.get(u + 1); }
+
+    @Override
+    public int target(int edge) { return targets.get(edge); }
+
+    @Override
+    public double weight(int edge) { return weights.get(edge); }
+
+    @Override
+    public String id(int node) { return ids[node]; }
+
+    @Override
+    public int indexOf(String id) {
+        if (id == null) return -1;
+        Integer i = index.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Reversed graph, also off-heap. For the graph itself (and its views) it is computed once and
+     * freed together with this graph's memory; withNode copies get their own, released by the GC.
+     */
+    @Override
+    public CsrGraph reverse() {
+        CsrGraph r = reverse;
+        if (r == null) {
+            synchronized (this) {
+                r = reverse;
+                if (r == null) {
+                    if (ids.length == memory.nodeCount) {
+                        r = memory.reverseOf(this);
+                    } else {
+                        OffHeapCsrGraph copy = reversed(this);
+                        r = copy.view();
+                        copy.release();
+                    }
+                    reverse = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    /** Same counting pass as HeapCsrGraph.reverse(), writing straight into new direct buffers. */
+    private static OffHeapCsrGraph reversed(OffHeapCsrGraph g) {
+        int n = g.nodeCount(), m = g.edgeCount();
+        int[] count = new int[n + 1];
+        for (int e = 0; e < m; e++) count[g.target(e) + 1]++;
+        for (int i = 0; i < n; i++) count[i + 1] += count[i];
+        ByteBuffer off = allocate(4L * (n + 1));
+        ByteBuffer tgt = allocate(4L * m);
+        ByteBuffer w = allocate(8L * m);
+        IntBuffer offsets = off.asIntBuffer();
+        IntBuffer targets = tgt.asIntBuffer();
+        DoubleBuffer weights = w.asDoubleBuffer();
+        for (int i = 0; i <= n; i++) offsets.put(i, count[i]);
+        // count[] becomes the write cursor; ascending sources keep every reversed row sorted
+        for (int u = 0; u < n; u++) {
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int pos = count[g.target(e)]++;
+                targets.put(pos, u);
+                weights.put(pos, g.weight(e));
+            }
+        }
+        return new OffHeapCsrGraph(g.ids, g.index, offsets, targets, weights,
+                new Memory(new ByteBuffer[] { off, tgt, w }, 16L * m + 4L * (n + 1), n));
+    }
+
+    /**
+     * Copy with id appended as an isolated node. The edge columns stay shared; the new offsets go on
+     * the heap (4 bytes per node). The copy is a view: it holds a reference until it is unreachable.
+     */
+    @Override
+    public CsrGraph withNode(String id) {
+        if (contains(id)) return this;
+        int n = ids.length;
+        String[] ids2 = Arrays.copyOf(ids, n + 1);
+        ids2[n] = id;
+        Map<String, Integer> index2 = new HashMap<>(index);
+        index2.put(id, n);
+        int[] off = new int[n + 2];
+        offsets.get(0, off, 0, n + 1);
+        off[n + 1] = off[n];
+        return viewOf(new OffHeapCsrGraph(ids2, index2, IntBuffer.wrap(off), targets, weights, memory));
+    }
+
+    /**
+     * Same graph under a reference that is released automatically once the returned object is
+     * garbage collected. For code that cannot call release(); leases should prefer tryRetain().
+     */
+    public OffHeapCsrGraph view() {
+        return viewOf(new OffHeapCsrGraph(ids, index, offsets, targets, weights, memory));
+    }
+
+    private OffHeapCsrGraph viewOf(OffHeapCsrGraph view) {
+        if (!memory.tryRetain()) throw new IllegalStateException("graph memory already released");
+        Memory mem = memory;
+        CLEANER.register(view, mem::release);
+        return view;
+    }
+
+    @Override
+    public long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            h = CsrGraph.fingerprintOf(this);
+            fingerprint = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = offHeapBytes();
+        for (String id : ids) bytes += 8 + 48 + 16 + 40 + 2L * id.length();
+        return bytes;
+    }
+
+    @Override
+    public long offHeapBytes() { return memory.bytes; }
+
+    @Override
+    public boolean tryRetain() { return memory.tryRetain(); }
+
+    @Override
+    public void release() { memory.release(); }
+
+    /** Same as release(). */
+    @Override
+    public void close() { release(); }
+
+    /** Live references to the shared memory; 0 once it has been freed. */
+    public int references() { return memory.refs.get(); }
+
+    @Override
+    public List<String> ids() {
+        return Collections.unmodifiableList(Arrays.asList(ids));
+    }
+
+    /** Owner of the native buffers, shared by a graph, its views and its withNode copies. */
+    private static final class Memory {
+        final ByteBuffer[] buffers;
+        final long bytes;
+        final int nodeCount;
+        final AtomicInteger refs = new AtomicInteger(1);
+        private OffHeapCsrGraph reverse;
+
+        Memory(ByteBuffer[] buffers, long bytes, int nodeCount) {
+            this.buffers = buffers;
+            this.bytes = bytes;
+            this.nodeCount = nodeCount;
+        }
+
+        synchronized OffHeapCsrGraph reverseOf(OffHeapCsrGraph g) {
+            if (reverse == null) reverse = reversed(g);
+            return reverse;
+        }
+
+        boolean tryRetain() {
+            while (true) {
+                int r = refs.get();
+                if (r <= 0) return false;
+                if (refs.compareAndSet(r, r + 1)) return true;
+            }
+        }
+
+        void release() {
+            int r = refs.decrementAndGet();
+            if (r > 0) return;
+            if (r < 0) {
+                refs.set(0);
+                throw new IllegalStateException("graph memory released more often than retained");
+            }
+            OffHeapCsrGraph rev;
+            synchronized (this) {
+                rev = reverse;
+            }
+            if (rev != null) rev.release();
+            for (ByteBuffer b : buffers) free(b);
+        }
+    }
+
+    /** Frees a direct or mapped buffer now; without the hook the GC frees it once unreachable. */
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) return;
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable ignored) {
+            // e.g. a slice or duplicate: left to the GC
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(f.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
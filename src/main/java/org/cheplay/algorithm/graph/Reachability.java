@@ -0,0 +1,184 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Reachable-set sizes for every node without one BFS per node.
+ *
+ * Strongly connected components are collapsed with an iterative Tarjan; every node of a component
+ * reaches the same set, so sizes are computed once per component over the condensation DAG.
+ * Small condensations get exact bitsets, large ones a Cohen-style min-rank estimator.
+ */
+public class Reachability {
+    /** Exact bitsets are used while they fit in this many bytes. */
+    public static final long EXACT_BITSET_BYTES = 64L * 1024 * 1024;
+    /** Number of independent ranks per node for the estimator (relative error ~ 1/sqrt(k-2)). */
+    public static final int ESTIMATOR_RANKS = 64;
+
+    /** SCC assignment; component ids are in reverse topological order (successors have smaller ids). */
+    public record Condensation(int[] component, int componentCount, int[] componentSize) {}
+
+    public static Condensation condense(CsrGraph g) {
+        int n = g.nodeCount();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] comp = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] sccStack = new int[n];
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int sccTop = 0, counter = 0, compCount = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            int top = 0;
+            callNode[0] = root;
+            callEdge[0] = g.begin(root);
+            index[root] = low[root] = counter++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+            while (top >= 0) {
+                int u = callNode[top];
+                if (callEdge[top] < g.end(u)) {
+                    int v = g.target(callEdge[top]++);
+                    if (index[v] < 0) {
+                        index[v] = low[v] = counter++;
+                        sccStack[sccTop++] = v;
+                        onStack[v] = true;
+                        callNode[++top] = v;
+                        callEdge[top] = g.begin(v);
+                    } else if (onStack[v] && index[v] < low[u]) {
+                        low[u] = index[v];
+                    }
+                    continue;
+                }
+                if (low[u] == index[u]) {
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        onStack[w] = false;
+                        comp[w] = compCount;
+                    } while (w != u);
+                    compCount++;
+                }
+                top--;
+                if (top >= 0) {
+                    int parent = callNode[top];
+                    if (low[u] < low[parent]) low[parent] = low[u];
+                }
+            }
+        }
+
+        int[] size = new int[compCount];
+        for (int v = 0; v < n; v++) size[comp[v]]++;
+        return new Condensation(comp, compCount, size);
+    }
+
+    /** Number of nodes reachable from each node, itself included (what BFS.bfs(...).size() returned). */
+    public static int[] reachableCounts(CsrGraph g) {
+        return reachableCounts(g, EXACT_BITSET_BYTES);
+    }
+
+    /** As reachableCounts(g), with exact bitsets only up to exactBitsetBytes (0: always estimate). */
+    public static int[] reachableCounts(CsrGraph g, long exactBitsetBytes) {
+        Condensation c = condense(g);
+        long words = (c.componentCount() + 63L) >>> 6;
+        double[] perComponent = c.componentCount() * words * 8 <= exactBitsetBytes
+            ? exactComponentCounts(g, c)
+            : estimatedComponentCounts(g, c, ESTIMATOR_RANKS, 42L);
+        int[] out = new int[g.nodeCount()];
+        for (int v = 0; v < out.length; v++) out[v] = (int) Math.round(perComponent[c.component()[v]]);
+        return out;
+    }
+
+    static double[] exactComponentCounts(CsrGraph g, Condensation c) {
+        int cc = c.componentCount();
+        int words = (cc + 63) >>> 6;
+        long[] bits = new long[cc * words];
+        int[] byComp = nodesByComponent(c);
+        int[] start = componentStarts(c);
+        int[] lastSeen = new int[cc];
+        Arrays.fill(lastSeen, -1);
+        double[] out = new double[cc];
+        int[] comp = c.component();
+        int[] size = c.componentSize();
+        for (int k = 0; k < cc; k++) {
+            int base = k * words;
+            bits[base + (k >>> 6)] |= 1L << k;
+            for (int i = start[k]; i < start[k + 1]; i++) {
+                int u = byComp[i];
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int d = comp[g.target(e)];
+                    if (d == k || lastSeen[d] == k) continue;
+                    lastSeen[d] = k;
+                    int db = d * words;
+                    for (int w = 0; w < words; w++) bits[base + w] |= bits[db + w];
+                }
+            }
+            long total = 0;
+            for (int w = 0; w < words; w++) {
+                long word = bits[base + w];
+                while (word != 0) {
+                    total += size[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                }
+            }
+            out[k] = total;
+        }
+        return out;
+    }
+
+    /**
+     * Cohen's size estimator: each node draws k Exp(1) ranks, each component keeps the minimum rank
+     * over everything it reaches, and (k - 1) / sum(min ranks) estimates the reachable count.
+     * Memory is componentCount * k doubles instead of a quadratic bitset.
+     */
+    static double[] estimatedComponentCounts(CsrGraph g, Condensation c, int k, long seed) {
+        int cc = c.componentCount();
+        double[] min = new double[cc * k];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        int[] comp = c.component();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int v = 0; v < comp.length; v++) {
+            int base = comp[v] * k;
+            for (int r = 0; r < k; r++) {
+                double rank = -Math.log(1.0 - rnd.nextDouble());
+                if (rank < min[base + r]) min[base + r] = rank;
+            }
+        }
+        int[] byComp = nodesByComponent(c);
+        int[] start = componentStarts(c);
+        double[] out = new double[cc];
+        for (int x = 0; x < cc; x++) {
+            int base = x * k;
+            for (int i = start[x]; i < start[x + 1]; i++) {
+                int u = byComp[i];
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    int d = comp[g.target(e)];
+                    if (d == x) continue;
+                    int db = d * k;
+                    for (int r = 0; r < k; r++) if (min[db + r] < min[base + r]) min[base + r] = min[db + r];
+                }
+            }
+            double sum = 0;
+            for (int r = 0; r < k; r++) sum += min[base + r];
+            out[x] = Math.max(c.componentSize()[x], (k - 1) / sum);
+        }
+        return out;
+    }
+
+    private static int[] componentStarts(Condensation c) {
+        int[] start = new int[c.componentCount() + 1];
+        for (int k = 0; k < c.componentCount(); k++) start[k + 1] = start[k] + c.componentSize()[k];
+        return start;
+    }
+
+    private static int[] nodesByComponent(Condensation c) {
+        int[] cursor = componentStarts(c);
+        int[] out = new int[c.component().length];
+        for (int v = 0; v < out.length; v++) out[cursor[c.component()[v]]++] = v;
+        return out;
+    }
+}
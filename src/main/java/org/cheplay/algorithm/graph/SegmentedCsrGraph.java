@@ -0,0 +1,370 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * CsrGraph split into segments of SEGMENT_NODES consecutive nodes, each with its own small CSR
+ * columns, so a GraphDelta can be applied copy-on-write: apply() returns a new graph that copies
+ * only the segments whose rows change and shares every other segment with this one. Nothing is
+ * modified in place, so readers of an older version keep a consistent view.
+ *
+ * Edge positions are global, as the interface requires: the segments' edges laid end to end.
+ * target() and weight() find the segment of a position through a table with the segment of every
+ * EDGE_BLOCK-th position, then step forward over the few segment bases inside that block, so the
+ * hot loops of the traversals pay an array read per edge instead of a binary search.
+ * New nodes are appended to the last segment; the id dictionary is a shared base map plus a small
+ * overlay of the nodes added since, merged into a new base once the overlay grows.
+ */
+public final class SegmentedCsrGraph implements CsrGraph {
+    static final int SEGMENT_SHIFT = 10;
+    public static final int SEGMENT_NODES = 1 << SEGMENT_SHIFT;
+    private static final int MASK = SEGMENT_NODES - 1;
+    /** Edge positions per entry of the segment lookup table (m / 256 ints per version). */
+    static final int EDGE_BLOCK_SHIFT = 8;
+
+    /** Columns of nodes [s * SEGMENT_NODES, s * SEGMENT_NODES + ids.length); offsets start at 0. */
+    private record Segment(String[] ids, int[] offsets, int[] targets, double[] weights) {
+        int edges() { return targets.length; }
+
+        long bytes() {
+            long bytes = 4L * offsets.length + 4L * targets.length + 8L * weights.length;
+            // same dictionary estimate as HeapCsrGraph
+            for (String id : ids) bytes += 8 + 48 + 16 + 40 + 2L * id.length();
+            return bytes;
+        }
+    }
+
+    private final Segment[] segments;
+    /** edgeBase[s] = global position of the first edge of segment s; edgeBase[segments.length] = m. */
+    private final int[] edgeBase;
+    /** blockSegment[b] = segment holding edge position b << EDGE_BLOCK_SHIFT. */
+    private final int[] blockSegment;
+    private final int nodeCount;
+    private final Map<String, Integer> baseIndex;
+    private final Map<String, Integer> addedIndex;
+    private final int copiedSegments;
+
+    private volatile CsrGraph reverse;
+    private volatile long fingerprint;
+
+    private SegmentedCsrGraph(Segment[] segments, int nodeCount, Map<String, Integer> baseIndex,
+                              Map<String, Integer> addedIndex, int copiedSegments) {
+        this.segments = segments;
+        this.nodeCount = nodeCount;
+        this.baseIndex = baseIndex;
+        this.addedIndex = addedIndex;
+        this.copiedSegments = copiedSegments;
+        this.edgeBase = new int[segments.length + 1];
+        for (int s = 0; s < segments.length; s++) edgeBase[s + 1] = edgeBase[s] + segments[s].edges();
+        int m = edgeBase[segments.length];
+        this.blockSegment = new int[(m >>> EDGE_BLOCK_SHIFT) + 1];
+        int s = 0;
+        for (int b = 0; b < blockSegment.length; b++) {
+            int position = b << EDGE_BLOCK_SHIFT;
+            while (s + 1 < segments.length && edgeBase[s + 1] <= position) s++;
+            blockSegment[b] = s;
+        }
+    }
+
+    /** Segmented copy of g (g itself if it already is one). */
+    public static SegmentedCsrGraph of(CsrGraph g) {
+        if (g instanceof SegmentedCsrGraph s) return s;
+        int n = g.nodeCount();
+        Segment[] segments = new Segment[(n + MASK) >>> SEGMENT_SHIFT];
+        String[] all = new String[n];
+        for (int s = 0; s < segments.length; s++) {
+            int lo = s << SEGMENT_SHIFT;
+            int size = Math.min(SEGMENT_NODES, n - lo);
+            int first = g.begin(lo), last = g.end(lo + size - 1);
+            String[] ids = new String[size];
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                ids[i] = g.id(lo + i);
+                all[lo + i] = ids[i];
+                offsets[i] = g.begin(lo + i) - first;
+            }
+            offsets[size] = last - first;
+            int[] targets = new int[last - first];
+            double[] weights = new double[last - first];
+            for (int e = first; e < last; e++) {
+                targets[e - first] = g.target(e);
+                weights[e - first] = g.weight(e);
+            }
+            segments[s] = new Segment(ids, offsets, targets, weights);
+        }
+        return new SegmentedCsrGraph(segments, n, CsrGraph.dictionary(all), Map.of(), segments.length);
+    }
+
+    /**
+     * New version of this graph with delta applied. Only the segments holding a changed row or a new
+     * node are copied; the cost is proportional to their size, not to the whole graph.
+     */
+    public SegmentedCsrGraph apply(GraphDelta delta) {
+        if (delta.isEmpty()) return this;
+        Pending pending = new Pending();
+        // source row -> target -> new weight (NaN: remove); TreeMap keeps the targets sorted
+        Map<Integer, TreeMap<Integer, Double>> rows = new HashMap<>();
+        for (GraphDelta.Op op : delta.ops()) {
+            switch (op.kind()) {
+                case NODE -> pending.indexOf(op.from(), true);
+                case PUT -> {
+                    int u = pending.indexOf(op.from(), true);
+                    int v = pending.indexOf(op.to(), true);
+                    rows.computeIfAbsent(u, k -> new TreeMap<>()).put(v, op.weight());
+                }
+                case REMOVE -> {
+                    int u = pending.indexOf(op.from(), false);
+                    int v = pending.indexOf(op.to(), false);
+                    if (u >= 0 && v >= 0) rows.computeIfAbsent(u, k -> new TreeMap<>()).put(v, Double.NaN);
+                }
+            }
+        }
+        if (rows.isEmpty() && pending.ids.isEmpty()) return this;
+
+        int total = nodeCount + pending.ids.size();
+        Segment[] next = Arrays.copyOf(segments, (total + MASK) >>> SEGMENT_SHIFT);
+        TreeSet<Integer> touched = new TreeSet<>();
+        for (int u : rows.keySet()) touched.add(u >>> SEGMENT_SHIFT);
+        for (int u = nodeCount; u < total; u++) touched.add(u >>> SEGMENT_SHIFT);
+        for (int s : touched) {
+            next[s] = rebuild(s < segments.length ? segments[s] : null, s, total, pending.ids, rows);
+        }
+
+        Map<String, Integer> base = baseIndex;
+        Map<String, Integer> added = pending.added;
+        if (added.size() > Math.max(SEGMENT_NODES, base.size() / 4)) {
+            base = new HashMap<>(base);
+            base.putAll(added);
+            added = Map.of();
+        }
+        return new SegmentedCsrGraph(next, total, base, added, touched.size());
+    }
+
+    /** Ids resolved while applying a delta; new ones get the next free index. */
+    private final class Pending {
+        final List<String> ids = new ArrayList<>();
+        Map<String, Integer> added = addedIndex;
+
+        int indexOf(String id, boolean create) {
+            Integer i = added.get(id);
+            if (i == null) i = baseIndex.get(id);
+            if (i != null) return i;
+            if (!create) return -1;
+            if (added == addedIndex) added = new HashMap<>(addedIndex);
+            int index = nodeCount + ids.size();
+            ids.add(id);
+            added.put(id, index);
+            return index;
+        }
+    }
+
+    /** Copy of segment s (null: a new segment) with its new nodes and changed rows merged in. */
+    private Segment rebuild(Segment old, int s, int total, List<String> newIds,
+                            Map<Integer, TreeMap<Integer, Double>> rows) {
+        int lo = s << SEGMENT_SHIFT;
+        int oldSize = old == null ? 0 : old.ids().length;
+        int size = Math.min(SEGMENT_NODES, total - lo);
+        String[] ids = old == null ? new String[size] : Arrays.copyOf(old.ids(), size);
+        for (int i = oldSize; i < size; i++) ids[i] = newIds.get(lo + i - nodeCount);
+
+        int capacity = old == null ? 0 : old.edges();
+        for (int i = 0; i < size; i++) {
+            TreeMap<Integer, Double> change = rows.get(lo + i);
+            if (change != null) capacity += change.size();
+        }
+        int[] offsets = new int[size + 1];
+        int[] targets = new int[capacity];
+        double[] weights = new double[capacity];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            int p = i < oldSize ? old.offsets()[i] : 0;
+            int end = i < oldSize ? old.offsets()[i + 1] : 0;
+            TreeMap<Integer, Double> change = rows.get(lo + i);
+            if (change == null) {
+                if (end == p) {
+                    offsets[i + 1] = k;
+                    continue;
+                }
+                System.arraycopy(old.targets(), p, targets, k, end - p);
+                System.arraycopy(old.weights(), p, weights, k, end - p);
+                k += end - p;
+            } else {
+                // merge the sorted old row with the sorted changes
+                Iterator<Map.Entry<Integer, Double>> it = change.entrySet().iterator();
+                Map.Entry<Integer, Double> c = it.next();
+                while (p < end || c != null) {
+                    if (c == null || (p < end && old.targets()[p] < c.getKey())) {
+                        targets[k] = old.targets()[p];
+                        weights[k++] = old.weights()[p++];
+                        continue;
+                    }
+                    if (p < end && old.targets()[p] == c.getKey()) p++;
+                    if (!c.getValue().isNaN()) {
+                        targets[k] = c.getKey();
+                        weights[k++] = c.getValue();
+                    }
+                    c = it.hasNext() ? it.next() : null;
+                }
+            }
+            offsets[i + 1] = k;
+        }
+        if (k < capacity) {
+            targets = Arrays.copyOf(targets, k);
+            weights = Arrays.copyOf(weights, k);
+        }
+        return new Segment(ids, offsets, targets, weights);
+    }
+
+    /** Number of segments; SEGMENT_NODES nodes each, the last one possibly shorter. */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    /** Segments this version did not share with the one it was derived from (all of them for of()). */
+    public int copiedSegments() {
+        return copiedSegments;
+    }
+
+    /** Segment of a valid edge position: the block's first segment, then forward past empty ones. */
+    private int segmentOfEdge(int edge) {
+        int s = blockSegment[edge >>> EDGE_BLOCK_SHIFT];
+        while (edgeBase[s + 1] <= edge) s++;
+        return s;
+    }
+
+    @Override
+    public int nodeCount() { return nodeCount; }
+
+    @Override
+    public int edgeCount() { return edgeBase[segments.length]; }
+
+    @Override
+    public int begin(int u) {
+        int s = u >>> SEGMENT_SHIFT;
+        return edgeBase[s] + segments[s].offsets()[u & MASK];
+    }
+
+    @Override
+    public int end(int u) {
+        int s = u >>> SEGMENT_SHIFT;
+        return edgeBase[s] + segments[s].offsets()[(u & MASK) + 1];
+    }
+
+    @Override
+    public int degree(int u) {
+        int[] offsets = segments[u >>> SEGMENT_SHIFT].offsets();
+        return offsets[(u & MASK) + 1] - offsets[u & MASK];
+    }
+
+    @Override
+    public int target(int edge) {
+        int s = segmentOfEdge(edge);
+        return segments[s].targets()[edge - edgeBase[s]];
+    }
+
+    @Override
+    public double weight(int edge) {
+        int s = segmentOfEdge(edge);
+        return segments[s].weights()[edge - edgeBase[s]];
+    }
+
+    /** Binary search inside the segment's own columns, no per-edge segment lookup. */
+    @Override
+    public int findEdge(int u, int v) {
+        int s = u >>> SEGMENT_SHIFT;
+        Segment seg = segments[s];
+        int lo = seg.offsets()[u & MASK], hi = seg.offsets()[(u & MASK) + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = seg.targets()[mid];
+            if (t < v) lo = mid + 1;
+            else if (t > v) hi = mid - 1;
+            else return edgeBase[s] + mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public String id(int node) {
+        return segments[node >>> SEGMENT_SHIFT].ids()[node & MASK];
+    }
+
+    @Override
+    public int indexOf(String id) {
+        if (id == null) return -1;
+        Integer i = addedIndex.get(id);
+        if (i == null) i = baseIndex.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /** Flipped graph as a HeapCsrGraph, computed once per version. */
+    @Override
+    public CsrGraph reverse() {
+        CsrGraph r = reverse;
+        if (r == null) {
+            int n = nodeCount, m = edgeCount();
+            String[] ids = new String[n];
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            for (int s = 0; s < segments.length; s++) {
+                Segment seg = segments[s];
+                int lo = s << SEGMENT_SHIFT;
+                System.arraycopy(seg.ids(), 0, ids, lo, seg.ids().length);
+                for (int i = 0; i < seg.ids().length; i++) offsets[lo + i + 1] = edgeBase[s] + seg.offsets()[i + 1];
+                System.arraycopy(seg.targets(), 0, targets, edgeBase[s], seg.edges());
+                System.arraycopy(seg.weights(), 0, weights, edgeBase[s], seg.edges());
+            }
+            r = CsrGraph.fromColumns(ids, offsets, targets, weights).reverse();
+            reverse = r;
+        }
+        return r;
+    }
+
+    /** Appending a node copies the last segment only. */
+    @Override
+    public CsrGraph withNode(String id) {
+        if (contains(id)) return this;
+        return apply(GraphDelta.builder().addNode(id).build());
+    }
+
+    @Override
+    public long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            h = CsrGraph.fingerprintOf(this);
+            fingerprint = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 4L * edgeBase.length + 4L * blockSegment.length + 8L * segments.length;
+        for (Segment seg : segments) bytes += seg.bytes();
+        return bytes;
+    }
+
+    @Override
+    public List<String> ids() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return id(index);
+            }
+
+            @Override
+            public int size() {
+                return nodeCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,185 @@
+package org.cheplay.algorithm.graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.cheplay.algorithm.divideandconquer.ParallelIndexSort;
+
+/**
+ * Drops edges from dense similarity graphs before the algorithms see them. All overlap graphs use
+ * weight = 1 / (overlap + 1), so the lightest edges are the strongest similarities and those are
+ * the ones kept. Nodes are never removed, only edges.
+ *
+ * TOP_N caps the out-degree: every node keeps its n lightest out-edges (ties go to the lower target
+ * index). On an undirected graph this can keep u->v but not v->u. SYMMETRIC_KNN is the union of
+ * both ends' choices: the pair u, v is kept in both directions if v is among the n lightest of u
+ * or u among the n lightest of v. A pair stored one way only (a directed graph such as songs_hybrid
+ * with undirected=false) gets its reverse edge with the same weight, so the result is always
+ * undirected and every node keeps at least min(n, out-degree) neighbours. WEIGHT_THRESHOLD keeps
+ * edges with weight <= threshold.
+ *
+ * Rows are independent, so they are scanned in parallel; the kept edges stay in row order and the
+ * result is wrapped with fromColumns without re-sorting.
+ */
+public final class Sparsifier {
+
+    public enum Mode { TOP_N, SYMMETRIC_KNN, WEIGHT_THRESHOLD }
+
+    /** n is used by TOP_N and SYMMETRIC_KNN, threshold by WEIGHT_THRESHOLD. */
+    public record Spec(Mode mode, int n, double threshold) {
+        public Spec {
+            if (mode == null) throw new IllegalArgumentException("sparsify mode is required");
+            if (mode != Mode.WEIGHT_THRESHOLD && n < 1) throw new IllegalArgumentException(mode + " needs n >= 1: " + n);
+            if (mode == Mode.WEIGHT_THRESHOLD && !(threshold > 0)) {
+                throw new IllegalArgumentException("WEIGHT_THRESHOLD needs a positive threshold: " + threshold);
+            }
+        }
+
+        public static Spec topN(int n) {
+            return new Spec(Mode.TOP_N, n, Double.NaN);
+        }
+
+        public static Spec symmetricKnn(int n) {
+            return new Spec(Mode.SYMMETRIC_KNN, n, Double.NaN);
+        }
+
+        public static Spec weightThreshold(double threshold) {
+            return new Spec(Mode.WEIGHT_THRESHOLD, 0, threshold);
+        }
+
+        /** "top_n:20", "symmetric_knn:10" or "weight_threshold:0.25" (case-insensitive). */
+        public static Spec parse(String text) {
+            String[] parts = text.trim().split(":", 2);
+            if (parts.length != 2) throw new IllegalArgumentException("expected mode:value, got " + text);
+            Mode mode;
+            try {
+                mode = Mode.valueOf(parts[0].trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown sparsify mode: " + parts[0]);
+            }
+            String value = parts[1].trim();
+            return mode == Mode.WEIGHT_THRESHOLD
+                ? weightThreshold(Double.parseDouble(value))
+                : new Spec(mode, Integer.parseInt(value), Double.NaN);
+        }
+
+        @Override
+        public String toString() {
+            String value = mode == Mode.WEIGHT_THRESHOLD ? String.valueOf(threshold) : String.valueOf(n);
+            return mode.name().toLowerCase() + ":" + value;
+        }
+    }
+
+    private Sparsifier() {}
+
+    /** The sparsified graph, or g itself when no edge is dropped. */
+    public static CsrGraph sparsify(CsrGraph g, Spec spec) {
+        boolean[] keep = new boolean[g.edgeCount()];
+        int n = g.nodeCount();
+        switch (spec.mode()) {
+            case WEIGHT_THRESHOLD -> IntStream.range(0, n).parallel().forEach(u -> {
+                for (int e = g.begin(u); e < g.end(u); e++) keep[e] = g.weight(e) <= spec.threshold();
+            });
+            case TOP_N -> IntStream.range(0, n).parallel().forEach(u -> markLightest(g, u, spec.n(), keep));
+            case SYMMETRIC_KNN -> {
+                IntStream.range(0, n).parallel().forEach(u -> markLightest(g, u, spec.n(), keep));
+                return symmetrize(g, keep);
+            }
+        }
+        return compact(g, keep);
+    }
+
+    /** Marks the k lightest out-edges of u; a row with at most k edges is kept whole. */
+    private static void markLightest(CsrGraph g, int u, int k, boolean[] keep) {
+        int begin = g.begin(u), end = g.end(u);
+        if (end - begin <= k) {
+            Arrays.fill(keep, begin, end, true);
+            return;
+        }
+        double[] weights = new double[end - begin];
+        for (int i = 0; i < weights.length; i++) weights[i] = g.weight(begin + i);
+        // the sort is stable and positions are sorted by target, so weight ties go to the lower target
+        int[] order = ParallelIndexSort.sortByKey(weights, weights.length);
+        for (int i = 0; i < k; i++) keep[begin + order[i]] = true;
+    }
+
+    /**
+     * Keeps u->v if it or v->u was selected; a selected edge without a reverse edge gets one. The
+     * added edges are bucketed by row in source order, which is target order within the new row, and
+     * merged into the kept edges of that row.
+     */
+    private static CsrGraph symmetrize(CsrGraph g, boolean[] selected) {
+        int n = g.nodeCount();
+        boolean[] keep = new boolean[selected.length];
+        boolean[] oneWay = new boolean[selected.length];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int back = g.findEdge(g.target(e), u);
+                keep[e] = selected[e] || (back >= 0 && selected[back]);
+                oneWay[e] = selected[e] && back < 0;
+            }
+        });
+        int[] addStart = new int[n + 1];
+        for (int e = 0; e < oneWay.length; e++) if (oneWay[e]) addStart[g.target(e) + 1]++;
+        for (int v = 0; v < n; v++) addStart[v + 1] += addStart[v];
+        if (addStart[n] == 0) return compact(g, keep);
+
+        int[] addTarget = new int[addStart[n]];
+        double[] addWeight = new double[addStart[n]];
+        int[] cursor = Arrays.copyOf(addStart, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                if (!oneWay[e]) continue;
+                int slot = cursor[g.target(e)]++;
+                addTarget[slot] = u;
+                addWeight[slot] = g.weight(e);
+            }
+        }
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int kept = addStart[u + 1] - addStart[u];
+            for (int e = g.begin(u); e < g.end(u); e++) if (keep[e]) kept++;
+            offsets[u + 1] = offsets[u] + kept;
+        }
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            int out = offsets[u], e = g.begin(u), a = addStart[u];
+            while (true) {
+                while (e < g.end(u) && !keep[e]) e++;
+                boolean hasEdge = e < g.end(u), hasAdded = a < addStart[u + 1];
+                if (!hasEdge && !hasAdded) break;
+                if (hasEdge && (!hasAdded || g.target(e) < addTarget[a])) {
+                    targets[out] = g.target(e);
+                    weights[out++] = g.weight(e++);
+                } else {
+                    targets[out] = addTarget[a];
+                    weights[out++] = addWeight[a++];
+                }
+            }
+        });
+        return CsrGraph.fromColumns(g.ids().toArray(new String[0]), offsets, targets, weights);
+    }
+
+    private static CsrGraph compact(CsrGraph g, boolean[] keep) {
+        int n = g.nodeCount();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int kept = 0;
+            for (int e = g.begin(u); e < g.end(u); e++) if (keep[e]) kept++;
+            offsets[u + 1] = offsets[u] + kept;
+        }
+        if (offsets[n] == g.edgeCount()) return g;
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            int out = offsets[u];
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                if (!keep[e]) continue;
+                targets[out] = g.target(e);
+                weights[out++] = g.weight(e);
+            }
+        });
+        return CsrGraph.fromColumns(g.ids().toArray(new String[0]), offsets, targets, weights);
+    }
+}
@@ -0,0 +1,139 @@
+package org.cheplay.algorithm.heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * d-ary min-heap over int keys in [0, capacity) with double priorities and a real decrease-key.
+ *
+ * pos[key] tracks where each key sits in the heap, so decreaseKey is a sift-up in O(log_d n)
+ * instead of the O(n) remove + add that java.util.PriorityQueue needs. Everything is primitive
+ * arrays; nothing is allocated after construction.
+ */
+public final class IndexedMinHeap {
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] priority;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be >= 2");
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.priority = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean contains(int key) { return pos[key] >= 0; }
+
+    public double priority(int key) { return priority[key]; }
+
+    public void insert(int key, double p) {
+        if (pos[key] >= 0) throw new IllegalArgumentException("key already in heap: " + key);
+        heap[size] = key;
+        pos[key] = size;
+        priority[key] = p;
+        siftUp(size++);
+    }
+
+    public void decreaseKey(int key, double p) {
+        if (pos[key] < 0) throw new IllegalArgumentException("key not in heap: " + key);
+        if (p > priority[key]) throw new IllegalArgumentException("new priority is larger");
+        priority[key] = p;
+        siftUp(pos[key]);
+    }
+
+    /** Insert the key, or lower its priority if it is already queued and p is smaller. Returns true on change. */
+    public boolean insertOrDecrease(int key, double p) {
+        if (pos[key] < 0) {
+            insert(key, p);
+            return true;
+        }
+        if (p < priority[key]) {
+            priority[key] = p;
+            siftUp(pos[key]);
+            return true;
+        }
+        return false;
+    }
+
+    public int peek() {
+        if (size == 0) throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    public double peekPriority() {
+        if (size == 0) throw new NoSuchElementException();
+        return priority[heap[0]];
+    }
+
+    public int poll() {
+        if (size == 0) throw new NoSuchElementException();
+        int top = heap[0];
+        pos[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /** Empty the heap; costs O(size), not O(capacity), so the heap can be reused across runs. */
+    public void clear() {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int key = heap[i];
+        double p = priority[key];
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            int pk = heap[parent];
+            if (priority[pk] <= p) break;
+            heap[i] = pk;
+            pos[pk] = i;
+            i = parent;
+        }
+        heap[i] = key;
+        pos[key] = i;
+    }
+
+    private void siftDown(int i) {
+        int key = heap[i];
+        double p = priority[key];
+        while (true) {
+            int first = i * arity + 1;
+            if (first >= size) break;
+            int last = Math.min(first + arity, size);
+            int best = first;
+            double bestP = priority[heap[first]];
+            for (int c = first + 1; c < last; c++) {
+                double cp = priority[heap[c]];
+                if (cp < bestP) {
+                    best = c;
+                    bestP = cp;
+                }
+            }
+            if (bestP >= p) break;
+            heap[i] = heap[best];
+            pos[heap[i]] = i;
+            i = best;
+        }
+        heap[i] = key;
+        pos[key] = i;
+    }
+}
@@ -0,0 +1,53 @@
+package org.cheplay.algorithm.mst;
+
+/**
+ * Disjoint sets over dense ints [0, n): parent links with path halving, union by size.
+ * Both operations are effectively constant time and allocate nothing.
+ */
+public final class ArrayUnionFind {
+    private final int[] parent;
+    private final int[] size;
+    private int components;
+
+    public ArrayUnionFind(int n) {
+        parent = new int[n];
+        size = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        components = n;
+    }
+
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /** Merges the sets of a and b; false if they were already one set. */
+    public boolean union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return false;
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        components--;
+        return true;
+    }
+
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    public int components() { return components; }
+
+    /** Size of the set containing x. */
+    public int sizeOf(int x) { return size[find(x)]; }
+}
@@ -0,0 +1,134 @@
+package org.cheplay.algorithm.mst;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+
+/**
+ * Parallel Borůvka minimum spanning forest.
+ *
+ * Each round scans the remaining inter-component edges in parallel and records, per component, its
+ * cheapest outgoing edge with a CAS-min (ties broken by edge position, so the choice is a strict
+ * total order and no cycle can form). The chosen edges are then merged into an ArrayUnionFind on
+ * the calling thread, component labels are refreshed and edges inside one component are dropped.
+ * Every round at least halves the number of components that still have outgoing edges, so there
+ * are O(log n) rounds. Disconnected inputs yield one tree per component.
+ */
+public class Boruvka {
+    /** Edges per leaf task when scanning for cheapest edges. */
+    static final int EDGES_PER_TASK = 4096;
+
+    /** Result keys: mst (forest edges), weight (total) and components (trees in the forest). */
+    public static Map<String, Object> minimumSpanningForest(CsrGraph g) {
+        return minimumSpanningForest(g, ForkJoinPool.commonPool());
+    }
+
+    public static Map<String, Object> minimumSpanningForest(CsrGraph g, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        EdgeList edges = EdgeList.undirected(g);
+        int[] chosen = spanningForest(edges, n, pool);
+
+        List<Kruskal.Edge> forest = new ArrayList<>(chosen.length);
+        double total = 0;
+        for (int i : chosen) {
+            double w = edges.weight(i);
+            forest.add(new Kruskal.Edge(g.id(edges.from(i)), g.id(edges.to(i)), w));
+            total += w;
+        }
+        // a forest over n nodes with k edges has n - k trees
+        return Map.of("mst", forest, "weight", total, "components", n - chosen.length);
+    }
+
+    /** Positions (in edges) of the forest edges, in the order they were added. */
+    static int[] spanningForest(EdgeList edges, int n, ForkJoinPool pool) {
+        ArrayUnionFind uf = new ArrayUnionFind(n);
+        int[] comp = new int[n];
+        for (int v = 0; v < n; v++) comp[v] = v;
+        AtomicIntegerArray best = new AtomicIntegerArray(n);
+
+        int[] live = new int[edges.size()];
+        int liveCount = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            if (edges.from(i) != edges.to(i)) live[liveCount++] = i;
+        }
+
+        int[] chosen = new int[Math.max(0, n - 1)];
+        int chosenCount = 0;
+        while (liveCount > 0) {
+            for (int v = 0; v < n; v++) best.set(v, -1);
+            CheapestTask task = new CheapestTask(edges, comp, best, live, 0, liveCount);
+            if (liveCount <= EDGES_PER_TASK) task.compute();
+            else pool.invoke(task);
+
+            int added = 0;
+            for (int c = 0; c < n; c++) {
+                int e = best.get(c);
+                // both endpoints' components may pick the same edge; union only succeeds once
+                if (e >= 0 && uf.union(edges.from(e), edges.to(e))) {
+                    chosen[chosenCount++] = e;
+                    added++;
+                }
+            }
+            if (added == 0) break;
+
+            for (int v = 0; v < n; v++) comp[v] = uf.find(v);
+            int k = 0;
+            for (int i = 0; i < liveCount; i++) {
+                int e = live[i];
+                if (comp[edges.from(e)] != comp[edges.to(e)]) live[k++] = e;
+            }
+            liveCount = k;
+        }
+        return chosenCount < chosen.length ? Arrays.copyOf(chosen, chosenCount) : chosen;
+    }
+
+    private static final class CheapestTask extends RecursiveAction {
+        private final EdgeList edges;
+        private final int[] comp;
+        private final AtomicIntegerArray best;
+        private final int[] live;
+        private final int lo, hi;
+
+        CheapestTask(EdgeList edges, int[] comp, AtomicIntegerArray best, int[] live, int lo, int hi) {
+            this.edges = edges;
+            this.comp = comp;
+            this.best = best;
+            this.live = live;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > EDGES_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new CheapestTask(edges, comp, best, live, lo, mid),
+                        new CheapestTask(edges, comp, best, live, mid, hi));
+                return;
+            }
+            for (int i = lo; i < hi; i++) {
+                int e = live[i];
+                int cu = comp[edges.from(e)], cv = comp[edges.to(e)];
+                if (cu == cv) continue;
+                offer(cu, e);
+                offer(cv, e);
+            }
+        }
+
+        private void offer(int c, int e) {
+            int cur = best.get(c);
+            while (cur < 0 || lighter(e, cur)) {
+                if (best.compareAndSet(c, cur, e)) return;
+                cur = best.get(c);
+            }
+        }
+
+        private boolean lighter(int a, int b) {
+            int cmp = Double.compare(edges.weight(a), edges.weight(b));
+            return cmp < 0 || (cmp == 0 && a < b);
+        }
+    }
+}
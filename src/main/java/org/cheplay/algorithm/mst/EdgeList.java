@@ -0,0 +1,81 @@
+package org.cheplay.algorithm.mst;
+
+import java.util.Arrays;
+
+import org.cheplay.algorithm.divideandconquer.ParallelIndexSort;
+import org.cheplay.algorithm.graph.CsrGraph;
+
+/**
+ * Undirected edges as parallel primitive columns (from, to, weight), no per-edge objects.
+ * Built from a CSR graph with each unordered pair taken once.
+ */
+public final class EdgeList {
+    private final int[] from;
+    private final int[] to;
+    private final double[] weight;
+    private final int size;
+
+    private EdgeList(int[] from, int[] to, double[] weight, int size) {
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+        this.size = size;
+    }
+
+    /**
+     * One entry per unordered pair: u->v is kept when u < v, or when u > v and v->u does not
+     * exist (an edge only stored in one direction). No string keys or hash sets involved.
+     */
+    public static EdgeList undirected(CsrGraph g) {
+        int m = g.edgeCount();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weight = new double[m];
+        int k = 0;
+        for (int u = 0; u < g.nodeCount(); u++) {
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                if (u < v || (u > v && !g.hasEdge(v, u))) {
+                    from[k] = u;
+                    to[k] = v;
+                    weight[k] = g.weight(e);
+                    k++;
+                }
+            }
+        }
+        if (k < m) {
+            from = Arrays.copyOf(from, k);
+            to = Arrays.copyOf(to, k);
+            weight = Arrays.copyOf(weight, k);
+        }
+        return new EdgeList(from, to, weight, k);
+    }
+
+    public int size() { return size; }
+
+    public int from(int i) { return from[i]; }
+
+    public int to(int i) { return to[i]; }
+
+    public double weight(int i) { return weight[i]; }
+
+    /** Edge positions in ascending weight order (stable, sorted in parallel for large lists). */
+    public int[] sortedByWeight() {
+        return ParallelIndexSort.sortByKey(weight, size);
+    }
+
+    /**
+     * Kruskal over the columns: scans edges by ascending weight and keeps the ones joining two
+     * different components. Returns the chosen edge positions (a spanning forest).
+     */
+    public int[] minimumSpanningForest(int nodeCount) {
+        ArrayUnionFind uf = new ArrayUnionFind(nodeCount);
+        int[] chosen = new int[Math.max(0, nodeCount - 1)];
+        int k = 0;
+        for (int i : sortedByWeight()) {
+            if (k == chosen.length) break;
+            if (uf.union(from[i], to[i])) chosen[k++] = i;
+        }
+        return k < chosen.length ? Arrays.copyOf(chosen, k) : chosen;
+    }
+}
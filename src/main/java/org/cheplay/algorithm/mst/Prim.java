@@ -2,26 +2,142 @@ package org.cheplay.algorithm.mst;
 
 import java.util.*;
 
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.heap.IndexedMinHeap;
+
 public class Prim {
+    /** Map entry point kept for existing callers; laid out as CSR and solved by the eager Prim below. */
     public static Map<String, Object> minimumSpanningTree(Map<String, Map<String, Double>> adj, String start) {
         if (start == null || !adj.containsKey(start)) return Map.of("mst", Collections.emptyList(), "weight", 0.0);
-        Set<String> visited = new HashSet<>();
-        PriorityQueue<Edge> pq = new PriorityQueue<>(Comparator.comparingDouble(e -> e.weight));
-        visited.add(start);
-        for (Map.Entry<String, Double> e : adj.get(start).entrySet()) pq.add(new Edge(start, e.getKey(), e.getValue()));
-        List<Edge> mst = new ArrayList<>();
-        double total = 0;
-        while (!pq.isEmpty()) {
-            Edge e = pq.poll();
-            if (visited.contains(e.to)) continue;
-            visited.add(e.to);
-            mst.add(e);
-            total += e.weight;
-            for (Map.Entry<String, Double> nb : adj.getOrDefault(e.to, Collections.emptyMap()).entrySet()) {
-                if (!visited.contains(nb.getKey())) pq.add(new Edge(e.to, nb.getKey(), nb.getValue()));
+        return minimumSpanningTree(CsrGraph.fromAdjacency(adj), start);
+    }
+
+    /**
+     * CSR version, spanning the start node's component only (same contract as the Map version).
+     * Eager Prim: one heap entry per vertex, keyed by its cheapest edge into the tree.
+     */
+    public static Map<String, Object> minimumSpanningTree(CsrGraph g, String start) {
+        int s = g.indexOf(start);
+        if (s < 0) return Map.of("mst", Collections.emptyList(), "weight", 0.0);
+        Forest f = new Forest(g.nodeCount());
+        grow(g, s, f, new double[g.nodeCount()], new IndexedMinHeap(g.nodeCount()));
+        List<Edge> mst = f.edges(g);
+        return Map.of("mst", mst, "weight", f.weight);
+    }
+
+    /**
+     * Minimum spanning forest: grows a tree from start (if present), then restarts from every
+     * still-unvisited vertex in index order, so no component is dropped.
+     */
+    public static Forest minimumSpanningForest(CsrGraph g, String start) {
+        int n = g.nodeCount();
+        Forest f = new Forest(n);
+        double[] key = new double[n];
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        int s = g.indexOf(start);
+        if (s >= 0) grow(g, s, f, key, heap);
+        for (int v = 0; v < n; v++) {
+            if (!f.contains(v)) grow(g, v, f, key, heap);
+        }
+        return f;
+    }
+
+    private static void grow(CsrGraph g, int root, Forest f, double[] key, IndexedMinHeap heap) {
+        f.components++;
+        f.parent[root] = -1;
+        key[root] = 0.0;
+        heap.insert(root, 0.0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            f.order[f.size++] = u;
+            f.inTree[u] = true;
+            if (f.parent[u] >= 0) {
+                f.parentWeight[u] = key[u];
+                f.weight += key[u];
+            }
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                if (f.inTree[v]) continue;
+                double w = g.weight(e);
+                if (!heap.contains(v) || w < key[v]) {
+                    key[v] = w;
+                    f.parent[v] = u;
+                    heap.insertOrDecrease(v, w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spanning forest as primitive arrays: parent[v] (-1 for roots and for vertices not covered),
+     * parentWeight[v] (weight of the edge to the parent) and order (vertices in the order they were
+     * added, so a parent always comes before its children).
+     */
+    public static final class Forest {
+        private final int[] parent;
+        private final double[] parentWeight;
+        private final int[] order;
+        private final boolean[] inTree;
+        private int size;
+        private double weight;
+        private int components;
+
+        Forest(int n) {
+            parent = new int[n];
+            parentWeight = new double[n];
+            order = new int[n];
+            inTree = new boolean[n];
+            Arrays.fill(parent, -1);
+        }
+
+        public int parent(int v) { return parent[v]; }
+
+        public double parentWeight(int v) { return parentWeight[v]; }
+
+        public boolean contains(int v) { return inTree[v]; }
+
+        /** Number of vertices covered. */
+        public int size() { return size; }
+
+        /** Vertex added at position i of the visit order. */
+        public int vertexAt(int i) { return order[i]; }
+
+        public double weight() { return weight; }
+
+        /** Number of trees grown. */
+        public int components() { return components; }
+
+        /** Tree edges as parent -> child Edge objects, in visit order. */
+        public List<Edge> edges(CsrGraph g) {
+            List<Edge> out = new ArrayList<>(Math.max(0, size - components));
+            for (int i = 0; i < size; i++) {
+                int v = order[i];
+                if (parent[v] >= 0) out.add(new Edge(g.id(parent[v]), g.id(v), parentWeight[v]));
+            }
+            return out;
+        }
+
+        /**
+         * Distance along tree edges from every vertex to its nearest source (+inf if its tree has
+         * no source). Two linear passes over the visit order replace a Dijkstra on the tree:
+         * children push their best distance up to the parent, then parents push it back down.
+         */
+        public double[] distancesFrom(int[] sources) {
+            double[] dist = new double[parent.length];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            for (int s : sources) {
+                if (s >= 0 && inTree[s]) dist[s] = 0.0;
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                int v = order[i], p = parent[v];
+                if (p >= 0 && dist[v] + parentWeight[v] < dist[p]) dist[p] = dist[v] + parentWeight[v];
+            }
+            for (int i = 0; i < size; i++) {
+                int v = order[i], p = parent[v];
+                if (p >= 0 && dist[p] + parentWeight[v] < dist[v]) dist[v] = dist[p] + parentWeight[v];
             }
+            return dist;
         }
-        return Map.of("mst", mst, "weight", total);
     }
 
     public static class Edge {
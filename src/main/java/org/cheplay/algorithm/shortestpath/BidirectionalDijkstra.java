@@ -0,0 +1,76 @@
+package org.cheplay.algorithm.shortestpath;
+
+import java.util.*;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.heap.IndexedMinHeap;
+
+/**
+ * Point-to-point shortest path: one Dijkstra forward from the source on g, one backward from the
+ * target on g.reverse(), always advancing the side with the smaller frontier key. It stops once
+ * topF + topB >= mu (best source-target length seen where the searches touched), which is the
+ * standard stopping rule for non-negative weights.
+ */
+public class BidirectionalDijkstra {
+
+    /** Result keys: distance (+inf if unreachable), path (source..target ids, empty if unreachable), settled. */
+    public static Map<String, Object> shortestPath(CsrGraph g, String source, String target) {
+        int s = g.indexOf(source), t = g.indexOf(target);
+        if (s < 0 || t < 0) return result(List.of(), Double.POSITIVE_INFINITY, 0);
+        if (s == t) return result(List.of(g.id(s)), 0.0, 1);
+
+        CsrGraph rev = g.reverse();
+        int n = g.nodeCount();
+        double[] distF = new double[n], distB = new double[n];
+        int[] prevF = new int[n], prevB = new int[n];
+        Arrays.fill(distF, Double.POSITIVE_INFINITY);
+        Arrays.fill(distB, Double.POSITIVE_INFINITY);
+        Arrays.fill(prevF, -1);
+        Arrays.fill(prevB, -1);
+        IndexedMinHeap heapF = new IndexedMinHeap(n), heapB = new IndexedMinHeap(n);
+        distF[s] = 0.0;
+        distB[t] = 0.0;
+        heapF.insert(s, 0.0);
+        heapB.insert(t, 0.0);
+
+        double mu = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        int settled = 0;
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            if (heapF.peekPriority() + heapB.peekPriority() >= mu) break;
+            boolean forward = heapF.peekPriority() <= heapB.peekPriority();
+            CsrGraph side = forward ? g : rev;
+            IndexedMinHeap heap = forward ? heapF : heapB;
+            double[] dist = forward ? distF : distB;
+            double[] other = forward ? distB : distF;
+            int[] prev = forward ? prevF : prevB;
+
+            int u = heap.poll();
+            settled++;
+            double du = dist[u];
+            for (int e = side.begin(u); e < side.end(u); e++) {
+                int v = side.target(e);
+                double alt = du + side.weight(e);
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    prev[v] = u;
+                    heap.insertOrDecrease(v, alt);
+                }
+                if (other[v] < Double.POSITIVE_INFINITY && dist[v] + other[v] < mu) {
+                    mu = dist[v] + other[v];
+                    meet = v;
+                }
+            }
+        }
+        if (meet < 0) return result(List.of(), Double.POSITIVE_INFINITY, settled);
+
+        LinkedList<String> path = new LinkedList<>();
+        for (int v = meet; v >= 0; v = prevF[v]) path.addFirst(g.id(v));
+        for (int v = prevB[meet]; v >= 0; v = prevB[v]) path.addLast(g.id(v));
+        return result(new ArrayList<>(path), mu, settled);
+    }
+
+    private static Map<String, Object> result(List<String> path, double distance, int settled) {
+        return Map.of("path", path, "distance", distance, "settled", settled);
+    }
+}
@@ -0,0 +1,211 @@
+package org.cheplay.algorithm.shortestpath;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+
+/**
+ * Parallel single-source shortest paths (Meyer and Sanders' delta-stepping).
+ *
+ * Tentative distances live in bucket floor(dist / delta). The lowest non-empty bucket is drained
+ * in phases: its nodes relax their light edges (w <= delta) in parallel, nodes that improve into the
+ * same bucket go into the next phase. Once the bucket stays empty, the heavy edges (w > delta) of
+ * every node it settled are relaxed in one more parallel step. Distances are doubles kept as raw
+ * bits in an AtomicLongArray and lowered with a CAS-min loop, so relaxations need no lock.
+ *
+ * The final distances equal Dijkstra's bit for bit: both are the minimum, over all paths, of the
+ * left-to-right floating point sum of the path weights. prev is rebuilt afterwards from the tight
+ * edges (dist[u] + w == dist[v]) with a BFS from the source, which also keeps zero-weight cycles
+ * out of the tree.
+ */
+public class DeltaStepping {
+    /** Frontier nodes per leaf task; smaller frontiers are relaxed on the calling thread. */
+    static final int NODES_PER_TASK = 256;
+
+    /** Same result shape as Dijkstra.dijkstra(CsrGraph, String). */
+    public static Map<String, Object> dijkstra(CsrGraph g, String source) {
+        return dijkstra(g, source, defaultDelta(g), ForkJoinPool.commonPool());
+    }
+
+    public static Map<String, Object> dijkstra(CsrGraph g, String source, double delta, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        int s = g.indexOf(source);
+        if (s >= 0) {
+            dist = distances(g, s, delta, pool);
+            tightTree(g, s, dist, prev);
+        }
+        return Dijkstra.toResult(g, dist, prev);
+    }
+
+    /** Mean edge weight: buckets then hold about one hop, which keeps phases few and frontiers wide. */
+    public static double defaultDelta(CsrGraph g) {
+        int m = g.edgeCount();
+        if (m == 0) return 1.0;
+        double sum = 0.0;
+        for (int e = 0; e < m; e++) sum += g.weight(e);
+        double mean = sum / m;
+        return mean > 0.0 && !Double.isInfinite(mean) ? mean : 1.0;
+    }
+
+    public static double[] distances(CsrGraph g, int source, double delta, ForkJoinPool pool) {
+        if (!(delta > 0.0) || Double.isInfinite(delta)) {
+            throw new IllegalArgumentException("delta must be positive and finite: " + delta);
+        }
+        int n = g.nodeCount();
+        AtomicLongArray dist = new AtomicLongArray(n);
+        long inf = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int v = 0; v < n; v++) dist.lazySet(v, inf);
+        dist.set(source, Double.doubleToRawLongBits(0.0));
+
+        TreeMap<Long, IntList> buckets = new TreeMap<>();
+        buckets.computeIfAbsent(0L, b -> new IntList()).add(source);
+        int[] phaseStamp = new int[n];
+        int[] settleStamp = new int[n];
+        int phase = 0, round = 0;
+
+        while (!buckets.isEmpty()) {
+            long current = buckets.firstKey();
+            round++;
+            IntList settled = new IntList();
+            IntList pending;
+            while ((pending = buckets.remove(current)) != null) {
+                phase++;
+                // drop stale entries (node already moved to a lower bucket) and duplicates
+                IntList frontier = new IntList();
+                for (int i = 0; i < pending.size; i++) {
+                    int v = pending.data[i];
+                    if (phaseStamp[v] == phase || bucketOf(distanceOf(dist, v), delta) != current) continue;
+                    phaseStamp[v] = phase;
+                    frontier.add(v);
+                    if (settleStamp[v] != round) {
+                        settleStamp[v] = round;
+                        settled.add(v);
+                    }
+                }
+                if (frontier.size == 0) break;
+                enqueue(buckets, relax(g, dist, frontier, delta, true, pool), dist, delta);
+            }
+            enqueue(buckets, relax(g, dist, settled, delta, false, pool), dist, delta);
+        }
+
+        double[] out = new double[n];
+        for (int v = 0; v < n; v++) out[v] = distanceOf(dist, v);
+        return out;
+    }
+
+    private static long bucketOf(double d, double delta) {
+        return (long) Math.floor(d / delta);
+    }
+
+    private static double distanceOf(AtomicLongArray dist, int v) {
+        return Double.longBitsToDouble(dist.get(v));
+    }
+
+    private static void enqueue(TreeMap<Long, IntList> buckets, IntList improved, AtomicLongArray dist, double delta) {
+        for (int i = 0; i < improved.size; i++) {
+            int v = improved.data[i];
+            buckets.computeIfAbsent(bucketOf(distanceOf(dist, v), delta), b -> new IntList()).add(v);
+        }
+    }
+
+    private static IntList relax(CsrGraph g, AtomicLongArray dist, IntList nodes, double delta, boolean light,
+                                 ForkJoinPool pool) {
+        RelaxTask task = new RelaxTask(g, dist, nodes, delta, light, 0, nodes.size);
+        return nodes.size <= NODES_PER_TASK ? task.compute() : pool.invoke(task);
+    }
+
+    private static final class RelaxTask extends RecursiveTask<IntList> {
+        private final CsrGraph g;
+        private final AtomicLongArray dist;
+        private final IntList nodes;
+        private final double delta;
+        private final boolean light;
+        private final int lo, hi;
+
+        RelaxTask(CsrGraph g, AtomicLongArray dist, IntList nodes, double delta, boolean light, int lo, int hi) {
+            this.g = g;
+            this.dist = dist;
+            this.nodes = nodes;
+            this.delta = delta;
+            this.light = light;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (hi - lo > NODES_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                RelaxTask right = new RelaxTask(g, dist, nodes, delta, light, mid, hi);
+                right.fork();
+                IntList left = new RelaxTask(g, dist, nodes, delta, light, lo, mid).compute();
+                left.addAll(right.join());
+                return left;
+            }
+            IntList improved = new IntList();
+            for (int i = lo; i < hi; i++) {
+                int u = nodes.data[i];
+                double du = distanceOf(dist, u);
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    double w = g.weight(e);
+                    if ((w <= delta) != light) continue;
+                    int v = g.target(e);
+                    double alt = du + w;
+                    long cur = dist.get(v);
+                    while (alt < Double.longBitsToDouble(cur)) {
+                        if (dist.compareAndSet(v, cur, Double.doubleToRawLongBits(alt))) {
+                            improved.add(v);
+                            break;
+                        }
+                        cur = dist.get(v);
+                    }
+                }
+            }
+            return improved;
+        }
+    }
+
+    /** prev from a BFS over tight edges only; every reachable node gets a parent on a shortest path. */
+    private static void tightTree(CsrGraph g, int source, double[] dist, int[] prev) {
+        int n = g.nodeCount();
+        boolean[] seen = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        seen[source] = true;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                if (seen[v] || dist[u] + g.weight(e) != dist[v]) continue;
+                seen[v] = true;
+                prev[v] = u;
+                queue[tail++] = v;
+            }
+        }
+    }
+
+    /** Growable int column; frontiers and improvement lists are built once and read by index. */
+    private static final class IntList {
+        int[] data = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + other.size));
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+    }
+}
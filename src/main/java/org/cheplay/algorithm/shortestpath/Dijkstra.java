@@ -1,32 +1,118 @@
 package org.cheplay.algorithm.shortestpath;
 
 import java.util.*;
+import java.util.function.IntPredicate;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.heap.IndexedMinHeap;
 
 public class Dijkstra {
+    /**
+     * Map entry point kept for existing callers; the adjacency is laid out as CSR and solved with
+     * the indexed heap below, so decrease-key no longer costs a linear PriorityQueue.remove.
+     */
     public static Map<String, Object> dijkstra(Map<String, Map<String, Double>> adj, String source) {
-        Map<String, Double> dist = new HashMap<>();
-        Map<String, String> prev = new HashMap<>();
-        for (String v : adj.keySet()) dist.put(v, Double.POSITIVE_INFINITY);
         if (source == null || !adj.containsKey(source)) {
-            return Map.of("distances", dist, "prev", prev);
+            Map<String, Double> dist = new HashMap<>();
+            for (String v : adj.keySet()) dist.put(v, Double.POSITIVE_INFINITY);
+            return Map.of("distances", dist, "prev", new HashMap<String, String>());
+        }
+        return dijkstra(CsrGraph.fromAdjacency(adj), source);
+    }
+
+    /** Same result shape as the Map version: "distances" (every node) and "prev" (reached nodes only). */
+    public static Map<String, Object> dijkstra(CsrGraph g, String source) {
+        int n = g.nodeCount();
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        int s = g.indexOf(source);
+        if (s >= 0) shortestPaths(g, new int[]{s}, dist, prev);
+        return toResult(g, dist, prev);
+    }
+
+    /** Multi-source distances: every source starts at 0. Unknown ids are ignored; unreachable nodes stay +inf. */
+    public static double[] multiSource(CsrGraph g, Collection<String> sources) {
+        double[] dist = new double[g.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        int[] src = sources == null ? new int[0] : sources.stream().mapToInt(g::indexOf).filter(i -> i >= 0).toArray();
+        if (src.length > 0) shortestPaths(g, src, dist, null);
+        return dist;
+    }
+
+    /**
+     * Bounded multi-source Dijkstra for "k closest" queries. Nodes are settled in distance order and
+     * the search stops as soon as k accepted nodes are settled (k <= 0: no limit) or the next node lies
+     * beyond maxRadius. Sources are never returned; accept filters the rest (null accepts everything).
+     * The result is already sorted by distance, so callers do not need to sort the whole graph.
+     */
+    public static List<Map.Entry<String, Double>> nearest(CsrGraph g, Collection<String> sources, int k,
+                                                          double maxRadius, IntPredicate accept) {
+        int n = g.nodeCount();
+        int limit = k <= 0 ? Integer.MAX_VALUE : k;
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        boolean[] isSource = new boolean[n];
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        if (sources != null) {
+            for (String id : sources) {
+                int s = g.indexOf(id);
+                if (s < 0 || isSource[s]) continue;
+                isSource[s] = true;
+                dist[s] = 0.0;
+                heap.insert(s, 0.0);
+            }
         }
-        dist.put(source, 0.0);
-        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingDouble(dist::get));
-        pq.add(source);
-        while (!pq.isEmpty()) {
-            String u = pq.poll();
-            for (Map.Entry<String, Double> e : adj.getOrDefault(u, Collections.emptyMap()).entrySet()) {
-                String v = e.getKey();
-                double w = e.getValue();
-                double alt = dist.get(u) + w;
-                if (alt < dist.getOrDefault(v, Double.POSITIVE_INFINITY)) {
-                    dist.put(v, alt);
-                    prev.put(v, u);
-                    pq.remove(v);
-                    pq.add(v);
+        List<Map.Entry<String, Double>> out = new ArrayList<>(Math.min(limit, 64));
+        while (!heap.isEmpty() && out.size() < limit) {
+            if (heap.peekPriority() > maxRadius) break;
+            int u = heap.poll();
+            double du = dist[u];
+            if (!isSource[u] && (accept == null || accept.test(u))) out.add(Map.entry(g.id(u), du));
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                double alt = du + g.weight(e);
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    heap.insertOrDecrease(v, alt);
                 }
             }
         }
-        return Map.of("distances", dist, "prev", prev);
+        return out;
+    }
+
+    /**
+     * Fills dist (pre-filled with +inf) and, if non-null, prev (pre-filled with -1) from the given sources.
+     */
+    public static void shortestPaths(CsrGraph g, int[] sources, double[] dist, int[] prev) {
+        IndexedMinHeap heap = new IndexedMinHeap(g.nodeCount());
+        for (int s : sources) {
+            dist[s] = 0.0;
+            heap.insertOrDecrease(s, 0.0);
+        }
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            double du = dist[u];
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                int v = g.target(e);
+                double alt = du + g.weight(e);
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    if (prev != null) prev[v] = u;
+                    heap.insertOrDecrease(v, alt);
+                }
+            }
+        }
+    }
+
+    static Map<String, Object> toResult(CsrGraph g, double[] dist, int[] prev) {
+        Map<String, Double> distances = new HashMap<>(Math.max(16, g.nodeCount() * 2));
+        Map<String, String> prevIds = new HashMap<>();
+        for (int v = 0; v < g.nodeCount(); v++) {
+            distances.put(g.id(v), dist[v]);
+            if (prev[v] >= 0) prevIds.put(g.id(v), g.id(prev[v]));
+        }
+        return Map.of("distances", distances, "prev", prevIds);
     }
 }
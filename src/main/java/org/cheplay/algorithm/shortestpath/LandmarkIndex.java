@@ -0,0 +1,167 @@
+package org.cheplay.algorithm.shortestpath;
+
+import java.util.*;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.heap.IndexedMinHeap;
+
+/**
+ * ALT preprocessing (A*, Landmarks, Triangle inequality) for repeated point-to-point queries on
+ * one graph snapshot.
+ *
+ * build() picks landmarks by farthest selection and stores d(L, v) and d(v, L) for every landmark
+ * in flat double[] columns. A query runs A* with the lower bound
+ * max_L max(d(L,t) - d(L,v), d(v,L) - d(t,L)), which is consistent, so every node is settled at
+ * most once and the search only expands the corridor between source and target.
+ */
+public final class LandmarkIndex {
+    public static final int DEFAULT_LANDMARKS = 8;
+
+    private final CsrGraph graph;
+    private final int[] landmarks;
+    /** fromLandmark[i * n + v] = d(landmarks[i], v). */
+    private final double[] fromLandmark;
+    /** toLandmark[i * n + v] = d(v, landmarks[i]). */
+    private final double[] toLandmark;
+
+    private LandmarkIndex(CsrGraph graph, int[] landmarks, double[] fromLandmark, double[] toLandmark) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    public static LandmarkIndex build(CsrGraph g) {
+        return build(g, DEFAULT_LANDMARKS);
+    }
+
+    /**
+     * Farthest selection: the first landmark is the highest-degree node, every next one is the node
+     * whose distance to the chosen set is largest. Nodes no landmark reaches count as farthest, so
+     * other components get a landmark before a component gets a second one.
+     */
+    public static LandmarkIndex build(CsrGraph g, int count) {
+        int n = g.nodeCount();
+        int k = Math.max(0, Math.min(count, n));
+        CsrGraph rev = g.reverse();
+        int[] chosen = new int[k];
+        double[] from = new double[k * n];
+        double[] to = new double[k * n];
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        boolean[] isLandmark = new boolean[n];
+
+        int next = 0;
+        for (int u = 1; u < n; u++) {
+            if (g.degree(u) > g.degree(next)) next = u;
+        }
+        double[] dist = new double[n];
+        for (int i = 0; i < k; i++) {
+            chosen[i] = next;
+            isLandmark[next] = true;
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Dijkstra.shortestPaths(g, new int[] { next }, dist, null);
+            System.arraycopy(dist, 0, from, i * n, n);
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Dijkstra.shortestPaths(rev, new int[] { next }, dist, null);
+            System.arraycopy(dist, 0, to, i * n, n);
+
+            next = -1;
+            for (int v = 0; v < n; v++) {
+                // min over both directions so one-way reachability still counts as covered
+                double d = Math.min(from[i * n + v], to[i * n + v]);
+                if (d < nearest[v]) nearest[v] = d;
+                if (!isLandmark[v] && (next < 0 || nearest[v] > nearest[next])) next = v;
+            }
+            if (next < 0) {
+                k = i + 1;
+                break;
+            }
+        }
+        if (k < chosen.length) {
+            chosen = Arrays.copyOf(chosen, k);
+            from = Arrays.copyOf(from, k * n);
+            to = Arrays.copyOf(to, k * n);
+        }
+        return new LandmarkIndex(g, chosen, from, to);
+    }
+
+    public CsrGraph graph() { return graph; }
+
+    public int landmarkCount() { return landmarks.length; }
+
+    public List<String> landmarks() {
+        List<String> out = new ArrayList<>(landmarks.length);
+        for (int l : landmarks) out.add(graph.id(l));
+        return out;
+    }
+
+    /** Heap footprint of the distance tables. */
+    public long estimatedBytes() {
+        return 8L * fromLandmark.length + 8L * toLandmark.length + 4L * landmarks.length;
+    }
+
+    /**
+     * Lower bound on d(v, t). +inf means the tables prove t is unreachable from v; terms where both
+     * distances are infinite carry no information and are skipped.
+     */
+    public double lowerBound(int v, int t) {
+        int n = graph.nodeCount();
+        double best = 0.0;
+        for (int i = 0, base = 0; i < landmarks.length; i++, base += n) {
+            double a = fromLandmark[base + t] - fromLandmark[base + v];
+            double b = toLandmark[base + v] - toLandmark[base + t];
+            if (a > best) best = a;
+            if (b > best) best = b;
+        }
+        return best;
+    }
+
+    /** Same result keys as BidirectionalDijkstra: path, distance (+inf if unreachable), settled. */
+    public Map<String, Object> shortestPath(String source, String target) {
+        int s = graph.indexOf(source), t = graph.indexOf(target);
+        if (s < 0 || t < 0) return result(List.of(), Double.POSITIVE_INFINITY, 0);
+        if (s == t) return result(List.of(graph.id(s)), 0.0, 1);
+        if (lowerBound(s, t) == Double.POSITIVE_INFINITY) return result(List.of(), Double.POSITIVE_INFINITY, 0);
+
+        int n = graph.nodeCount();
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        boolean[] closed = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        dist[s] = 0.0;
+        prev[s] = -1;
+        heap.insert(s, lowerBound(s, t));
+
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            closed[u] = true;
+            settled++;
+            if (u == t) break;
+            double du = dist[u];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (closed[v]) continue;
+                double alt = du + graph.weight(e);
+                if (alt < dist[v]) {
+                    double h = lowerBound(v, t);
+                    if (h == Double.POSITIVE_INFINITY) continue;
+                    dist[v] = alt;
+                    prev[v] = u;
+                    heap.insertOrDecrease(v, alt + h);
+                }
+            }
+        }
+        if (!closed[t]) return result(List.of(), Double.POSITIVE_INFINITY, settled);
+
+        LinkedList<String> path = new LinkedList<>();
+        for (int v = t; v >= 0; v = prev[v]) path.addFirst(graph.id(v));
+        return result(new ArrayList<>(path), dist[t], settled);
+    }
+
+    private static Map<String, Object> result(List<String> path, double distance, int settled) {
+        return Map.of("path", path, "distance", distance, "settled", settled);
+    }
+}
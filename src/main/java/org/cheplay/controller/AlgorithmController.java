@@ -1,5 +1,6 @@
 package org.cheplay.controller;
 
+import org.cheplay.dto.AlgorithmBatchRequest;
 import org.cheplay.dto.AlgorithmRequest;
 import org.cheplay.dto.AlgorithmResponse;
 import org.cheplay.service.AlgorithmService;
@@ -58,6 +59,31 @@ public class AlgorithmController {
         return ResponseEntity.ok(res);
     }
 
+    @PostMapping("/boruvka")
+    public ResponseEntity<?> boruvka(@RequestBody AlgorithmRequest req) {
+        AlgorithmResponse res = new AlgorithmResponse();
+        res.algorithm = "Boruvka";
+        res.result = algorithmService.runBoruvka(req);
+        return ResponseEntity.ok(res);
+    }
+
+    @PostMapping("/closeness")
+    public ResponseEntity<?> closeness(@RequestBody AlgorithmRequest req) {
+        AlgorithmResponse res = new AlgorithmResponse();
+        res.algorithm = "Closeness";
+        res.result = algorithmService.runCloseness(req);
+        return ResponseEntity.ok(res);
+    }
+
+    /** Several graph algorithms against one graph spec, loaded once and run in parallel. */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody AlgorithmBatchRequest req) {
+        AlgorithmResponse res = new AlgorithmResponse();
+        res.algorithm = "Batch";
+        res.result = algorithmService.runBatch(req);
+        return ResponseEntity.ok(res);
+    }
+
     @PostMapping("/quicksort")
     public ResponseEntity<?> quicksort(@RequestBody AlgorithmRequest req) {
         AlgorithmResponse res = new AlgorithmResponse();
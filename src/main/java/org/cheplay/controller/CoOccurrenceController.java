@@ -0,0 +1,55 @@
+package org.cheplay.controller;
+
+import java.util.Map;
+
+import org.cheplay.neo4j.CoOccurrenceMaintenance;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Write side of the materialized CO_LISTENED / CO_WATCHED relationships.
+ * The graphs only read them when cheplay.graph.co-occurrence.source=materialized.
+ */
+@RestController
+@RequestMapping("/api/co-occurrence")
+public class CoOccurrenceController {
+
+    private final CoOccurrenceMaintenance maintenance;
+
+    public CoOccurrenceController(CoOccurrenceMaintenance maintenance) {
+        this.maintenance = maintenance;
+    }
+
+    /**
+     * Record a play and update the song pair overlaps.
+     *
+     * POST /api/co-occurrence/listen?user=alice&song=song_001
+     */
+    @PostMapping(value = "/listen", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> listen(@RequestParam("user") String user, @RequestParam("song") String song) {
+        return maintenance.recordListen(user, song);
+    }
+
+    /**
+     * Record a view and update the movie pair overlaps.
+     *
+     * POST /api/co-occurrence/watch?user=alice&movie=movie_001
+     */
+    @PostMapping(value = "/watch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> watch(@RequestParam("user") String user, @RequestParam("movie") String movie) {
+        return maintenance.recordWatch(user, movie);
+    }
+
+    /**
+     * Recompute all pair overlaps of one kind from the interaction edges.
+     *
+     * POST /api/co-occurrence/rebuild?kind=songs|movies
+     */
+    @PostMapping(value = "/rebuild", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> rebuild(@RequestParam("kind") String kind) {
+        return maintenance.rebuild(CoOccurrenceMaintenance.Kind.parse(kind));
+    }
+}
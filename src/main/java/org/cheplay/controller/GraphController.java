@@ -1,22 +1,37 @@
 package org.cheplay.controller;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.GraphDelta;
 import org.cheplay.model.graph.GraphNode;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphRegistry;
+import org.cheplay.neo4j.InvalidGraphSpecException;
 import org.cheplay.service.GraphService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @RequestMapping("/api/graph")
 public class GraphController {
     private final GraphService graphService;
+    private final DynamicGraphAdapter dynamicGraphAdapter;
+    private final GraphRegistry graphRegistry;
 
-    public GraphController(GraphService graphService) {
+    public GraphController(GraphService graphService, DynamicGraphAdapter dynamicGraphAdapter,
+                           GraphRegistry graphRegistry) {
         this.graphService = graphService;
+        this.dynamicGraphAdapter = dynamicGraphAdapter;
+        this.graphRegistry = graphRegistry;
     }
 
     @PostMapping("/clear")
@@ -59,4 +74,83 @@ public class GraphController {
 
         return ResponseEntity.ok("Sample graph created");
     }
+
+    /**
+     * Cached graph snapshots (key, size, age), least recently used first, plus hit/coalescing and
+     * snapshot file counters, the registry snapshots the recommendation services read and the
+     * before/after edge counts of the configured sparsification.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<?> cache() {
+        Map<String, Object> out = new HashMap<>();
+        out.put("entries", dynamicGraphAdapter.cache().describe());
+        out.put("totalBytes", dynamicGraphAdapter.cache().totalBytes());
+        out.put("stats", dynamicGraphAdapter.cache().stats());
+        out.put("snapshots", dynamicGraphAdapter.snapshots().stats());
+        out.put("registry", graphRegistry.stats());
+        out.put("sparsify", dynamicGraphAdapter.sparsification());
+        return ResponseEntity.ok(out);
+    }
+
+    /**
+     * Applies edge changes to every cached and registry snapshot of graphType without reloading it.
+     * Body: {"put": [{"from": "A", "to": "B", "weight": 0.5}], "remove": [{"from": "A", "to": "C"}]}
+     * Missing or blank endpoints and non-numeric or non-positive weights are answered with 400.
+     */
+    @PostMapping("/cache/delta")
+    public ResponseEntity<?> applyDelta(@RequestParam("graphType") String graphType,
+                                        @RequestBody Map<String, List<Map<String, Object>>> body) {
+        GraphDelta.Builder delta = GraphDelta.builder();
+        try {
+            for (Map<String, Object> edge : edges(body, "put")) {
+                if (!(edge.get("weight") instanceof Number weight)) {
+                    throw new InvalidGraphSpecException("put needs a numeric weight: " + edge);
+                }
+                delta.put(endpoint(edge, "from"), endpoint(edge, "to"), weight.doubleValue());
+            }
+            for (Map<String, Object> edge : edges(body, "remove")) {
+                delta.remove(endpoint(edge, "from"), endpoint(edge, "to"));
+            }
+        } catch (InvalidGraphSpecException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidGraphSpecException(e.getMessage());
+        }
+        GraphDelta built = delta.build();
+        // the registry takes over the versions built for the cache instead of copying them again
+        Map<CsrGraph, CsrGraph> applied = new IdentityHashMap<>();
+        int updated = dynamicGraphAdapter.applyDelta(graphType, key -> built, applied)
+            + graphRegistry.applyDelta(graphType, key -> built, applied);
+        return ResponseEntity.ok(Map.of("operations", built.size(), "graphsUpdated", updated));
+    }
+
+    private static List<Map<String, Object>> edges(Map<String, List<Map<String, Object>>> body, String field) {
+        List<Map<String, Object>> edges = body == null ? null : body.get(field);
+        if (edges == null) return List.of();
+        for (Map<String, Object> edge : edges) {
+            if (edge == null) throw new InvalidGraphSpecException(field + " entries must be objects");
+        }
+        return edges;
+    }
+
+    private static String endpoint(Map<String, Object> edge, String field) {
+        if (!(edge.get(field) instanceof String id) || id.isBlank()) {
+            throw new InvalidGraphSpecException("edge needs a non-blank \"" + field + "\": " + edge);
+        }
+        return id;
+    }
+
+    /** Drops cached snapshots of one graph type, or all of them when graphType is omitted. */
+    @PostMapping("/cache/invalidate")
+    public ResponseEntity<?> invalidateCache(@RequestParam(value = "graphType", required = false) String graphType) {
+        if (graphType == null || graphType.isBlank()) {
+            dynamicGraphAdapter.invalidateAll();
+            graphRegistry.refresh(null);
+            return ResponseEntity.ok("Invalidated all graph snapshots");
+        }
+        int removed = dynamicGraphAdapter.invalidate(graphType);
+        int reloading = graphRegistry.refresh(graphType);
+        return ResponseEntity.ok("Invalidated " + removed + " snapshot(s) of " + graphType
+            + ", reloading " + reloading + " registry snapshot(s)");
+    }
 }
@@ -94,6 +94,19 @@ public class MovieRecommendationController {
         return service.recommendMoviesSorted(user, k);
     }
 
+    /**
+     * Shortest similarity chain between two movies (A* with landmarks).
+     * 
+     * GET /api/movies/recommendations/path?from=m1&to=m2
+     */
+    @GetMapping(value = "/path", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> similarityPath(
+        @RequestParam("from") String from,
+        @RequestParam("to") String to
+    ) {
+        return service.similarityPath(from, to);
+    }
+
     /**
      * Debug endpoint to inspect user's watched movies data.
      * 
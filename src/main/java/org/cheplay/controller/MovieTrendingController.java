@@ -52,7 +52,7 @@ public class MovieTrendingController {
 
     /**
      * Get influential movies that drive most subsequent views.
-     * Uses BFS to track influence propagation.
+     * Influence = reachable movies, from an SCC-condensed reachability index.
      * 
      * GET /api/movies/trending/influential?k=10
      */
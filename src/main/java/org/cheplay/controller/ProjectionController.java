@@ -0,0 +1,72 @@
+package org.cheplay.controller;
+
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.dto.AlgorithmResponse;
+import org.cheplay.service.AlgorithmService;
+import org.cheplay.service.ProjectionCatalog;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Named graph projections: POST /{name} with an AlgorithmRequest spec (graphType, minScore,
+ * undirected, platforms, onlyUserId, params) loads it once, then POST /{name}/{algorithm} runs bfs,
+ * dfs, dijkstra, prim, kruskal, boruvka or closeness on it with the usual start/target/params.
+ * 404 means there is no projection of that name.
+ */
+@RestController
+@RequestMapping("/api/projections")
+public class ProjectionController {
+    private final ProjectionCatalog projectionCatalog;
+    private final AlgorithmService algorithmService;
+
+    public ProjectionController(ProjectionCatalog projectionCatalog, AlgorithmService algorithmService) {
+        this.projectionCatalog = projectionCatalog;
+        this.algorithmService = algorithmService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(projectionCatalog.list());
+    }
+
+    @PostMapping("/{name}")
+    public ResponseEntity<?> create(@PathVariable String name, @RequestBody AlgorithmRequest spec) {
+        return ResponseEntity.ok(projectionCatalog.create(name, spec));
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<?> describe(@PathVariable String name) {
+        return projectionCatalog.describe(name)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<?> drop(@PathVariable String name) {
+        return projectionCatalog.drop(name)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{name}/{algorithm}")
+    public ResponseEntity<?> run(
+        @PathVariable String name,
+        @PathVariable String algorithm,
+        @RequestBody AlgorithmRequest req
+    ) {
+        return projectionCatalog.withProjection(name, req, graph -> {
+                AlgorithmResponse res = new AlgorithmResponse();
+                res.algorithm = algorithm;
+                res.result = algorithmService.run(algorithm, graph, req);
+                return res;
+            })
+            .<ResponseEntity<?>>map(run -> ResponseEntity.ok(run.result()))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -71,6 +71,15 @@ public class RecommendationController {
     return out;
     }
 
+    /**
+     * Camino de conexión más corto entre dos usuarios por canciones en común.
+     */
+    @GetMapping(value = "/connection", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> connection(@RequestParam("from") String from,
+                                          @RequestParam("to") String to) {
+        return service.connectionPath(from, to);
+    }
+
     /**
      * Devuelve la lista de claves de usuario que el servicio usa como identificador.
      */
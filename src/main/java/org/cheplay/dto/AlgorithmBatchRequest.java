@@ -0,0 +1,26 @@
+package org.cheplay.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class AlgorithmBatchRequest {
+    // Graph spec shared by every run (graphType, minScore, undirected, platforms, onlyUserId)
+    public AlgorithmRequest graph;
+    public List<Invocation> runs;
+
+    public static class Invocation {
+        // bfs, dfs, dijkstra, prim, kruskal, boruvka or closeness
+        public String algorithm;
+        public String start;
+        public String target;
+        public Map<String, Object> params;
+
+        public AlgorithmRequest toRequest() {
+            AlgorithmRequest req = new AlgorithmRequest();
+            req.start = start;
+            req.target = target;
+            req.params = params;
+            return req;
+        }
+    }
+}
@@ -8,12 +8,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.cheplay.algorithm.graph.BipartiteCsr;
+import org.cheplay.algorithm.graph.CoOccurrence;
+import org.cheplay.algorithm.graph.CsrGraph;
 import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.cheplay.algorithm.shortestpath.LandmarkIndex;
 import org.cheplay.model.graph.GraphRelationship;
 import org.cheplay.neo4j.DbConnector;
 import org.neo4j.driver.Record;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
@@ -29,10 +37,22 @@ public class FriendRecommendationService {
 
     private final DbConnector db;
         private final FriendRecommendationMapper mapper;
+        // grafo global y su índice de landmarks, siempre juntos (landmarks.graph()); null hasta la primera consulta
+        private volatile LandmarkIndex landmarks;
+        private final Object landmarksLock = new Object();
+        // "jvm": el overlap se cuenta en memoria (CoOccurrence) en vez de con GLOBAL_CYPHER
+        private final String coOccurrenceSource;
 
         public FriendRecommendationService(DbConnector db, FriendRecommendationMapper mapper) {
+                this(db, mapper, "cypher");
+        }
+
+        @Autowired
+        public FriendRecommendationService(DbConnector db, FriendRecommendationMapper mapper,
+                        @Value("${cheplay.graph.co-occurrence.source:cypher}") String coOccurrenceSource) {
         this.db = Objects.requireNonNull(db, "DbConnector");
                 this.mapper = Objects.requireNonNull(mapper);
+                this.coOccurrenceSource = coOccurrenceSource != null ? coOccurrenceSource.trim().toLowerCase() : "cypher";
     }
 
     // Consulta global (puede usarse para construir el grafo completo)
@@ -42,6 +62,11 @@ public class FriendRecommendationService {
             "WHERE overlap > 0 " +
             "RETURN coalesce(p1.id, p1.nombre, p1.name) AS from, coalesce(p2.id, p2.nombre, p2.name) AS to, 1.0 / (overlap + 1.0) AS weight";
 
+    // Aristas usuario -> canción sin agregar; los pares se cuentan en memoria (mismos pesos que GLOBAL_CYPHER)
+    private static final String LIKES_CYPHER =
+            "MATCH (p:User)-[:LIKED_SONG]->(s:Song) " +
+            "RETURN coalesce(p.id, p.nombre, p.name) AS user, elementId(s) AS song";
+
     // Consulta parametrizada para vecinos directos de un usuario
     private static final String USER_NEIGHBORS_CYPHER =
             "MATCH (p1:User) WHERE toLower(coalesce(p1.id, p1.nombre, p1.name)) = toLower($userId) " +
@@ -56,20 +81,51 @@ public class FriendRecommendationService {
      * Retorna Map<nodo, Map<vecino, peso>> (no dirigido: ambas direcciones cargadas).
      */
     public Map<String, Map<String, Double>> buildFullAdjacencyGraph() {
-        List<GraphRelationship> edges = db.readList(GLOBAL_CYPHER, null, (Record r) ->
+        if ("jvm".equals(coOccurrenceSource)) return buildFullGraph().toAdjacency();
+        Map<String, Map<String, Double>> adj = new HashMap<>();
+        for (GraphRelationship e : loadGlobalEdges()) {
+            adj.computeIfAbsent(e.getFromId(), k -> new HashMap<>()).put(e.getToId(), e.getWeight());
+            adj.computeIfAbsent(e.getToId(), k -> new HashMap<>()).put(e.getFromId(), e.getWeight());
+        }
+        return adj;
+    }
+
+    /**
+     * Mismo grafo que buildFullAdjacencyGraph pero en formato CSR (no dirigido), para Dijkstra acotado.
+     */
+    public CsrGraph buildFullGraph() {
+        if ("jvm".equals(coOccurrenceSource)) return buildFullGraphInMemory();
+        CsrGraph.Builder builder = CsrGraph.builder();
+        for (GraphRelationship e : loadGlobalEdges()) {
+            int from = builder.addNode(e.getFromId());
+            int to = builder.addNode(e.getToId());
+            builder.addEdge(from, to, e.getWeight());
+            builder.addEdge(to, from, e.getWeight());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Variante de buildFullGraph sin self-join en Cypher: trae las aristas LIKED_SONG y calcula el
+     * overlap usuario-usuario como A·Aᵀ en paralelo (CoOccurrence.userPairs).
+     */
+    private CsrGraph buildFullGraphInMemory() {
+        BipartiteCsr.Builder likes = BipartiteCsr.builder();
+        db.forEach(LIKES_CYPHER, null, (Record r) -> {
+            if (r.get("user").isNull()) return;
+            likes.add(r.get("user").asString(), r.get("song").asString());
+        });
+        return CoOccurrence.userPairs(likes.build()).toGraph(CoOccurrence.INVERSE_OVERLAP, true);
+    }
+
+    private List<GraphRelationship> loadGlobalEdges() {
+        return db.readList(GLOBAL_CYPHER, null, (Record r) ->
                 new GraphRelationship(
                         r.get("from").asString(),
                         r.get("to").asString(),
                         r.get("weight").asDouble()
                 )
         );
-
-        Map<String, Map<String, Double>> adj = new HashMap<>();
-        for (GraphRelationship e : edges) {
-            adj.computeIfAbsent(e.getFromId(), k -> new HashMap<>()).put(e.getToId(), e.getWeight());
-            adj.computeIfAbsent(e.getToId(), k -> new HashMap<>()).put(e.getFromId(), e.getWeight());
-        }
-        return adj;
     }
 
     /**
@@ -97,21 +153,15 @@ public class FriendRecommendationService {
      */
     public List<Map<String, Object>> recommendByShortestPath(String userId, int k) {
                 if (userId == null) throw new IllegalArgumentException("userId is required");
-                Map<String, Map<String, Double>> adj = buildFullAdjacencyGraph();
+                CsrGraph graph = buildFullGraph();
 
-                // Resolve actual key in adjacency map (case-insensitive fallback)
-                String sourceKey = resolveKey(adj, userId);
+                // Resolve actual key in the graph (case-insensitive fallback)
+                String sourceKey = resolveKey(graph, userId);
                 if (sourceKey == null) return List.of();
 
-                Map<String, Object> res = Dijkstra.dijkstra(adj, sourceKey);
-                @SuppressWarnings("unchecked")
-                Map<String, Double> distances = (Map<String, Double>) res.get("distances");
-
-                List<Map.Entry<String, Double>> ranked = distances.entrySet().stream()
-                                .filter(e -> !e.getKey().equals(sourceKey) && !Double.isInfinite(e.getValue()))
-                                .sorted(Map.Entry.comparingByValue())
-                                .limit(k <= 0 ? Integer.MAX_VALUE : k)
-                                .collect(Collectors.toList());
+                // Dijkstra acotado: se detiene al asentar k usuarios, ya ordenados por distancia
+                List<Map.Entry<String, Double>> ranked =
+                                Dijkstra.nearest(graph, List.of(sourceKey), k, Double.POSITIVE_INFINITY, null);
 
                 return mapper.decorateRankedUsers(ranked, "distance");
     }
@@ -122,21 +172,72 @@ public class FriendRecommendationService {
          */
         public Map<String, Object> findClosestUser(String userId) {
                 if (userId == null) throw new IllegalArgumentException("userId is required");
-                Map<String, Map<String, Double>> adj = buildFullAdjacencyGraph();
-                String sourceKey = resolveKey(adj, userId);
+                CsrGraph graph = buildFullGraph();
+                String sourceKey = resolveKey(graph, userId);
                 if (sourceKey == null) return null;
 
-                Map<String, Object> res = Dijkstra.dijkstra(adj, sourceKey);
+                List<Map.Entry<String, Double>> best =
+                                Dijkstra.nearest(graph, List.of(sourceKey), 1, Double.POSITIVE_INFINITY, null);
+
+                if (best.isEmpty()) return null;
+                return mapper.decorateRankedUsers(best, "distance").stream().findFirst().orElse(null);
+        }
+
+        /**
+         * Camino más corto entre dos usuarios (A* con cotas ALT) sobre el grafo guardado con el índice
+         * de landmarks: las consultas no reconstruyen el grafo, refreshLandmarks() lo renueva.
+         */
+        public Map<String, Object> connectionPath(String fromUser, String toUser) {
+                if (fromUser == null || toUser == null) throw new IllegalArgumentException("from and to are required");
+                LandmarkIndex index = landmarks();
+                CsrGraph graph = index.graph();
+                String fromKey = resolveKey(graph, fromUser);
+                String toKey = resolveKey(graph, toUser);
+
+                Map<String, Object> out = new HashMap<>();
+                out.put("from", fromUser);
+                out.put("to", toUser);
+                if (fromKey == null || toKey == null) {
+                        out.put("path", List.of());
+                        out.put("distance", null);
+                        return out;
+                }
+
+                Map<String, Object> res = index.shortestPath(fromKey, toKey);
                 @SuppressWarnings("unchecked")
-                Map<String, Double> distances = (Map<String, Double>) res.get("distances");
+                List<String> path = (List<String>) res.get("path");
+                double distance = (Double) res.get("distance");
+                out.put("path", mapper.decorateUsers(path));
+                out.put("distance", Double.isInfinite(distance) ? null : distance);
+                out.put("settled", res.get("settled"));
+                return out;
+        }
 
-                Map.Entry<String, Double> best = distances.entrySet().stream()
-                                .filter(e -> !e.getKey().equals(sourceKey) && !Double.isInfinite(e.getValue()))
-                                .min(Map.Entry.comparingByValue())
-                                .orElse(null);
+        // La primera consulta construye grafo e índice; las demás los reutilizan hasta el próximo refresco
+        private LandmarkIndex landmarks() {
+                LandmarkIndex cached = landmarks;
+                if (cached != null) return cached;
+                synchronized (landmarksLock) {
+                        if (landmarks == null) landmarks = LandmarkIndex.build(buildFullGraph());
+                        return landmarks;
+                }
+        }
 
-                if (best == null) return null;
-                return mapper.decorateRankedUsers(List.of(best), "distance").stream().findFirst().orElse(null);
+        /**
+         * Tarea programada: reconstruye el grafo global y su índice y los reemplaza juntos; las consultas
+         * en curso terminan con la versión anterior. Si falla (Neo4j caído) se conserva la anterior, y
+         * si todavía nadie pidió un camino no hace nada.
+         */
+        @Scheduled(
+                fixedDelayString = "${cheplay.friends.landmarks.refresh-seconds:600}",
+                initialDelayString = "${cheplay.friends.landmarks.refresh-seconds:600}",
+                timeUnit = TimeUnit.SECONDS
+        )
+        public void refreshLandmarks() {
+                if (landmarks == null) return;
+                synchronized (landmarksLock) {
+                        landmarks = LandmarkIndex.build(buildFullGraph());
+                }
         }
 
         // Helper: try exact match, then case-insensitive match of keys in adjacency map
@@ -149,6 +250,15 @@ public class FriendRecommendationService {
                 return null;
         }
 
+        private String resolveKey(CsrGraph graph, String userId) {
+                if (graph.contains(userId)) return userId;
+                String lower = userId.toLowerCase();
+                for (String k : graph.ids()) {
+                        if (k != null && k.toLowerCase().equals(lower)) return k;
+                }
+                return null;
+        }
+
     /**
      * Lista las claves de usuario que el servicio usa como identificador (coalesce de id/nombre/name).
      * Útil para saber qué valor pasar como `userId` a las funciones de recomendación.
@@ -1,6 +1,5 @@
 package org.cheplay.model.recommendation;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -12,10 +11,16 @@ import java.util.stream.Collectors;
 
 import org.cheplay.algorithm.divideandconquer.MergeSort;
 import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
 import org.cheplay.algorithm.graph.DFS;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
 import org.cheplay.algorithm.mst.Kruskal;
+import org.cheplay.algorithm.shortestpath.LandmarkIndex;
 import org.cheplay.dto.AlgorithmRequest;
 import org.cheplay.neo4j.DbConnector;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -25,20 +30,38 @@ import org.springframework.stereotype.Service;
 @Service
 public class MovieRecommendationService {
 
-    private final org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter;
+    /** Serves the graphs from memory; refreshed in the background (see GraphRegistry). */
+    private final GraphRegistry graphs;
+    /** Per-genre graphs (genre comes from the client), through the byte-budgeted snapshot cache. */
+    private final DynamicGraphAdapter dynamicGraphAdapter;
     private final DbConnector db;
     private final MovieRecommendationMapper mapper;
+    private volatile LandmarkIndex landmarks;
+    private volatile SpanningBackbone backbone;
 
     public MovieRecommendationService(
-        org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter,
+        DynamicGraphAdapter dynamicGraphAdapter,
         DbConnector db,
         MovieRecommendationMapper mapper
     ) {
+        this(new GraphRegistry(dynamicGraphAdapter), dynamicGraphAdapter, db, mapper);
+    }
+
+    @Autowired
+    public MovieRecommendationService(
+        GraphRegistry graphs,
+        DynamicGraphAdapter dynamicGraphAdapter,
+        DbConnector db,
+        MovieRecommendationMapper mapper
+    ) {
+        this.graphs = Objects.requireNonNull(graphs);
         this.dynamicGraphAdapter = Objects.requireNonNull(dynamicGraphAdapter);
         this.db = Objects.requireNonNull(db);
         this.mapper = Objects.requireNonNull(mapper);
     }
 
+    private static final int GENRE_MAX_DEPTH = 3;
+
     /**
      * Recommend movies using BFS algorithm.
      * Explores movies layer-by-layer from user's watched movies,
@@ -66,26 +89,23 @@ public class MovieRecommendationService {
         req.graphType = "movies_by_users";
         req.undirected = true;
 
-        Map<String, Map<String, Double>> adj =
-            dynamicGraphAdapter.buildAdjacency(req);
-
         Set<String> exclude = new HashSet<>(watchedMovies);
         Map<String, Integer> candidates = new HashMap<>();
 
-        for (String seed : watchedMovies) {
-            if (!adj.containsKey(seed)) {
-                continue;
-            }
-
-            List<String> bfsOrder = BFS.bfs(adj, seed);
-
-            for (int i = 0; i < bfsOrder.size() && i < depth + 1; i++) {
-                String movieId = bfsOrder.get(i);
-                if (!exclude.contains(movieId)) {
-                    candidates.merge(movieId, depth + 1 - i, Integer::sum);
+        // One multi-source BFS from every watched movie, cut at BFS level
+        // (not list position); closer levels and more nearby seeds score higher.
+        graphs.withGraph(req, graph -> {
+            for (BFS.Hit hit : BFS.multiSource(graph, watchedMovies, depth)) {
+                if (!exclude.contains(hit.node())) {
+                    candidates.merge(
+                        hit.node(),
+                        (depth + 1 - hit.level()) * hit.seedHits(),
+                        Integer::sum
+                    );
                 }
             }
-        }
+            return null;
+        });
 
         Map<String, Double> scores = candidates.entrySet().stream()
             .collect(Collectors.toMap(
@@ -123,28 +143,29 @@ public class MovieRecommendationService {
         req.graphType = "movies_by_users";
         req.undirected = true;
 
-        Map<String, Map<String, Double>> adj =
-            dynamicGraphAdapter.buildAdjacency(req);
-
         Set<String> exclude = new HashSet<>(watchedMovies);
         Map<String, Integer> candidates = new HashMap<>();
 
-        for (String seed : watchedMovies) {
-            if (!adj.containsKey(seed)) {
-                continue;
-            }
+        graphs.withGraph(req, graph -> {
+            for (String seed : watchedMovies) {
+                if (!graph.contains(seed)) {
+                    continue;
+                }
 
-            Set<String> visited = new HashSet<>();
-            List<String> dfsOrder = new ArrayList<>();
-            DFS.dfs(seed, adj, visited, dfsOrder);
+                // Only the first depth+1 preorder positions are scored, so the
+                // traversal stops there instead of walking the whole component.
+                List<DFS.Visit> dfsOrder =
+                    DFS.bounded(graph, seed, depth, depth + 1, 0, null);
 
-            for (int i = 0; i < dfsOrder.size() && i < depth + 1; i++) {
-                String movieId = dfsOrder.get(i);
-                if (!exclude.contains(movieId)) {
-                    candidates.merge(movieId, depth + 1 - i, Integer::sum);
+                for (int i = 0; i < dfsOrder.size(); i++) {
+                    String movieId = dfsOrder.get(i).node();
+                    if (!exclude.contains(movieId)) {
+                        candidates.merge(movieId, depth + 1 - i, Integer::sum);
+                    }
                 }
             }
-        }
+            return null;
+        });
 
         Map<String, Double> scores = candidates.entrySet().stream()
             .collect(Collectors.toMap(
@@ -180,17 +201,8 @@ public class MovieRecommendationService {
         req.graphType = "movies_by_users";
         req.undirected = true;
 
-        Map<String, Map<String, Double>> adj =
-            dynamicGraphAdapter.buildAdjacency(req);
-
-        if (adj.isEmpty()) {
-            return List.of();
-        }
-
-        Map<String, Object> mstResult = Kruskal.minimumSpanningTree(adj);
-        @SuppressWarnings("unchecked")
-        List<Kruskal.Edge> mstEdges = (List<Kruskal.Edge>)
-            mstResult.getOrDefault("mst", List.of());
+        List<Kruskal.Edge> mstEdges = graphs.withGraph(req, graph ->
+            graph.nodeCount() == 0 ? List.<Kruskal.Edge>of() : diverseBackbone(graph));
 
         Set<String> exclude = new HashSet<>(watchedMovies);
         Map<String, Double> candidates = new HashMap<>();
@@ -207,6 +219,26 @@ public class MovieRecommendationService {
         return mapper.toRecommendationList(candidates, k);
     }
 
+    /**
+     * MST of the co-watch graph. It only depends on the graph, not on the
+     * user, so it is computed once per graph version (fingerprint).
+     */
+    @SuppressWarnings("unchecked")
+    private List<Kruskal.Edge> diverseBackbone(CsrGraph graph) {
+        long version = graph.fingerprint();
+        SpanningBackbone cached = backbone;
+        if (cached != null && cached.version() == version) {
+            return cached.edges();
+        }
+        List<Kruskal.Edge> edges = (List<Kruskal.Edge>)
+            Kruskal.minimumSpanningTree(graph).getOrDefault("mst", List.of());
+        SpanningBackbone fresh = new SpanningBackbone(version, List.copyOf(edges));
+        backbone = fresh;
+        return fresh.edges();
+    }
+
+    private record SpanningBackbone(long version, List<Kruskal.Edge> edges) {}
+
     /**
      * Recommend movies filtered by genre using BFS.
      * 
@@ -235,26 +267,22 @@ public class MovieRecommendationService {
         req.undirected = true;
         req.params = Map.of("genre", genre);
 
-        Map<String, Map<String, Double>> adj =
-            dynamicGraphAdapter.buildAdjacency(req);
-
         Set<String> exclude = new HashSet<>(watchedMovies);
         Map<String, Integer> candidates = new HashMap<>();
 
-        for (String seed : watchedMovies) {
-            if (!adj.containsKey(seed)) {
-                continue;
-            }
-
-            List<String> bfsOrder = BFS.bfs(adj, seed);
-
-            for (int i = 0; i < bfsOrder.size() && i < 4; i++) {
-                String movieId = bfsOrder.get(i);
-                if (!exclude.contains(movieId)) {
-                    candidates.merge(movieId, 4 - i, Integer::sum);
+        // one graph per genre: kept under the cache's byte budget, not in the registry
+        dynamicGraphAdapter.withGraph(req, graph -> {
+            for (BFS.Hit hit : BFS.multiSource(graph, watchedMovies, GENRE_MAX_DEPTH)) {
+                if (!exclude.contains(hit.node())) {
+                    candidates.merge(
+                        hit.node(),
+                        (GENRE_MAX_DEPTH + 1 - hit.level()) * hit.seedHits(),
+                        Integer::sum
+                    );
                 }
             }
-        }
+            return null;
+        });
 
         Map<String, Double> scores = candidates.entrySet().stream()
             .collect(Collectors.toMap(
@@ -311,6 +339,54 @@ public class MovieRecommendationService {
         return mapper.decorateMovieIds(topMovies);
     }
 
+    /**
+     * Shortest similarity chain between two movies on the co-watch graph.
+     * Landmark distances are computed once per graph version and reused,
+     * so each query only expands the nodes between the two movies.
+     *
+     * Algorithm: A* with ALT (landmark) lower bounds
+     */
+    public Map<String, Object> similarityPath(String fromMovie, String toMovie) {
+        if (fromMovie == null || toMovie == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = "movies_by_users";
+        req.undirected = true;
+
+        Map<String, Object> res = graphs.withGraph(req, graph ->
+            landmarkIndex(graph).shortestPath(fromMovie, toMovie));
+
+        @SuppressWarnings("unchecked")
+        List<String> path = (List<String>) res.get("path");
+        double distance = (Double) res.get("distance");
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("from", fromMovie);
+        out.put("to", toMovie);
+        out.put("path", mapper.decorateMovieIds(path));
+        out.put("distance", Double.isInfinite(distance) ? null : distance);
+        out.put("settled", res.get("settled"));
+        return out;
+    }
+
+    /**
+     * The cached index outlives the withGraph() call that built it, so an
+     * off-heap graph is kept through a view instead of the caller's reference.
+     */
+    private LandmarkIndex landmarkIndex(CsrGraph graph) {
+        LandmarkIndex cached = landmarks;
+        if (cached != null
+            && cached.graph().fingerprint() == graph.fingerprint()) {
+            return cached;
+        }
+        LandmarkIndex index = LandmarkIndex.build(
+            graph instanceof OffHeapCsrGraph offHeap ? offHeap.view() : graph);
+        landmarks = index;
+        return index;
+    }
+
     /**
      * Get list of movies user has watched.
      */
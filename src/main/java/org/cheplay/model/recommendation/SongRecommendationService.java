@@ -2,14 +2,23 @@ package org.cheplay.model.recommendation;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.mst.Prim;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
 import org.cheplay.dto.AlgorithmRequest;
 import org.cheplay.neo4j.DbConnector;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -19,18 +28,50 @@ import org.springframework.stereotype.Service;
 @Service
 public class SongRecommendationService {
 
-    private final org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter;
+    /** Default songs_hybrid graph, the only one kept in the registry. */
+    private static final GraphKey DEFAULT_SONGS_GRAPH = GraphKey.of(songsRequest(null, null));
+
+    /** Serves the graphs from memory; refreshed in the background (see GraphRegistry). */
+    private final GraphRegistry graphs;
+    /** Other window/lambda values, through the byte-budgeted snapshot cache. */
+    private final DynamicGraphAdapter dynamicGraphAdapter;
     private final DbConnector db;
     private final SongRecommendationMapper mapper;
 
-    public SongRecommendationService(org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter,
+    public SongRecommendationService(DynamicGraphAdapter dynamicGraphAdapter,
                                      DbConnector db,
                                      SongRecommendationMapper mapper) {
+        this(new GraphRegistry(dynamicGraphAdapter), dynamicGraphAdapter, db, mapper);
+    }
+
+    @Autowired
+    public SongRecommendationService(GraphRegistry graphs, DynamicGraphAdapter dynamicGraphAdapter,
+                                     DbConnector db, SongRecommendationMapper mapper) {
+        this.graphs = Objects.requireNonNull(graphs);
         this.dynamicGraphAdapter = Objects.requireNonNull(dynamicGraphAdapter);
         this.db = Objects.requireNonNull(db);
         this.mapper = Objects.requireNonNull(mapper);
     }
 
+    private static AlgorithmRequest songsRequest(Integer window, Double lambda) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = "songs_hybrid";
+        req.undirected = true;
+        req.params = Map.of("window", window != null ? window : 10, "lambda", lambda != null ? lambda : 0.5);
+        return req;
+    }
+
+    /**
+     * Runs fn on the songs_hybrid graph for req. window and lambda come from the client, so only the
+     * default graph is kept in the registry (which has no size limit); any other combination goes
+     * through DynamicGraphAdapter, whose cache evicts it under its byte budget.
+     */
+    private <T> T withSongsGraph(AlgorithmRequest req, Function<CsrGraph, T> fn) {
+        return DEFAULT_SONGS_GRAPH.equals(GraphKey.of(req))
+            ? graphs.withGraph(req, fn)
+            : dynamicGraphAdapter.withGraph(req, fn);
+    }
+
     private static final int MAX_SEED_COUNT = 15;
 
     /**
@@ -39,8 +80,6 @@ public class SongRecommendationService {
      */
     public List<Map<String, Object>> recommendForUser(String userId, int k, Integer window, Double lambda) {
         if (userId == null) throw new IllegalArgumentException("userId is required");
-        int win = window != null ? window : 10;
-        double lam = lambda != null ? lambda : 0.5;
 
         List<String> listened = getUserListenedSongs(userId);
         if (listened == null || listened.isEmpty()) return List.of();
@@ -48,68 +87,36 @@ public class SongRecommendationService {
         List<String> seeds = selectSeedSongs(userId, listened);
         if (seeds.isEmpty()) return List.of();
 
-        Set<String> exclude = new HashSet<>(listened);
-        Set<String> seedSet = new HashSet<>(seeds);
-
-        AlgorithmRequest req = new AlgorithmRequest();
-        req.graphType = "songs_hybrid";
-        req.undirected = true;
-        req.params = Map.of("window", win, "lambda", lam);
-
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
+        AlgorithmRequest req = songsRequest(window, lambda);
 
-        
-        Map<String, Double> distances = runMultiSourceDijkstra(adj, seeds);
+        List<Map.Entry<String, Double>> nearest = withSongsGraph(req, graph -> {
+            boolean[] excluded = new boolean[graph.nodeCount()];
+            for (String id : listened) {
+                int v = graph.indexOf(id);
+                if (v >= 0) excluded[v] = true;
+            }
 
-        Map<String, Double> best = new HashMap<>();
-        Map<String, Double> fallback = new HashMap<>();
-        for (Map.Entry<String, Double> e : distances.entrySet()) {
-            String node = e.getKey();
-            double d = e.getValue();
-            if (Double.isInfinite(d)) continue;
-            if (seedSet.contains(node)) continue; // never recommend exact seeds
-            fallback.put(node, d);
-            if (!exclude.contains(node)) {
-                best.put(node, d);
+            // Bounded search: stop after k unheard songs; only if none is reachable fall back to
+            // already-listened (non-seed) songs, as before. Seeds are never returned.
+            List<Map.Entry<String, Double>> found =
+                    Dijkstra.nearest(graph, seeds, k, Double.POSITIVE_INFINITY, v -> !excluded[v]);
+            if (found.isEmpty()) {
+                found = Dijkstra.nearest(graph, seeds, k, Double.POSITIVE_INFINITY, null);
             }
-        }
+            return found;
+        });
 
-        Map<String, Double> chosen = best.isEmpty() ? fallback : best;
+        Map<String, Double> chosen = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> e : nearest) chosen.put(e.getKey(), e.getValue());
         return mapper.toRecommendationList(chosen, k);
     }
-    /** Run a multi-source Dijkstra over adj starting from all sources with distance 0. */
-    private Map<String, Double> runMultiSourceDijkstra(Map<String, Map<String, Double>> adj, List<String> sources) {
-        Map<String, Double> dist = new HashMap<>();
-        for (String v : adj.keySet()) dist.put(v, Double.POSITIVE_INFINITY);
-        if (sources == null || sources.isEmpty()) return dist;
-        java.util.PriorityQueue<String> pq = new java.util.PriorityQueue<>(java.util.Comparator.comparingDouble(dist::get));
-        for (String s : sources) {
-            if (!adj.containsKey(s)) continue;
-            dist.put(s, 0.0);
-            pq.add(s);
-        }
-        while (!pq.isEmpty()) {
-            String u = pq.poll();
-            for (Map.Entry<String, Double> e : adj.getOrDefault(u, java.util.Collections.emptyMap()).entrySet()) {
-                String v = e.getKey();
-                double w = e.getValue();
-                double alt = dist.getOrDefault(u, Double.POSITIVE_INFINITY) + w;
-                if (alt < dist.getOrDefault(v, Double.POSITIVE_INFINITY)) {
-                    dist.put(v, alt);
-                    pq.remove(v);
-                    pq.add(v);
-                }
-            }
-        }
-        return dist;
-    }
 
-    /** Build adjacency map of the MST returned by Prim and run multi-source Dijkstra on the tree. */
-    @SuppressWarnings("unchecked")
+    /**
+     * Minimum spanning forest of songs_hybrid (eager Prim, rooted at the first seed) and distances
+     * along the tree to the nearest seed, read straight from the forest's parent arrays.
+     */
     public List<Map<String, Object>> recommendForUserUsingPrim(String userId, int k, Integer window, Double lambda) {
         if (userId == null) throw new IllegalArgumentException("userId is required");
-        int win = window != null ? window : 10;
-        double lam = lambda != null ? lambda : 0.5;
 
         List<String> listened = getUserListenedSongs(userId);
         if (listened == null || listened.isEmpty()) return List.of();
@@ -120,42 +127,30 @@ public class SongRecommendationService {
     Set<String> exclude = new HashSet<>(listened);
     Set<String> seedSet = new HashSet<>(seeds);
 
-        AlgorithmRequest req = new AlgorithmRequest();
-        req.graphType = "songs_hybrid";
-        req.undirected = true;
-        req.params = Map.of("window", win, "lambda", lam);
-
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-
-        String start = seeds.stream().filter(adj::containsKey).findFirst().orElse(null);
-        if (start == null) return List.of();
-        Map<String, Object> mstRes = org.cheplay.algorithm.mst.Prim.minimumSpanningTree(adj, start);
-        List<Object> edges = (List<Object>) mstRes.getOrDefault("mst", java.util.Collections.emptyList());
-        Map<String, Map<String, Double>> treeAdj = new HashMap<>();
-        for (Object o : edges) {
-            if (o == null) continue;
-            try {
-                org.cheplay.algorithm.mst.Prim.Edge e = (org.cheplay.algorithm.mst.Prim.Edge) o;
-                treeAdj.computeIfAbsent(e.from, x -> new HashMap<>()).put(e.to, e.weight);
-                treeAdj.computeIfAbsent(e.to, x -> new HashMap<>()).put(e.from, e.weight);
-            } catch (ClassCastException ex) {
-                // ignore unexpected types
-            }
-        }
+        AlgorithmRequest req = songsRequest(window, lambda);
 
-        Map<String, Double> distances = runMultiSourceDijkstra(treeAdj, seeds);
         Map<String, Double> best = new HashMap<>();
         Map<String, Double> fallback = new HashMap<>();
-        for (Map.Entry<String, Double> e : distances.entrySet()) {
-            String node = e.getKey();
-            double d = e.getValue();
-            if (Double.isInfinite(d)) continue;
-            if (seedSet.contains(node)) continue;
-            fallback.put(node, d);
-            if (!exclude.contains(node)) {
-                best.put(node, d);
+        boolean rooted = withSongsGraph(req, graph -> {
+            String start = seeds.stream().filter(graph::contains).findFirst().orElse(null);
+            if (start == null) return false;
+            Prim.Forest forest = Prim.minimumSpanningForest(graph, start);
+            int[] seedIdx = seeds.stream().mapToInt(graph::indexOf).filter(i -> i >= 0).toArray();
+            double[] dist = forest.distancesFrom(seedIdx);
+
+            for (int v = 0; v < dist.length; v++) {
+                double d = dist[v];
+                if (Double.isInfinite(d)) continue;
+                String node = graph.id(v);
+                if (seedSet.contains(node)) continue;
+                fallback.put(node, d);
+                if (!exclude.contains(node)) {
+                    best.put(node, d);
+                }
             }
-        }
+            return true;
+        });
+        if (!rooted) return List.of();
 
         Map<String, Double> chosen = best.isEmpty() ? fallback : best;
         return mapper.toRecommendationList(chosen, k);
@@ -279,11 +274,7 @@ public class SongRecommendationService {
             return row;
         }).stream().filter(Objects::nonNull).collect(Collectors.toList());
 
-        AlgorithmRequest req = new AlgorithmRequest();
-        req.graphType = "songs_hybrid";
-        req.undirected = true;
-        req.params = Map.of("window", 10, "lambda", 0.5);
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
+        Map<String, Map<String, Double>> adj = withSongsGraph(songsRequest(null, null), CsrGraph::toAdjacency);
         int nodeCount = adj.size();
         int edgeCount = adj.values().stream().mapToInt(Map::size).sum();
 
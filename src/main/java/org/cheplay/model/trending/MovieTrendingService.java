@@ -1,5 +1,6 @@
 package org.cheplay.model.trending;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -7,28 +8,38 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.cheplay.algorithm.divideandconquer.MergeSort;
-import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.Reachability;
 import org.cheplay.algorithm.greedy.GreedyExamples;
 import org.cheplay.dto.AlgorithmRequest;
 import org.cheplay.dto.MovieWatch;
 import org.cheplay.neo4j.DbConnector;
+import org.cheplay.neo4j.GraphRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
- * Service for analyzing trending movies using MergeSort, Greedy, and BFS.
+ * Service for analyzing trending movies using MergeSort, Greedy, and graph reachability.
  */
 @Service
 public class MovieTrendingService {
 
     private final DbConnector db;
-    private final org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter;
+    /** Serves movies_by_users from memory; refreshed in the background (see GraphRegistry). */
+    private final GraphRegistry graphs;
+    private volatile InfluenceRanking influenceRanking;
 
     public MovieTrendingService(
         DbConnector db,
         org.cheplay.neo4j.DynamicGraphAdapter dynamicGraphAdapter
     ) {
+        this(db, new GraphRegistry(dynamicGraphAdapter));
+    }
+
+    @Autowired
+    public MovieTrendingService(DbConnector db, GraphRegistry graphs) {
         this.db = db;
-        this.dynamicGraphAdapter = dynamicGraphAdapter;
+        this.graphs = graphs;
     }
 
     /**
@@ -172,9 +183,11 @@ public class MovieTrendingService {
 
     /**
      * Get influential movies that drive most subsequent views.
-     * Uses BFS to track influence propagation.
+     * Influence = number of movies reachable from a movie. Reachable-set
+     * sizes come from the SCC condensation of the graph (one pass instead
+     * of one BFS per movie) and the ranking is cached per graph version.
      * 
-     * Algorithm: BFS (Influence Propagation)
+     * Algorithm: SCC condensation (Tarjan) + MergeSort
      */
     public List<Map<String, Object>> trendingWithInfluence(int k) {
         if (k <= 0) {
@@ -185,18 +198,7 @@ public class MovieTrendingService {
         req.graphType = "movies_by_users";
         req.undirected = false;
 
-        Map<String, Map<String, Double>> adj =
-            dynamicGraphAdapter.buildAdjacency(req);
-
-        Map<String, Integer> influenceScores = new HashMap<>();
-
-        for (String movieId : adj.keySet()) {
-            List<String> reachable = BFS.bfs(adj, movieId);
-            influenceScores.put(movieId, reachable.size());
-        }
-
-        LinkedHashMap<String, Integer> sortedInfluence =
-            MergeSort.mergeSortByValue(influenceScores);
+        Map<String, Integer> sortedInfluence = graphs.withGraph(req, this::influenceRanking);
 
         List<String> topMovies = sortedInfluence.keySet().stream()
             .limit(k)
@@ -205,6 +207,32 @@ public class MovieTrendingService {
         return getMovieDetailsWithInfluence(topMovies, sortedInfluence);
     }
 
+    /**
+     * Influence scores sorted descending, reused while the graph content
+     * (fingerprint) does not change.
+     */
+    private Map<String, Integer> influenceRanking(CsrGraph graph) {
+        long version = graph.fingerprint();
+        InfluenceRanking cached = influenceRanking;
+        if (cached != null && cached.version() == version) {
+            return cached.ranking();
+        }
+
+        int[] reach = Reachability.reachableCounts(graph);
+        Map<String, Integer> influenceScores = new HashMap<>();
+        for (int v = 0; v < reach.length; v++) {
+            influenceScores.put(graph.id(v), reach[v]);
+        }
+
+        Map<String, Integer> ranking = Collections.unmodifiableMap(
+            MergeSort.mergeSortByValue(influenceScores)
+        );
+        influenceRanking = new InfluenceRanking(version, ranking);
+        return ranking;
+    }
+
+    private record InfluenceRanking(long version, Map<String, Integer> ranking) {}
+
     /**
      * Compare user taste with global trending.
      */
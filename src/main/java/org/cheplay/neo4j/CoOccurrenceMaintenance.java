@@ -0,0 +1,278 @@
+package org.cheplay.neo4j;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps item-item co-occurrence counts materialized in Neo4j so the songs_hybrid and
+ * movies_by_users graphs can be read as a plain edge scan instead of a per-request self-join.
+ *
+ * One relationship per unordered item pair, pointing from the item with the smaller elementId:
+ *   (a:Song)-[:CO_LISTENED {overlap}]->(b:Song)   overlap = distinct users who LISTENED to both
+ *   (a:Movie)-[:CO_WATCHED {overlap}]->(b:Movie)  overlap = distinct users who WATCHED both
+ *
+ * recordListen / recordWatch add the interaction and, only when the user-item edge is new, bump the
+ * overlap of every pair it forms with the user's other items (one write transaction). rebuild()
+ * recomputes everything from scratch in batched transactions.
+ */
+@Service
+public class CoOccurrenceMaintenance {
+    /** Rows per inner transaction for the batch rebuild. */
+    static final int BATCH_ROWS = 10_000;
+
+    public enum Kind {
+        SONGS("Song", "LISTENED", "CO_LISTENED", "coalesce(%1$s.id, %1$s.name, %1$s.title)", "songs_hybrid"),
+        MOVIES("Movie", "WATCHED", "CO_WATCHED", "coalesce(%1$s.id, %1$s.title)", "movies_by_users");
+
+        final String itemLabel;
+        final String interaction;
+        final String relationship;
+        final String itemKeyFormat;
+        final String graphType;
+
+        Kind(String itemLabel, String interaction, String relationship, String itemKeyFormat, String graphType) {
+            this.itemLabel = itemLabel;
+            this.interaction = interaction;
+            this.relationship = relationship;
+            this.itemKeyFormat = itemKeyFormat;
+            this.graphType = graphType;
+        }
+
+        public String graphType() { return graphType; }
+
+        /** Cypher expression for the id of the item bound to variable. */
+        String itemKey(String variable) {
+            return itemKeyFormat.formatted(variable);
+        }
+
+        public static Kind parse(String value) {
+            if (value == null) throw new IllegalArgumentException("kind is required (songs|movies)");
+            return switch (value.toLowerCase()) {
+                case "songs", "song", "listened", "co_listened", "songs_hybrid" -> SONGS;
+                case "movies", "movie", "watched", "co_watched", "movies_by_users" -> MOVIES;
+                default -> throw new IllegalArgumentException("unknown co-occurrence kind: " + value);
+            };
+        }
+    }
+
+    private final Driver driver;
+    private final DynamicGraphAdapter dynamicGraphAdapter;
+    private final GraphRegistry graphRegistry;
+    /** record() holds the read side, rebuild() the write side, per kind (this instance only). */
+    private final Map<Kind, ReentrantReadWriteLock> rebuildLocks = new EnumMap<>(Map.of(
+        Kind.SONGS, new ReentrantReadWriteLock(), Kind.MOVIES, new ReentrantReadWriteLock()));
+
+    public CoOccurrenceMaintenance(Driver driver, DynamicGraphAdapter dynamicGraphAdapter, GraphRegistry graphRegistry) {
+        this.driver = driver;
+        this.dynamicGraphAdapter = dynamicGraphAdapter;
+        this.graphRegistry = graphRegistry;
+    }
+
+    /** A user listened to a song (counts repeat plays on LISTENED.count). */
+    public Map<String, Object> recordListen(String userId, String songId) {
+        return record(Kind.SONGS, userId, songId);
+    }
+
+    /** A user watched a movie (counts repeat views on WATCHED.watchCount). */
+    public Map<String, Object> recordWatch(String userId, String movieId) {
+        return record(Kind.MOVIES, userId, movieId);
+    }
+
+    /**
+     * Adds or bumps the interaction edge. Pair overlaps only change when the edge is new, since
+     * overlap counts distinct users. With cheplay.graph.co-occurrence.source=materialized the
+     * changed pairs are then applied to the cached and registry graphs of that type as a GraphDelta
+     * (see DynamicGraphAdapter.applyDelta), so they stay fresh without a reload. Other sources do
+     * not read CO_LISTENED / CO_WATCHED, whose overlaps may never have been rebuilt, so their graphs
+     * are invalidated instead.
+     */
+    public Map<String, Object> record(Kind kind, String userId, String itemId) {
+        if (userId == null || userId.isBlank()) throw new IllegalArgumentException("user is required");
+        if (itemId == null || itemId.isBlank()) throw new IllegalArgumentException("item is required");
+        String upsert = upsertQuery(kind);
+        String bump = bumpQuery(kind);
+
+        Map<String, Object> params = Map.of("userId", userId, "itemId", itemId);
+        Outcome outcome;
+        Lock lock = rebuildLocks.get(kind).readLock();
+        lock.lock();
+        try (Session session = driver.session(SessionConfig.defaultConfig())) {
+            outcome = session.executeWrite(tx -> {
+                var rows = tx.run(upsert, params).list();
+                if (rows.isEmpty()) return new Outcome(false, false, List.of());
+                boolean created = rows.get(0).get("created").asBoolean();
+                List<PairOverlap> pairs = new ArrayList<>();
+                if (created) {
+                    for (Record r : tx.run(bump, params).list()) pairs.add(PairOverlap.of(r));
+                }
+                return new Outcome(true, created, pairs);
+            });
+        } finally {
+            lock.unlock();
+        }
+        List<PairOverlap> pairs = outcome.pairs();
+        int graphsUpdated = 0;
+        if (!pairs.isEmpty()) {
+            if (dynamicGraphAdapter.materialized()) {
+                graphsUpdated += dynamicGraphAdapter.applyDelta(kind.graphType, key -> delta(kind, key, pairs));
+                graphsUpdated += graphRegistry.applyDelta(kind.graphType, key -> delta(kind, key, pairs));
+            } else {
+                // the graphs count overlaps themselves; c.overlap is only exact after a rebuild()
+                dynamicGraphAdapter.invalidate(kind.graphType);
+                graphRegistry.refresh(kind.graphType);
+            }
+        }
+        return Map.of(
+            "found", outcome.found(),
+            "created", outcome.created(),
+            "pairsUpdated", (long) pairs.size(),
+            "graphsUpdated", graphsUpdated
+        );
+    }
+
+    /** Adds the interaction edge or bumps its counter; returns whether it was created. */
+    static String upsertQuery(Kind kind) {
+        String counter = kind == Kind.MOVIES ? "watchCount" : "count";
+        return """
+            MATCH (u:User) WHERE coalesce(u.id, u.nombre, u.name) = $userId
+            MATCH (i:%s) WHERE %s = $itemId
+            WITH u, i LIMIT 1
+            MERGE (u)-[r:%s]->(i)
+            ON CREATE SET r.justCreated = true
+            WITH r, coalesce(r.justCreated, false) AS created
+            REMOVE r.justCreated
+            SET r.%s = coalesce(r.%s, 0) + 1
+            RETURN created
+            """.formatted(kind.itemLabel, kind.itemKey("i"), kind.interaction, counter, counter);
+    }
+
+    /**
+     * Bumps the overlap of every pair the new interaction forms and returns the pairs (a = smaller
+     * elementId, as stored) with the internal ids and years the graph weights need.
+     */
+    static String bumpQuery(Kind kind) {
+        return """
+            MATCH (u:User) WHERE coalesce(u.id, u.nombre, u.name) = $userId
+            MATCH (i:%s) WHERE %s = $itemId
+            WITH u, i LIMIT 1
+            MATCH (u)-[:%s]->(o:%s)
+            WHERE o <> i
+            WITH CASE WHEN elementId(i) < elementId(o) THEN i ELSE o END AS a,
+                 CASE WHEN elementId(i) < elementId(o) THEN o ELSE i END AS b
+            MERGE (a)-[c:%s]->(b)
+            ON CREATE SET c.overlap = 1
+            ON MATCH SET c.overlap = c.overlap + 1
+            RETURN %s AS a, %s AS b, c.overlap AS overlap,
+                   id(a) AS ordA, id(b) AS ordB, toFloat(a.year) AS yearA, toFloat(b.year) AS yearB
+            """.formatted(kind.itemLabel, kind.itemKey("i"), kind.interaction, kind.itemLabel, kind.relationship,
+                kind.itemKey("a"), kind.itemKey("b"));
+    }
+
+    static String clearQuery(Kind kind) {
+        return """
+            MATCH (:%s)-[c:%s]->(:%s)
+            CALL { WITH c DELETE c } IN TRANSACTIONS OF %d ROWS
+            """.formatted(kind.itemLabel, kind.relationship, kind.itemLabel, BATCH_ROWS);
+    }
+
+    /** One relationship per unordered pair, from the smaller elementId, like bumpQuery. */
+    static String buildQuery(Kind kind) {
+        return """
+            MATCH (a:%s)<-[:%s]-(u:User)-[:%s]->(b:%s)
+            WHERE elementId(a) < elementId(b)
+            WITH a, b, count(DISTINCT u) AS overlap
+            CALL { WITH a, b, overlap CREATE (a)-[:%s {overlap: overlap}]->(b) } IN TRANSACTIONS OF %d ROWS
+            """.formatted(kind.itemLabel, kind.interaction, kind.interaction, kind.itemLabel,
+                kind.relationship, BATCH_ROWS);
+    }
+
+    static String countQuery(Kind kind) {
+        return "MATCH (:%s)-[c:%s]->(:%s) RETURN count(c) AS pairs"
+            .formatted(kind.itemLabel, kind.relationship, kind.itemLabel);
+    }
+
+    private record Outcome(boolean found, boolean created, List<PairOverlap> pairs) {}
+
+    /** New overlap of one item pair; a is the item with the smaller elementId, as stored. */
+    record PairOverlap(String a, String b, long overlap, long ordA, long ordB, double yearA, double yearB) {
+        static PairOverlap of(Record r) {
+            return new PairOverlap(r.get("a").asString(), r.get("b").asString(), r.get("overlap").asLong(),
+                r.get("ordA").asLong(), r.get("ordB").asLong(),
+                r.get("yearA").isNull() ? Double.NaN : r.get("yearA").asDouble(),
+                r.get("yearB").isNull() ? Double.NaN : r.get("yearB").asDouble());
+        }
+    }
+
+    /**
+     * The edges the graph query would now return for these pairs, with the same weights:
+     * movies_by_users has both directions with 1 / (overlap + 1); songs_hybrid adds the year term for
+     * the key's window and lambda and points from the lower internal id (see SONGS_HYBRID_EDGES).
+     */
+    static GraphDelta delta(Kind kind, GraphKey key, List<PairOverlap> pairs) {
+        GraphDelta.Builder delta = GraphDelta.builder();
+        if (kind == Kind.MOVIES) {
+            for (PairOverlap p : pairs) {
+                double weight = 1.0 / (p.overlap() + 1.0);
+                delta.put(p.a(), p.b(), weight).put(p.b(), p.a(), weight);
+            }
+            return delta.build();
+        }
+        long win = ((Number) key.queryParams().get("window")).longValue();
+        double lam = ((Number) key.queryParams().get("lambda")).doubleValue();
+        for (PairOverlap p : pairs) {
+            boolean forward = p.ordA() < p.ordB();
+            String from = forward ? p.a() : p.b();
+            String to = forward ? p.b() : p.a();
+            double weight = DynamicGraphAdapter.songsHybridWeight(p.overlap(), p.yearA(), p.yearB(), win, lam);
+            // the loader drops non-positive weights
+            if (weight > 0) delta.put(from, to, weight);
+            else delta.remove(from, to);
+        }
+        return delta.build();
+    }
+
+    /**
+     * Full recomputation: deletes all co-occurrence relationships of this kind and recreates them
+     * from the interaction edges. Runs as auto-commit CALL ... IN TRANSACTIONS so large graphs are
+     * written in batches of BATCH_ROWS instead of one huge transaction.
+     *
+     * The clear and the build are separate commits, so the relationships are missing or partial in
+     * between. record() calls on this instance wait for the rebuild instead of bumping overlaps the
+     * build would count again; other instances are not blocked, so run rebuilds with writes paused.
+     * A materialized-mode load during the rebuild reads partial overlaps; the cache is invalidated
+     * and the registry refreshed once it is done, but a load still in flight at that point can keep
+     * its partial graph until the next refresh.
+     */
+    public Map<String, Object> rebuild(Kind kind) {
+        long started = System.nanoTime();
+        long pairs;
+        Lock lock = rebuildLocks.get(kind).writeLock();
+        lock.lock();
+        try (Session session = driver.session(SessionConfig.defaultConfig())) {
+            session.run(clearQuery(kind)).consume();
+            session.run(buildQuery(kind)).consume();
+            pairs = session.run(countQuery(kind)).single().get("pairs").asLong();
+        } finally {
+            lock.unlock();
+        }
+        dynamicGraphAdapter.invalidate(kind.graphType);
+        graphRegistry.refresh(kind.graphType);
+        return Map.of(
+            "kind", kind.name().toLowerCase(),
+            "relationship", kind.relationship,
+            "pairs", pairs,
+            "millis", (System.nanoTime() - started) / 1_000_000
+        );
+    }
+}
@@ -4,8 +4,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.neo4j.driver.AccessMode;
 import org.neo4j.driver.AuthTokens;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
@@ -16,20 +18,24 @@ import org.neo4j.driver.TransactionContext;
 
 public class DbConnector implements AutoCloseable {
     private final String uri, user, pass;
+    /** Records per fetch when streaming reads (cheplay.graph.fetch-size). */
+    private final int fetchSize;
     private Driver driver;
 
     private DbConnector(String uri, String user, String pass) {
         this.uri = Objects.requireNonNull(uri, "uri");
         this.user = Objects.requireNonNull(user, "user");
         this.pass = Objects.requireNonNull(pass, "pass");
+        this.fetchSize = DynamicGraphAdapter.DEFAULT_FETCH_SIZE;
     }
 
     // Alternate constructor for using an already-configured Driver (preferred with Spring Boot)
-    private DbConnector(Driver driver) {
+    private DbConnector(Driver driver, int fetchSize) {
         this.uri = null;
         this.user = null;
         this.pass = null;
         this.driver = Objects.requireNonNull(driver, "driver");
+        this.fetchSize = fetchSize > 0 ? fetchSize : DynamicGraphAdapter.DEFAULT_FETCH_SIZE;
     }
 
     public static DbConnector from(String uri, String user, String pass) {
@@ -37,7 +43,11 @@ public class DbConnector implements AutoCloseable {
     }
 
     public static DbConnector from(Driver driver) {
-        return new DbConnector(driver);
+        return new DbConnector(driver, DynamicGraphAdapter.DEFAULT_FETCH_SIZE);
+    }
+
+    public static DbConnector from(Driver driver, int fetchSize) {
+        return new DbConnector(driver, fetchSize);
     }
 
     // Lee de variables de entorno: NEO4J_URI / NEO4J_USER / NEO4J_PASSWORD
@@ -56,7 +66,7 @@ public class DbConnector implements AutoCloseable {
 
     public <T> T read(Function<TransactionContext, T> work) {
         ensureOpen();
-        try (Session s = driver.session(SessionConfig.defaultConfig())) {
+        try (Session s = driver.session(readConfig())) {
             return s.executeRead(work::apply);
         }
     }
@@ -68,17 +78,41 @@ public class DbConnector implements AutoCloseable {
         }
     }
 
+    /**
+     * Rows of a read query mapped one at a time as they stream in. The list is created inside the
+     * transaction function, so a retry by the driver starts from an empty list again.
+     */
     public <T> List<T> readList(String cypher, Map<String,Object> params,
                                 java.util.function.Function<org.neo4j.driver.Record, T> mapper) {
         return read(tx -> {
+            List<T> out = new ArrayList<>();
             Result res = tx.run(cypher, params == null ? Map.of() : params);
-            var rows = res.list();
-            List<T> out = new ArrayList<>(rows.size());
-            for (org.neo4j.driver.Record r : rows) out.add(mapper.apply(r));
+            while (res.hasNext()) out.add(mapper.apply(res.next()));
             return out;
         });
     }
 
+    /**
+     * Streams the rows of a read query into consumer one at a time. The driver pulls fetchSize
+     * records per round trip and only asks for more once they are consumed, so the full result
+     * is never held in memory as a list of records.
+     *
+     * Runs as a single auto-commit query, not through executeRead: the driver would retry a
+     * managed transaction on transient errors and feed the consumer the same rows twice. A failure
+     * is thrown to the caller instead, which must discard whatever the consumer collected.
+     */
+    public void forEach(String cypher, Map<String,Object> params, Consumer<org.neo4j.driver.Record> consumer) {
+        ensureOpen();
+        try (Session s = driver.session(readConfig())) {
+            Result res = s.run(cypher, params == null ? Map.of() : params);
+            while (res.hasNext()) consumer.accept(res.next());
+        }
+    }
+
+    private SessionConfig readConfig() {
+        return SessionConfig.builder().withFetchSize(fetchSize).withDefaultAccessMode(AccessMode.READ).build();
+    }
+
     private void ensureOpen() {
         if (driver == null) throw new IllegalStateException("DbConnector no está abierto. Llamá a open().");
     }
@@ -1,124 +1,656 @@
 package org.cheplay.neo4j;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
+import org.cheplay.algorithm.graph.BipartiteCsr;
+import org.cheplay.algorithm.graph.CoOccurrence;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+import org.cheplay.algorithm.graph.SegmentedCsrGraph;
+import org.cheplay.algorithm.graph.Sparsifier;
 import org.cheplay.dto.AlgorithmRequest;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DynamicGraphAdapter {
+    /** Records pulled per round trip; the driver only fetches the next batch once this one is consumed. */
+    public static final int DEFAULT_FETCH_SIZE = 2000;
+    /** Snapshot key parameter holding the Sparsifier.Spec a stored graph was built with. */
+    static final String SPARSIFY_PARAM = "sparsify";
+
     private final Driver driver;
+    private final GraphSnapshotCache cache;
+    private final int fetchSize;
+    /**
+     * How songs_hybrid / movies_by_users get their overlaps: "cypher" (self-join per load),
+     * "materialized" (read CO_LISTENED / CO_WATCHED, see CoOccurrenceMaintenance) or "jvm" (stream
+     * the interactions and count pairs in memory, see CoOccurrence).
+     */
+    private final String coOccurrenceSource;
+    /** On-disk copies of loaded graphs for warm starts; disabled unless cheplay.graph.snapshot.dir is set. */
+    private final GraphSnapshotStore snapshots;
+    private final ExecutorService refresher =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("graph-snapshot-", 0).factory());
+    private final Set<GraphKey> refreshing = ConcurrentHashMap.newKeySet();
+    /** Graphs with at least this many edges are moved off-heap (OffHeapCsrGraph); negative: never. */
+    private final long offHeapMinEdges;
+    /**
+     * Edge sparsification per graph type (lowercase), applied to every load before it is cached,
+     * e.g. cheplay.graph.sparsify=songs_hybrid=top_n:20,movies_by_users=symmetric_knn:10.
+     */
+    private final Map<String, Sparsifier.Spec> sparsify;
+    /** Edge counts before/after the last sparsification of each key. */
+    private final ConcurrentHashMap<GraphKey, Map<String, Object>> sparsifyStats = new ConcurrentHashMap<>();
 
     public DynamicGraphAdapter(Driver driver) {
+        this(driver, new GraphSnapshotCache(Duration.ofMinutes(5), 256L << 20));
+    }
+
+    @Autowired
+    public DynamicGraphAdapter(
+        Driver driver,
+        @Value("${cheplay.graph.cache.ttl-seconds:300}") long ttlSeconds,
+        @Value("${cheplay.graph.cache.max-bytes:268435456}") long maxBytes,
+        @Value("${cheplay.graph.fetch-size:" + DEFAULT_FETCH_SIZE + "}") int fetchSize,
+        @Value("${cheplay.graph.co-occurrence.source:cypher}") String coOccurrenceSource,
+        @Value("${cheplay.graph.offheap.min-edges:-1}") long offHeapMinEdges,
+        @Value("${cheplay.graph.sparsify:}") String sparsify,
+        GraphSnapshotStore snapshots
+    ) {
+        this(driver, new GraphSnapshotCache(Duration.ofSeconds(ttlSeconds), maxBytes), fetchSize, coOccurrenceSource,
+            snapshots, offHeapMinEdges, parseSparsify(sparsify));
+    }
+
+    public DynamicGraphAdapter(Driver driver, GraphSnapshotCache cache) {
+        this(driver, cache, DEFAULT_FETCH_SIZE, "cypher");
+    }
+
+    public DynamicGraphAdapter(Driver driver, GraphSnapshotCache cache, int fetchSize, String coOccurrenceSource) {
+        this(driver, cache, fetchSize, coOccurrenceSource, GraphSnapshotStore.disabled(), -1);
+    }
+
+    public DynamicGraphAdapter(Driver driver, GraphSnapshotCache cache, int fetchSize, String coOccurrenceSource,
+                               GraphSnapshotStore snapshots, long offHeapMinEdges) {
+        this(driver, cache, fetchSize, coOccurrenceSource, snapshots, offHeapMinEdges, Map.of());
+    }
+
+    public DynamicGraphAdapter(Driver driver, GraphSnapshotCache cache, int fetchSize, String coOccurrenceSource,
+                               GraphSnapshotStore snapshots, long offHeapMinEdges,
+                               Map<String, Sparsifier.Spec> sparsify) {
+        this.sparsify = new HashMap<>();
+        sparsify.forEach((type, spec) -> this.sparsify.put(type.toLowerCase(), spec));
+        this.snapshots = snapshots;
+        this.offHeapMinEdges = offHeapMinEdges;
         this.driver = driver;
+        this.cache = cache;
+        this.fetchSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        this.coOccurrenceSource = coOccurrenceSource != null ? coOccurrenceSource.trim().toLowerCase() : "cypher";
     }
 
     /**
      * Build adjacency map from Neo4j based on the request.
      * Returns Map<from, Map<to, weight>>; ensures nodes exist even if they have no outgoing edges.
+     * Converted from the cached CSR snapshot, so the map is a private copy the caller may modify.
      */
     public Map<String, Map<String, Double>> buildAdjacency(AlgorithmRequest req) {
-        String graphType = req.graphType != null ? req.graphType : "movies";
-        double minScore = req.minScore != null ? req.minScore : 0.0;
-        boolean undirected = req.undirected != null && req.undirected;
-        List<String> platforms = req.platforms != null ? req.platforms : List.of();
-        String onlyUserId = (req.onlyUserId != null && !req.onlyUserId.isBlank()) ? req.onlyUserId : null;
+        return buildGraph(req).toAdjacency();
+    }
 
-        Map<String, Map<String, Double>> adj = new HashMap<>();
-
-        try (Session session = driver.session(SessionConfig.defaultConfig())) {
-            List<org.neo4j.driver.Record> rows;
-            if ("bands".equalsIgnoreCase(graphType)) {
-                rows = runBandsQuery(session, minScore);
-            } else if ("songs_hybrid".equalsIgnoreCase(graphType)) {
-                rows = runSongsHybridQuery(session, req.params);
-            } else if ("movies_by_users".equalsIgnoreCase(graphType)) {
-                rows = runMoviesByUsersQuery(session);
-            } else if ("movies_rated".equalsIgnoreCase(graphType)) {
-                rows = runMoviesRatedQuery(session);
-            } else if ("movies_genre".equalsIgnoreCase(graphType)) {
-                String genre = req.params != null ? 
-                    (String) req.params.get("genre") : null;
-                rows = runMoviesGenreQuery(session, genre);
-            } else {
-                rows = runMoviesQuery(session, minScore, platforms, onlyUserId);
+    /**
+     * Same graph as buildAdjacency, as an immutable CSR snapshot. Snapshots are cached per GraphKey
+     * (TTL + memory budget, see GraphSnapshotCache) and shared between callers; the start node, if
+     * missing, is added on a cheap copy so it never leaks into the cached snapshot.
+     *
+     * An off-heap graph is returned as a view that keeps its memory alive until the view is garbage
+     * collected; withGraph() releases it deterministically instead.
+     */
+    public CsrGraph buildGraph(AlgorithmRequest req) {
+        CsrGraph graph = acquire(req);
+        try {
+            CsrGraph out = graph instanceof OffHeapCsrGraph offHeap ? offHeap.view() : graph;
+            return withStart(out, req);
+        } finally {
+            graph.release();
+        }
+    }
+
+    /**
+     * Runs fn on the graph for req while holding a reference to it, so an off-heap graph that is
+     * evicted meanwhile is only freed once fn returns. fn must not keep the graph afterwards.
+     */
+    public <T> T withGraph(AlgorithmRequest req, Function<CsrGraph, T> fn) {
+        CsrGraph graph = acquire(req);
+        try {
+            return fn.apply(withStart(graph, req));
+        } finally {
+            graph.release();
+        }
+    }
+
+    /**
+     * Loads the graph for req straight from Neo4j, bypassing the cache and the snapshot files, for
+     * holders that manage their own copies (ProjectionCatalog). The caller owns the returned reference.
+     */
+    public CsrGraph loadFresh(AlgorithmRequest req) {
+        return load(req);
+    }
+
+    /**
+     * The cached graph for req with a reference for the caller, who must release() it. A miss loads
+     * from Neo4j, as for buildGraph(); the snapshot file only answers if that load fails. The start
+     * node is not added. Used by GraphRegistry for first loads, so both hold the same graph.
+     */
+    public CsrGraph acquire(AlgorithmRequest req) {
+        GraphKey key = GraphKey.of(req);
+        return cache.acquire(key, () -> loadOrRestore(key, req));
+    }
+
+    /**
+     * Loads req from Neo4j, replaces the cached graph and the snapshot file with it and returns it
+     * with a reference for the caller. Used by GraphRegistry refreshes, so the cache and the files
+     * follow the registry instead of keeping an older copy of their own. If graphType was invalidated
+     * or had a delta applied during the load, the cache and the files are left alone.
+     */
+    public CsrGraph reload(AlgorithmRequest req) {
+        GraphKey key = GraphKey.of(req);
+        long generation = cache.generation(key);
+        CsrGraph graph = load(req);
+        graph.tryRetain();
+        if (!cache.put(key, graph, generation)) graph.release();
+        if (snapshots.enabled()) writeInBackground(key, graph, generation);
+        return graph;
+    }
+
+    private static CsrGraph withStart(CsrGraph graph, AlgorithmRequest req) {
+        if (req.start != null && !req.start.isBlank()) {
+            return graph.withNode(req.start);
+        }
+        return graph;
+    }
+
+    /**
+     * Drops cached snapshots of one graph type, e.g. after its source data changed. The cache goes
+     * first: its generation bump stops loads and writes still in flight (see writeSnapshot) before
+     * the files are deleted.
+     */
+    public int invalidate(String graphType) {
+        int removed = cache.invalidate(graphType);
+        snapshots.delete(graphType);
+        return removed;
+    }
+
+    /**
+     * Applies a change of the source data to the cached graphs of graphType in place of a reload:
+     * deltaFor gives the delta for each cached key (weights may depend on its parameters; null or
+     * empty leaves the graph alone), mirrored for undirected keys. Each graph becomes a
+     * SegmentedCsrGraph version that shares its unchanged segments with the previous one, so callers
+     * still holding the old version are unaffected. Off-heap graphs are dropped instead and reload
+     * on the next request. The snapshot files of graphType are deleted, since the next startup or a
+     * failed load would otherwise restore the pre-delta file; the next load writes them again. Returns the number of
+     * graphs updated.
+     */
+    public int applyDelta(String graphType, Function<GraphKey, GraphDelta> deltaFor) {
+        return applyDelta(graphType, deltaFor, new IdentityHashMap<>());
+    }
+
+    /**
+     * Same, recording each replaced graph with its new version in applied, so GraphRegistry can take
+     * over the same version for the snapshots it shares with the cache instead of converting and
+     * copying the base a second time.
+     */
+    public int applyDelta(String graphType, Function<GraphKey, GraphDelta> deltaFor,
+                          Map<CsrGraph, CsrGraph> applied) {
+        int updated = cache.update(graphType, (key, graph) -> {
+            GraphDelta delta = deltaFor.apply(key);
+            if (delta == null || delta.isEmpty()) return graph;
+            if (graph.offHeapBytes() > 0) return null;
+            CsrGraph next = SegmentedCsrGraph.of(graph).apply(key.undirected() ? delta.mirrored() : delta);
+            applied.put(graph, next);
+            return next;
+        });
+        snapshots.delete(graphType);
+        return updated;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        snapshots.delete(null);
+    }
+
+    public GraphSnapshotStore snapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Warm start: puts every snapshot file into the cache before the first request, then reloads
+     * each one from Neo4j in the background. If the database is unreachable the restored graphs
+     * stay in place and the failure shows up in the snapshot stats.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreSnapshots() {
+        if (!snapshots.enabled()) return;
+        for (GraphSnapshotFile.Snapshot snapshot : snapshots.readAll(offHeapMinEdges)) {
+            GraphKey key = withoutSparsify(snapshot.key());
+            if (!snapshot.key().equals(snapshotKey(key))) {
+                // written under another cheplay.graph.sparsify setting
+                snapshot.graph().release();
+                snapshots.remove(snapshot.key());
+                continue;
             }
+            if (!cache.put(key, snapshot.graph())) snapshot.graph().release();
+            refreshInBackground(key);
+        }
+    }
 
-            for (org.neo4j.driver.Record r : rows) {
-                String from = r.get("from").asString();
-                String to = r.get("to").asString();
-                double weight = r.get("weight").asDouble();
+    /**
+     * Cache miss: load from Neo4j and persist. The snapshot file only stands in when the load fails,
+     * so a TTL expiry never brings back the data it expired; the fallback entry expires like any
+     * other and the next miss tries Neo4j again. Warm starts go through restoreSnapshots().
+     */
+    private CsrGraph loadOrRestore(GraphKey key, AlgorithmRequest req) {
+        long generation = cache.generation(key);
+        CsrGraph graph;
+        try {
+            graph = load(req);
+        } catch (RuntimeException e) {
+            Optional<CsrGraph> restored = snapshots.read(snapshotKey(key), offHeapMinEdges);
+            if (restored.isEmpty()) throw e;
+            snapshots.fail(e);
+            return restored.get();
+        }
+        if (snapshots.enabled()) writeInBackground(key, graph, generation);
+        return graph;
+    }
+
+    /** At most one refresh per key at a time; the fresh graph replaces the cached one and its file. */
+    private void refreshInBackground(GraphKey key) {
+        if (!refreshing.add(key)) return;
+        refresher.execute(() -> {
+            try {
+                long generation = cache.generation(key);
+                CsrGraph graph = load(key.toRequest());
+                graph.tryRetain();
+                boolean cached = false;
+                try {
+                    cached = cache.put(key, graph, generation);
+                    writeSnapshot(key, graph, generation);
+                } finally {
+                    graph.release();
+                    // too large for the cache: nobody else holds the loader's reference
+                    if (!cached) graph.release();
+                }
+            } catch (RuntimeException e) {
+                snapshots.fail(e);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    /** The write holds its own reference, so eviction cannot free the graph halfway through. */
+    private void writeInBackground(GraphKey key, CsrGraph graph, long generation) {
+        if (!graph.tryRetain()) return;
+        refresher.execute(() -> {
+            try {
+                writeSnapshot(key, graph, generation);
+            } finally {
+                graph.release();
+            }
+        });
+    }
+
+    /**
+     * Writes the file of a graph loaded at cache generation `generation`, unless graphType was
+     * invalidated or updated since. invalidate() bumps the generation before deleting the files, so
+     * a write that loses the race either lands before the delete or sees the bump and removes its
+     * own file.
+     */
+    void writeSnapshot(GraphKey key, CsrGraph graph, long generation) {
+        if (cache.generation(key) != generation) return;
+        snapshots.write(snapshotKey(key), graph);
+        if (cache.generation(key) != generation) snapshots.remove(snapshotKey(key));
+    }
 
+    /**
+     * Key a snapshot file is stored under: key plus the sparsification applied to its graph, so the
+     * file header records it and a file written under another setting is never restored.
+     */
+    GraphKey snapshotKey(GraphKey key) {
+        Sparsifier.Spec spec = sparsify.get(key.graphType());
+        if (spec == null) return key;
+        Map<String, Object> params = new HashMap<>(key.queryParams());
+        params.put(SPARSIFY_PARAM, spec.toString());
+        return new GraphKey(key.graphType(), key.undirected(), params);
+    }
+
+    private static GraphKey withoutSparsify(GraphKey key) {
+        if (!key.queryParams().containsKey(SPARSIFY_PARAM)) return key;
+        Map<String, Object> params = new HashMap<>(key.queryParams());
+        params.remove(SPARSIFY_PARAM);
+        return new GraphKey(key.graphType(), key.undirected(), params);
+    }
+
+    /**
+     * "type=mode:value,..." from cheplay.graph.sparsify, see Sparsifier.Spec.parse; blank: none.
+     */
+    static Map<String, Sparsifier.Spec> parseSparsify(String config) {
+        Map<String, Sparsifier.Spec> out = new HashMap<>();
+        if (config == null || config.isBlank()) return out;
+        for (String entry : config.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) throw new IllegalArgumentException("cheplay.graph.sparsify expects type=mode:value, got " + entry);
+            out.put(parts[0].trim().toLowerCase(), Sparsifier.Spec.parse(parts[1]));
+        }
+        return out;
+    }
+
+    /**
+     * Applies the configured sparsification of req.graphType, if any, and records the edge counts.
+     * Deltas applied later (applyDelta) are not re-sparsified; the next full load is.
+     */
+    private CsrGraph sparsify(AlgorithmRequest req, CsrGraph graph) {
+        Sparsifier.Spec spec = req.graphType == null ? null : sparsify.get(req.graphType.toLowerCase());
+        if (spec == null) return graph;
+        long started = System.nanoTime();
+        CsrGraph out = Sparsifier.sparsify(graph, spec);
+        GraphKey key = GraphKey.of(req);
+        sparsifyStats.put(key, Map.of(
+            "key", key.canonical(),
+            "spec", spec.toString(),
+            "nodes", out.nodeCount(),
+            "edgesBefore", graph.edgeCount(),
+            "edgesAfter", out.edgeCount(),
+            "millis", (System.nanoTime() - started) / 1_000_000
+        ));
+        return out;
+    }
+
+    /** Configured sparsification per graph type and the before/after edge counts of the last loads. */
+    public Map<String, Object> sparsification() {
+        Map<String, String> config = new HashMap<>();
+        sparsify.forEach((type, spec) -> config.put(type, spec.toString()));
+        Map<String, Object> out = new HashMap<>();
+        out.put("config", config);
+        out.put("entries", List.copyOf(sparsifyStats.values()));
+        return out;
+    }
+
+    /**
+     * loadGraph and its sparsification, then moved off-heap when it is large enough; the heap copy
+     * is dropped right away. The query runs on the key's normalized request, never on the raw one,
+     * so the graph is always the one its GraphKey describes.
+     */
+    private CsrGraph load(AlgorithmRequest req) {
+        AlgorithmRequest spec = GraphKey.of(req).toRequest();
+        CsrGraph graph = sparsify(spec, loadGraph(spec));
+        if (offHeapMinEdges >= 0 && graph.edgeCount() >= offHeapMinEdges) {
+            return OffHeapCsrGraph.copyOf(graph);
+        }
+        return graph;
+    }
+
+    public GraphSnapshotCache cache() {
+        return cache;
+    }
+
+    /**
+     * Runs the graph query and streams the rows straight into the CSR builder: records are pulled
+     * fetchSize at a time and dropped once consumed, so no list of records is ever held and peak
+     * memory is about the builder's columns.
+     */
+    private CsrGraph loadGraph(AlgorithmRequest req) {
+        boolean undirected = req.undirected != null && req.undirected;
+        if ("jvm".equals(coOccurrenceSource)) {
+            if ("songs_hybrid".equalsIgnoreCase(req.graphType)) return loadSongsHybridInMemory(req.params, undirected);
+            if ("movies_by_users".equalsIgnoreCase(req.graphType)) return loadMoviesByUsersInMemory();
+        }
+        CsrGraph.Builder builder = CsrGraph.builder();
+
+        try (Session session = driver.session(SessionConfig.builder().withFetchSize(fetchSize).build())) {
+            Result result = runQuery(session, req);
+            while (result.hasNext()) {
+                org.neo4j.driver.Record r = result.next();
+                double weight = r.get("weight").asDouble();
                 // ensure positive weights
                 if (weight <= 0) continue;
 
-                adj.computeIfAbsent(from, k -> new HashMap<>());
-                adj.computeIfAbsent(to, k -> new HashMap<>());
-                adj.get(from).put(to, Math.min(adj.get(from).getOrDefault(to, Double.POSITIVE_INFINITY), weight));
-                if (undirected) {
-                    adj.get(to).put(from, Math.min(adj.get(to).getOrDefault(from, Double.POSITIVE_INFINITY), weight));
-                }
+                int from = builder.addNode(r.get("from").asString());
+                int to = builder.addNode(r.get("to").asString());
+                builder.addEdge(from, to, weight);
+                if (undirected) builder.addEdge(to, from, weight);
             }
         }
+        return builder.build();
+    }
 
-        // Also ensure the start node exists even if not present in query results
-        if (req.start != null && !req.start.isBlank()) {
-            adj.computeIfAbsent(req.start, k -> new HashMap<>());
+    /**
+     * songs_hybrid from the LISTENED edges: overlaps come from CoOccurrence, the year term is added
+     * per pair. Edges point from the song with the lower internal id, as in runSongsHybridQuery.
+     */
+    private CsrGraph loadSongsHybridInMemory(Map<String, Object> params, boolean undirected) {
+        // same normalization as the key and the Cypher path: numeric strings, defaults, 400 otherwise,
+        // checked before the interactions are streamed
+        long win = GraphKey.songsWindow(params != null ? params.get("window") : null);
+        double lam = GraphKey.songsLambda(params != null ? params.get("lambda") : null);
+        String cypher = """
+            MATCH (u:User)-[:LISTENED]->(s:Song)
+            RETURN elementId(u) AS user, coalesce(s.id, s.name, s.title) AS item,
+                   id(s) AS ord, toFloat(s.year) AS year
+            """;
+        BipartiteCsr.Builder interactions = BipartiteCsr.builder();
+        SongColumns songs = new SongColumns();
+        streamInteractions(cypher, interactions, songs::set);
+        CoOccurrence.Pairs pairs = CoOccurrence.itemPairs(interactions.build());
+
+        CsrGraph.Builder builder = CsrGraph.builder();
+        for (int k = 0; k < pairs.size(); k++) {
+            int a = pairs.first(k), b = pairs.second(k);
+            if (songs.ord[b] < songs.ord[a]) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            double weight = songsHybridWeight(pairs.overlap(k), songs.year[a], songs.year[b], win, lam);
+            if (weight <= 0) continue;
+            int from = builder.addNode(pairs.id(a));
+            int to = builder.addNode(pairs.id(b));
+            builder.addEdge(from, to, weight);
+            if (undirected) builder.addEdge(to, from, weight);
         }
+        return builder.build();
+    }
 
-        return adj;
+    /** movies_by_users from the WATCHED edges; both directions per pair, like runMoviesByUsersQuery. */
+    private CsrGraph loadMoviesByUsersInMemory() {
+        String cypher = """
+            MATCH (u:User)-[:WATCHED]->(m:Movie)
+            RETURN elementId(u) AS user, coalesce(m.id, m.title) AS item
+            """;
+        BipartiteCsr.Builder interactions = BipartiteCsr.builder();
+        streamInteractions(cypher, interactions, null);
+        return CoOccurrence.itemPairs(interactions.build()).toGraph(CoOccurrence.INVERSE_OVERLAP, true);
     }
 
-    private List<org.neo4j.driver.Record> runSongsHybridQuery(Session session, Map<String, Object> params) {
-     String cypher = """
-         WITH toInteger($window) AS w, toFloat($lambda) AS lam
-         MATCH (u:User)-[:LISTENED]->(s1:Song)
-         WITH u, s1, w, lam
-         MATCH (u)-[:LISTENED]->(s2:Song)
-         WHERE s1 <> s2
-         WITH s1, s2, count(DISTINCT u) AS overlap, w, lam
-                 WHERE overlap > 0
-                 WITH (CASE WHEN id(s1) < id(s2) THEN s1 ELSE s2 END) AS a,
+    /** Internal id and year per song index, filled as songs first appear in the stream. */
+    private static final class SongColumns {
+        long[] ord = new long[256];
+        double[] year = new double[256];
+
+        void set(org.neo4j.driver.Record r, int item) {
+            if (item == ord.length) {
+                ord = Arrays.copyOf(ord, item * 2);
+                year = Arrays.copyOf(year, item * 2);
+            }
+            ord[item] = r.get("ord").asLong();
+            year[item] = r.get("year").isNull() ? Double.NaN : r.get("year").asDouble();
+        }
+    }
+
+    /** Streams user/item rows into the builder; onNewItem sees the first row of every item. */
+    private void streamInteractions(String cypher, BipartiteCsr.Builder interactions,
+                                    ObjIntConsumer<org.neo4j.driver.Record> onNewItem) {
+        try (Session session = driver.session(SessionConfig.builder().withFetchSize(fetchSize).build())) {
+            Result result = session.run(cypher);
+            while (result.hasNext()) {
+                org.neo4j.driver.Record r = result.next();
+                if (r.get("item").isNull()) continue;
+                int before = interactions.itemCount();
+                int item = interactions.addItem(r.get("item").asString());
+                if (onNewItem != null && item == before) onNewItem.accept(r, item);
+                interactions.add(interactions.addUser(r.get("user").asString()), item);
+            }
+        }
+    }
+
+    private Result runQuery(Session session, AlgorithmRequest req) {
+        String graphType = req.graphType != null ? req.graphType : "movies";
+        double minScore = req.minScore != null ? req.minScore : 0.0;
+        List<String> platforms = req.platforms != null ? req.platforms : List.of();
+        String onlyUserId = (req.onlyUserId != null && !req.onlyUserId.isBlank()) ? req.onlyUserId : null;
+
+        if ("bands".equalsIgnoreCase(graphType)) {
+            return runBandsQuery(session, minScore);
+        } else if ("songs_hybrid".equalsIgnoreCase(graphType)) {
+            return materialized()
+                ? runSongsHybridMaterializedQuery(session, req.params)
+                : runSongsHybridQuery(session, req.params);
+        } else if ("movies_by_users".equalsIgnoreCase(graphType)) {
+            return materialized()
+                ? runMoviesByUsersMaterializedQuery(session)
+                : runMoviesByUsersQuery(session);
+        } else if ("movies_rated".equalsIgnoreCase(graphType)) {
+            return runMoviesRatedQuery(session);
+        } else if ("movies_genre".equalsIgnoreCase(graphType)) {
+            String genre = req.params != null ? 
+                (String) req.params.get("genre") : null;
+            return runMoviesGenreQuery(session, genre);
+        }
+        return runMoviesQuery(session, minScore, platforms, onlyUserId);
+    }
+
+    private Result runSongsHybridQuery(Session session, Map<String, Object> params) {
+        return session.run(songsHybridQuery(false), songsHybridParams(params));
+    }
+
+    boolean materialized() {
+        return "materialized".equals(coOccurrenceSource);
+    }
+
+    /** Same weights as runSongsHybridQuery, but overlap comes from the maintained CO_LISTENED edges. */
+    private Result runSongsHybridMaterializedQuery(Session session, Map<String, Object> params) {
+        return session.run(songsHybridQuery(true), songsHybridParams(params));
+    }
+
+    /** Same rows as runMoviesByUsersQuery (both directions per pair), read from CO_WATCHED. */
+    private Result runMoviesByUsersMaterializedQuery(Session session) {
+        return session.run(moviesByUsersQuery(true));
+    }
+
+    /**
+     * Edge rows of songs_hybrid from any (s1, s2, overlap) source: one edge per pair pointing from
+     * the lower internal id, weight 1 / (overlap + 1) plus lambda times the year gap over the window.
+     * Shared by the self-join and the materialized query so both return the same graph.
+     */
+    static final String SONGS_HYBRID_EDGES = """
+        WITH (CASE WHEN id(s1) < id(s2) THEN s1 ELSE s2 END) AS a,
              (CASE WHEN id(s1) < id(s2) THEN s2 ELSE s1 END) AS b,
              overlap,
-             coalesce(w,10) AS win,
-             coalesce(lam,0.5) AS lam
-                 WITH a, b, overlap, lam, win,
-                            CASE
-                                    WHEN a.year IS NULL OR b.year IS NULL THEN 0.0
-                                    ELSE abs(toFloat(a.year) - toFloat(b.year))
-                            END AS d
-                 WITH a, b,
-                     (1.0 / (overlap + 1.0)) AS w1,
-                     (CASE WHEN win = 0 THEN 0 ELSE (toFloat(d) / toFloat(win)) END) AS w2,
-                     lam
-         RETURN coalesce(a.id, a.name, a.title) AS from,
-             coalesce(b.id, b.name, b.title) AS to,
-             (w1 + lam * w2) AS weight
-         """;
+             coalesce(toInteger($window), 10) AS win,
+             coalesce(toFloat($lambda), 0.5) AS lam
+        WITH a, b, overlap, win, lam,
+             CASE
+                 WHEN a.year IS NULL OR b.year IS NULL THEN 0.0
+                 ELSE abs(toFloat(a.year) - toFloat(b.year))
+             END AS d
+        RETURN coalesce(a.id, a.name, a.title) AS from,
+               coalesce(b.id, b.name, b.title) AS to,
+               (1.0 / (overlap + 1.0))
+                 + lam * (CASE WHEN win = 0 THEN 0 ELSE (toFloat(d) / toFloat(win)) END) AS weight
+        """;
 
-        Map<String, Object> map = new HashMap<>();
-        if (params != null) {
-            Object w = params.get("window");
-            Object l = params.get("lambda");
-            if (w != null) map.put("window", w);
-            if (l != null) map.put("lambda", l);
-        }
-        // sensible defaults if not provided
-        map.putIfAbsent("window", 10);
-        map.putIfAbsent("lambda", 0.5);
+    /** Edge rows of movies_by_users from any (m1, m2, overlap) source, one row per direction given. */
+    static final String MOVIES_BY_USERS_EDGES = """
+        RETURN coalesce(m1.id, m1.title) AS from,
+               coalesce(m2.id, m2.title) AS to,
+               1.0 / (overlap + 1.0) AS weight
+        """;
+
+    /** SONGS_HYBRID_EDGES' weight in Java, for graphs built in memory; NaN years count as unknown. */
+    static double songsHybridWeight(long overlap, double yearA, double yearB, long win, double lam) {
+        double d = Double.isNaN(yearA) || Double.isNaN(yearB) ? 0.0 : Math.abs(yearA - yearB);
+        return 1.0 / (overlap + 1.0) + lam * (win == 0 ? 0 : d / win);
+    }
 
-        Result result = session.run(cypher, map);
-        return result.list();
+    /** songs_hybrid query: per-load self-join over LISTENED, or a scan of CO_LISTENED. */
+    static String songsHybridQuery(boolean materialized) {
+        String pairs = materialized
+            ? """
+                MATCH (s1:Song)-[c:CO_LISTENED]->(s2:Song)
+                WHERE c.overlap > 0
+                WITH s1, s2, c.overlap AS overlap
+                """
+            : """
+                MATCH (u:User)-[:LISTENED]->(s1:Song)
+                WITH u, s1
+                MATCH (u)-[:LISTENED]->(s2:Song)
+                WHERE s1 <> s2
+                WITH s1, s2, count(DISTINCT u) AS overlap
+                WHERE overlap > 0
+                """;
+        return pairs + SONGS_HYBRID_EDGES;
     }
 
-    private List<org.neo4j.driver.Record> runMoviesQuery(Session session, double minScore, List<String> platforms, String onlyUserId) {
+    /** movies_by_users query: per-load self-join over WATCHED, or a scan of CO_WATCHED (both directions). */
+    static String moviesByUsersQuery(boolean materialized) {
+        String pairs = materialized
+            ? """
+                MATCH (a:Movie)-[c:CO_WATCHED]->(b:Movie)
+                WHERE c.overlap > 0
+                UNWIND [[a, b], [b, a]] AS pair
+                WITH pair[0] AS m1, pair[1] AS m2, c.overlap AS overlap
+                """
+            : """
+                MATCH (u:User)-[:WATCHED]->(m1:Movie)
+                WITH u, m1
+                MATCH (u)-[:WATCHED]->(m2:Movie)
+                WHERE m1 <> m2
+                WITH m1, m2, count(DISTINCT u) AS overlap
+                WHERE overlap > 0
+                """;
+        return pairs + MOVIES_BY_USERS_EDGES;
+    }
+
+    /** window and lambda normalized exactly as in the GraphKey, so the graph matches its key. */
+    private static Map<String, Object> songsHybridParams(Map<String, Object> params) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("window", GraphKey.songsWindow(params != null ? params.get("window") : null));
+        map.put("lambda", GraphKey.songsLambda(params != null ? params.get("lambda") : null));
+        return map;
+    }
+
+    private Result runMoviesQuery(Session session, double minScore, List<String> platforms, String onlyUserId) {
         String cypher = """
             MATCH (a:Movie)-[r:SIMILAR_TO]->(b:Movie)
             WHERE r.score >= $minScore
@@ -135,38 +667,24 @@ public class DynamicGraphAdapter {
         params.put("minScore", minScore);
         params.put("platforms", platforms);
         params.put("onlyUserId", onlyUserId);
-        Result result = session.run(cypher, params);
-        return result.list();
+        return session.run(cypher, params);
     }
 
-    private List<org.neo4j.driver.Record> runBandsQuery(Session session, double minScore) {
+    private Result runBandsQuery(Session session, double minScore) {
         String cypher = """
             MATCH (a:Band)-[r:SIMILAR_TO]->(b:Band)
             WHERE r.score >= $minScore
             RETURN a.name AS from, b.name AS to, 1.0 / (r.score + 1.0) AS weight
             """;
         Map<String, Object> params = Map.of("minScore", minScore);
-        Result result = session.run(cypher, params);
-        return result.list();
+        return session.run(cypher, params);
     }
 
-    private List<org.neo4j.driver.Record> runMoviesByUsersQuery(Session session) {
-        String cypher = """
-            MATCH (u:User)-[:WATCHED]->(m1:Movie)
-            WITH u, m1
-            MATCH (u)-[:WATCHED]->(m2:Movie)
-            WHERE m1 <> m2
-            WITH m1, m2, count(DISTINCT u) AS overlap
-            WHERE overlap > 0
-            RETURN coalesce(m1.id, m1.title) AS from,
-                   coalesce(m2.id, m2.title) AS to,
-                   1.0 / (overlap + 1.0) AS weight
-            """;
-        Result result = session.run(cypher);
-        return result.list();
+    private Result runMoviesByUsersQuery(Session session) {
+        return session.run(moviesByUsersQuery(false));
     }
 
-    private List<org.neo4j.driver.Record> runMoviesRatedQuery(Session session) {
+    private Result runMoviesRatedQuery(Session session) {
         String cypher = """
             MATCH (m1:Movie)<-[r1:RATED]-(u:User)-[r2:RATED]->(m2:Movie)
             WHERE m1 <> m2
@@ -177,11 +695,10 @@ public class DynamicGraphAdapter {
                    coalesce(m2.id, m2.title) AS to,
                    ratingDiff + 0.1 AS weight
             """;
-        Result result = session.run(cypher);
-        return result.list();
+        return session.run(cypher);
     }
 
-    private List<org.neo4j.driver.Record> runMoviesGenreQuery(Session session, String genre) {
+    private Result runMoviesGenreQuery(Session session, String genre) {
         String cypher = """
             MATCH (m1:Movie), (m2:Movie)
             WHERE m1 <> m2
@@ -196,7 +713,6 @@ public class DynamicGraphAdapter {
             LIMIT 1000
             """;
         Map<String, Object> params = Map.of("genre", genre != null ? genre : "");
-        Result result = session.run(cypher, params);
-        return result.list();
+        return session.run(cypher, params);
     }
 }
@@ -0,0 +1,123 @@
+package org.cheplay.neo4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.cheplay.dto.AlgorithmRequest;
+
+/**
+ * Canonical identity of a loaded graph: only the request fields the graph query actually reads,
+ * with defaults applied and collections sorted. Two requests that would run the same Cypher with the
+ * same parameters get equal keys, whatever else (start, target, k, ...) they carry.
+ */
+public record GraphKey(String graphType, boolean undirected, Map<String, Object> queryParams) {
+
+    public GraphKey {
+        Objects.requireNonNull(graphType, "graphType");
+        queryParams = Map.copyOf(queryParams);
+    }
+
+    public static GraphKey of(AlgorithmRequest req) {
+        String graphType = req.graphType != null ? req.graphType.toLowerCase() : "movies";
+        boolean undirected = req.undirected != null && req.undirected;
+        Map<String, Object> p = new TreeMap<>();
+        switch (graphType) {
+            case "bands" -> p.put("minScore", req.minScore != null ? req.minScore : 0.0);
+            case "songs_hybrid" -> {
+                p.put("window", songsWindow(req.params != null ? req.params.get("window") : null));
+                p.put("lambda", songsLambda(req.params != null ? req.params.get("lambda") : null));
+            }
+            case "movies_genre" -> {
+                Object genre = req.params != null ? req.params.get("genre") : null;
+                p.put("genre", genre != null ? genre.toString() : "");
+            }
+            case "movies_by_users", "movies_rated" -> { }
+            default -> {
+                graphType = "movies";
+                List<String> platforms = new ArrayList<>(req.platforms != null ? req.platforms : List.of());
+                platforms.sort(null);
+                p.put("minScore", req.minScore != null ? req.minScore : 0.0);
+                p.put("platforms", List.copyOf(platforms));
+                p.put("onlyUserId", req.onlyUserId != null && !req.onlyUserId.isBlank() ? req.onlyUserId : "");
+            }
+        }
+        return new GraphKey(graphType, undirected, p);
+    }
+
+    /**
+     * songs_hybrid window as the query reads it (toInteger: numbers and numeric strings, truncated);
+     * missing means 10. Anything else, or a negative window, is an InvalidGraphSpecException.
+     */
+    public static int songsWindow(Object value) {
+        double w = number("window", value, 10);
+        if (w < 0 || w > Integer.MAX_VALUE) throw new InvalidGraphSpecException("window must be >= 0: " + value);
+        return (int) w;
+    }
+
+    /** songs_hybrid lambda as the query reads it (toFloat); missing means 0.5, negative is rejected. */
+    public static double songsLambda(Object value) {
+        double l = number("lambda", value, 0.5);
+        if (l < 0) throw new InvalidGraphSpecException("lambda must be >= 0: " + value);
+        return l;
+    }
+
+    private static double number(String name, Object value, double missing) {
+        double out;
+        if (value == null) {
+            return missing;
+        } else if (value instanceof Number n) {
+            out = n.doubleValue();
+        } else if (value instanceof String s && !s.isBlank()) {
+            try {
+                out = Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidGraphSpecException(name + " must be a number: " + value);
+            }
+        } else {
+            throw new InvalidGraphSpecException(name + " must be a number: " + value);
+        }
+        if (!Double.isFinite(out)) throw new InvalidGraphSpecException(name + " must be finite: " + value);
+        return out;
+    }
+
+    /** A request that loads this graph again, e.g. to refresh a snapshot restored from disk. */
+    @SuppressWarnings("unchecked")
+    public AlgorithmRequest toRequest() {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = graphType;
+        req.undirected = undirected;
+        req.params = new HashMap<>();
+        for (Map.Entry<String, Object> e : queryParams.entrySet()) {
+            switch (e.getKey()) {
+                case "minScore" -> req.minScore = ((Number) e.getValue()).doubleValue();
+                case "platforms" -> req.platforms = new ArrayList<>((List<String>) e.getValue());
+                case "onlyUserId" -> {
+                    String user = e.getValue().toString();
+                    req.onlyUserId = user.isEmpty() ? null : user;
+                }
+                default -> req.params.put(e.getKey(), e.getValue());
+            }
+        }
+        return req;
+    }
+
+    /** Stable text form, e.g. songs_hybrid|undirected|lambda=0.5,window=10. */
+    public String canonical() {
+        StringBuilder sb = new StringBuilder(graphType).append('|').append(undirected ? "undirected" : "directed");
+        String sep = "|";
+        for (Map.Entry<String, Object> e : new TreeMap<>(queryParams).entrySet()) {
+            sb.append(sep).append(e.getKey()).append('=').append(e.getValue());
+            sep = ",";
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return canonical();
+    }
+}
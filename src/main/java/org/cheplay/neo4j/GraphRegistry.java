@@ -0,0 +1,330 @@
+package org.cheplay.neo4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+import org.cheplay.algorithm.graph.SegmentedCsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Current snapshot of every graph the recommendation services read, one AtomicReference per
+ * GraphKey, refreshed in the background and swapped in atomically.
+ *
+ * Reads never lock and never wait for a refresh: they take the snapshot that is current when they
+ * start (with a reference, see CsrGraph.tryRetain) and keep it until they finish, even if a newer
+ * one is swapped in meanwhile. Only the very first read of a key waits for its load; concurrent
+ * first reads share it. A snapshot older than the refresh period is reloaded from Neo4j by a
+ * scheduled tick (cheplay.graph.registry.refresh-seconds) or, if the tick is late, by the next read
+ * that sees it, so staleness stays around one period plus the load time. Keys nobody read for
+ * IDLE_PERIODS periods are dropped.
+ *
+ * Unlike GraphSnapshotCache there is no TTL miss and no byte budget: the registry is meant for the
+ * few fixed graphs behind the recommendation endpoints, not for arbitrary algorithm requests. It
+ * still loads through the adapter: a first read takes the cached graph (restored from its snapshot
+ * file at startup, so a restart does not wait for Neo4j) and a refresh puts its result back into the cache and the file,
+ * so the registry and the cache share one copy of each graph. A graph restored from a file is
+ * served until the registry's next refresh.
+ */
+@Service
+public class GraphRegistry {
+    static final long DEFAULT_REFRESH_SECONDS = 300;
+    /** Periods without a read after which a key is dropped instead of refreshed. */
+    static final int IDLE_PERIODS = 6;
+
+    private final Function<AlgorithmRequest, CsrGraph> loader;
+    private final Function<AlgorithmRequest, CsrGraph> reloader;
+    private final long refreshNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<GraphKey, Holder> holders = new ConcurrentHashMap<>();
+    private final ExecutorService refresher =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("graph-registry-", 0).factory());
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    private record Snapshot(CsrGraph graph, long loadedAt, long version) {}
+
+    private static final class Holder {
+        /** null once the key has been dropped. */
+        final AtomicReference<Snapshot> current = new AtomicReference<>();
+        final CompletableFuture<Void> firstLoad = new CompletableFuture<>();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long lastRead;
+    }
+
+    @Autowired
+    public GraphRegistry(
+        DynamicGraphAdapter dynamicGraphAdapter,
+        @Value("${cheplay.graph.registry.refresh-seconds:300}") long refreshSeconds
+    ) {
+        this(dynamicGraphAdapter::acquire, dynamicGraphAdapter::reload, Duration.ofSeconds(refreshSeconds),
+            System::nanoTime);
+    }
+
+    public GraphRegistry(DynamicGraphAdapter dynamicGraphAdapter) {
+        this(dynamicGraphAdapter, DEFAULT_REFRESH_SECONDS);
+    }
+
+    public GraphRegistry(Function<AlgorithmRequest, CsrGraph> loader, Duration refresh, LongSupplier nanoClock) {
+        this(loader, loader, refresh, nanoClock);
+    }
+
+    /**
+     * loader serves first reads, reloader the refreshes; both return a graph with a reference the
+     * registry takes over.
+     */
+    public GraphRegistry(
+        Function<AlgorithmRequest, CsrGraph> loader,
+        Function<AlgorithmRequest, CsrGraph> reloader,
+        Duration refresh,
+        LongSupplier nanoClock
+    ) {
+        this.loader = loader;
+        this.reloader = reloader;
+        this.refreshNanos = refresh.toNanos();
+        this.clock = nanoClock;
+    }
+
+    /**
+     * Runs fn on the current snapshot for req, holding a reference to it until fn returns. A start
+     * node that is not in the graph is added on a private copy, as in DynamicGraphAdapter.
+     */
+    public <T> T withGraph(AlgorithmRequest req, Function<CsrGraph, T> fn) {
+        CsrGraph graph = acquire(req);
+        try {
+            return fn.apply(withStart(graph, req));
+        } finally {
+            graph.release();
+        }
+    }
+
+    /**
+     * The current snapshot for req, for callers that cannot scope their use to withGraph(). An
+     * off-heap graph is returned as a view that keeps its memory alive until it is unreachable.
+     */
+    public CsrGraph graph(AlgorithmRequest req) {
+        CsrGraph graph = acquire(req);
+        try {
+            CsrGraph out = graph instanceof OffHeapCsrGraph offHeap ? offHeap.view() : graph;
+            return withStart(out, req);
+        } finally {
+            graph.release();
+        }
+    }
+
+    private static CsrGraph withStart(CsrGraph graph, AlgorithmRequest req) {
+        if (req.start != null && !req.start.isBlank()) {
+            return graph.withNode(req.start);
+        }
+        return graph;
+    }
+
+    /** Current snapshot with a reference for the caller; loads the key on its first use. */
+    private CsrGraph acquire(AlgorithmRequest req) {
+        GraphKey key = GraphKey.of(req);
+        while (true) {
+            Holder h = holder(key);
+            h.lastRead = clock.getAsLong();
+            Snapshot s = h.current.get();
+            if (s == null) continue; // dropped meanwhile: a new holder is created
+            // a failed retain means s was swapped out and released; current already has its successor
+            if (!s.graph().tryRetain()) continue;
+            if (clock.getAsLong() - s.loadedAt() >= refreshNanos) refreshAsync(key, h);
+            return s.graph();
+        }
+    }
+
+    private Holder holder(GraphKey key) {
+        Holder h = holders.get(key);
+        if (h == null) {
+            Holder mine = new Holder();
+            h = holders.putIfAbsent(key, mine);
+            if (h == null) {
+                h = mine;
+                try {
+                    loads.increment();
+                    mine.current.set(new Snapshot(loader.apply(key.toRequest()), clock.getAsLong(), 1));
+                    mine.firstLoad.complete(null);
+                } catch (RuntimeException | Error e) {
+                    holders.remove(key, mine);
+                    mine.firstLoad.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            h.firstLoad.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+        return h;
+    }
+
+    /**
+     * Reloads key in the background unless a reload is already running; readers keep the old snapshot.
+     * The reload only replaces the snapshot it started from: if the key was dropped or a delta was
+     * applied meanwhile, the loaded graph is released and the next stale read or tick tries again.
+     */
+    private void refreshAsync(GraphKey key, Holder h) {
+        if (!h.refreshing.compareAndSet(false, true)) return;
+        refresher.execute(() -> {
+            try {
+                Snapshot base = h.current.get();
+                if (base == null) return;
+                CsrGraph graph = reloader.apply(key.toRequest());
+                if (!h.current.compareAndSet(base, new Snapshot(graph, clock.getAsLong(), base.version() + 1))) {
+                    graph.release();
+                    return;
+                }
+                base.graph().release();
+                refreshes.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                lastError.set(key.canonical() + ": " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            } finally {
+                h.refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Scheduled tick: refreshes every snapshot older than half a period (so none gets much older than
+     * one period between ticks) and drops keys that were not read for IDLE_PERIODS periods.
+     */
+    @Scheduled(
+        fixedDelayString = "${cheplay.graph.registry.refresh-seconds:300}",
+        initialDelayString = "${cheplay.graph.registry.refresh-seconds:300}",
+        timeUnit = TimeUnit.SECONDS
+    )
+    public void refreshStale() {
+        long now = clock.getAsLong();
+        for (Map.Entry<GraphKey, Holder> e : holders.entrySet()) {
+            Holder h = e.getValue();
+            Snapshot s = h.current.get();
+            if (s == null) continue;
+            if (now - h.lastRead >= IDLE_PERIODS * refreshNanos) {
+                drop(e.getKey(), h);
+            } else if (now - s.loadedAt() >= refreshNanos / 2) {
+                refreshAsync(e.getKey(), h);
+            }
+        }
+    }
+
+    /** Schedules an immediate reload of every snapshot of graphType (null: all), e.g. after a bulk rebuild. */
+    public int refresh(String graphType) {
+        int scheduled = 0;
+        for (Map.Entry<GraphKey, Holder> e : holders.entrySet()) {
+            if (graphType != null && !e.getKey().graphType().equalsIgnoreCase(graphType)) continue;
+            refreshAsync(e.getKey(), e.getValue());
+            scheduled++;
+        }
+        return scheduled;
+    }
+
+    /**
+     * Same contract as DynamicGraphAdapter.applyDelta, on the registry's snapshots: each one is
+     * replaced by a SegmentedCsrGraph version with a compare-and-set, retried if a refresh or another
+     * delta got in first. Off-heap snapshots are reloaded instead. Returns the number updated.
+     */
+    public int applyDelta(String graphType, Function<GraphKey, GraphDelta> deltaFor) {
+        return applyDelta(graphType, deltaFor, Map.of());
+    }
+
+    /**
+     * Same, but a snapshot whose graph is a key of applied (the versions DynamicGraphAdapter.applyDelta
+     * just produced for the same delta) takes that version over, so a graph shared with the cache
+     * is converted and copied once, and both keep sharing it afterwards.
+     */
+    public int applyDelta(String graphType, Function<GraphKey, GraphDelta> deltaFor,
+                          Map<CsrGraph, CsrGraph> applied) {
+        int updated = 0;
+        for (Map.Entry<GraphKey, Holder> e : holders.entrySet()) {
+            GraphKey key = e.getKey();
+            if (!key.graphType().equalsIgnoreCase(graphType)) continue;
+            GraphDelta delta = deltaFor.apply(key);
+            if (delta == null || delta.isEmpty()) continue;
+            if (key.undirected()) delta = delta.mirrored();
+            Holder h = e.getValue();
+            while (true) {
+                Snapshot s = h.current.get();
+                if (s == null) break;
+                if (s.graph().offHeapBytes() > 0) {
+                    refreshAsync(key, h);
+                    break;
+                }
+                CsrGraph shared = applied.get(s.graph());
+                CsrGraph next = shared != null && shared.tryRetain()
+                    ? shared
+                    : SegmentedCsrGraph.of(s.graph()).apply(delta);
+                if (next == s.graph()) break;
+                // keeps loadedAt: the periodic full reload still happens on time
+                if (h.current.compareAndSet(s, new Snapshot(next, s.loadedAt(), s.version() + 1))) {
+                    s.graph().release();
+                    updated++;
+                    break;
+                }
+            }
+        }
+        deltas.add(updated);
+        return updated;
+    }
+
+    private void drop(GraphKey key, Holder h) {
+        if (!holders.remove(key, h)) return;
+        Snapshot s = h.current.getAndSet(null);
+        if (s != null) s.graph().release();
+    }
+
+    /** Per-key version, size and age, plus load/refresh counters. */
+    public Map<String, Object> stats() {
+        long now = clock.getAsLong();
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<GraphKey, Holder> e : holders.entrySet()) {
+            Snapshot s = e.getValue().current.get();
+            if (s == null) continue;
+            entries.add(Map.of(
+                "key", e.getKey().canonical(),
+                "version", s.version(),
+                "nodes", s.graph().nodeCount(),
+                "edges", s.graph().edgeCount(),
+                "ageSeconds", (now - s.loadedAt()) / 1_000_000_000L,
+                "refreshing", e.getValue().refreshing.get()
+            ));
+        }
+        Map<String, Object> out = new HashMap<>();
+        out.put("entries", entries);
+        out.put("refreshSeconds", refreshNanos / 1_000_000_000L);
+        out.put("loads", loads.sum());
+        out.put("refreshes", refreshes.sum());
+        out.put("deltas", deltas.sum());
+        out.put("failures", failures.sum());
+        if (lastError.get() != null) out.put("lastError", lastError.get());
+        return out;
+    }
+}
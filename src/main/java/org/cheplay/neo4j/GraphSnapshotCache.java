@@ -0,0 +1,392 @@
+package org.cheplay.neo4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+
+/**
+ * In-memory cache of loaded graphs, keyed by GraphKey.
+ *
+ * Entries expire after a TTL and the total estimated size is kept under a byte budget by evicting
+ * the least recently used entries first. Cached CsrGraph instances are immutable, so the same
+ * snapshot is handed to every caller without copying.
+ *
+ * The cache owns one reference of every graph it holds (see CsrGraph.tryRetain) and releases it
+ * when the entry is evicted, expires, is invalidated or replaced, which frees off-heap graphs that
+ * nobody else is using. Callers that keep a graph across such events use acquire().
+ *
+ * Every invalidation or update bumps a generation per graph type (invalidateAll: all of them). A
+ * load only caches its result if the generation of its key did not change while it ran, so a load
+ * that started before a write to the source data never re-installs the pre-write graph.
+ *
+ * Misses are single-flight: the first caller for a key runs the loader, concurrent callers with an
+ * equal key wait on the same CompletableFuture and share its result (or its exception). Waiting
+ * parks rather than holding a monitor, and the map lock is a ReentrantLock, so virtual threads are
+ * never pinned to their carrier while a load is in progress.
+ */
+public class GraphSnapshotCache {
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Access-ordered: iteration starts at the least recently used entry. */
+    private final LinkedHashMap<GraphKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    /** Guarded by lock; see generation(). */
+    private final Map<String, Long> typeGenerations = new HashMap<>();
+    private long allGeneration;
+    private final ConcurrentHashMap<GraphKey, CompletableFuture<CsrGraph>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+
+    private record Entry(CsrGraph graph, long loadedAt, long bytes) {}
+
+    /** A zero ttl disables expiry; maxBytes bounds the sum of CsrGraph.estimatedBytes(). */
+    public GraphSnapshotCache(Duration ttl, long maxBytes) {
+        this(ttl, maxBytes, System::nanoTime);
+    }
+
+    public GraphSnapshotCache(Duration ttl, long maxBytes, LongSupplier nanoClock) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxBytes = maxBytes;
+        this.clock = nanoClock;
+    }
+
+    /**
+     * Cached snapshot for key, or the loader's result (cached if it fits the budget and its type was
+     * not invalidated while it loaded). An uncached graph is owned by nobody: an off-heap one is
+     * returned as a view that frees it once unreachable, so prefer acquire() for graphs that may
+     * exceed the budget.
+     */
+    public CsrGraph get(GraphKey key, Supplier<CsrGraph> loader) {
+        Lease lease = lease(key, loader);
+        CsrGraph graph = lease.graph();
+        if (lease.cached()) {
+            // the cache's own reference keeps it alive, as before
+            graph.release();
+            return graph;
+        }
+        CsrGraph out = graph instanceof OffHeapCsrGraph offHeap ? offHeap.view() : graph;
+        graph.release();
+        return out;
+    }
+
+    /**
+     * Like get(), but the returned graph carries a reference for the caller, who must release() it.
+     * For a graph that did not fit the budget this is the loader's reference, so the graph is freed
+     * as soon as the caller releases it.
+     */
+    public CsrGraph acquire(GraphKey key, Supplier<CsrGraph> loader) {
+        return lease(key, loader).graph();
+    }
+
+    /** A graph with a reference for the caller, and whether the cache holds it too. */
+    private record Lease(CsrGraph graph, boolean cached) {}
+
+    private Lease lease(GraphKey key, Supplier<CsrGraph> loader) {
+        while (true) {
+            CsrGraph cached = getIfPresent(key);
+            // a failed retain means it was evicted and freed after the lookup
+            if (cached != null && cached.tryRetain()) {
+                hits.increment();
+                return new Lease(cached, true);
+            }
+
+            CompletableFuture<CsrGraph> mine = new CompletableFuture<>();
+            CompletableFuture<CsrGraph> leader = inFlight.putIfAbsent(key, mine);
+            if (leader != null) {
+                coalesced.increment();
+                CsrGraph shared = await(leader);
+                // an uncached result may already be freed by the leader's caller: load again
+                if (shared.tryRetain()) return new Lease(shared, getIfPresent(key) == shared);
+                continue;
+            }
+            try {
+                // a previous leader may have finished between our miss and putIfAbsent
+                CsrGraph graph = getIfPresent(key);
+                if (graph != null && graph.tryRetain()) {
+                    hits.increment();
+                    mine.complete(graph);
+                    return new Lease(graph, true);
+                }
+                loads.increment();
+                long generation = generation(key);
+                graph = loader.get();
+                // the caller's reference; the loader's goes to the cache or, if it does not fit or
+                // the key was invalidated meanwhile, back
+                graph.tryRetain();
+                boolean owned = put(key, graph, generation);
+                if (!owned) graph.release();
+                mine.complete(graph);
+                return new Lease(graph, owned);
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    private static CsrGraph await(CompletableFuture<CsrGraph> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /** Fresh cached snapshot or null; an expired entry is dropped on the way. */
+    public CsrGraph getIfPresent(GraphKey key) {
+        lock.lock();
+        try {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (ttlNanos > 0 && clock.getAsLong() - e.loadedAt() >= ttlNanos) {
+                remove(key);
+                return null;
+            }
+            return e.graph();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches graph and takes over the caller's reference to it; returns true if it did. A graph
+     * larger than the whole budget is not cached (the previous entry is still dropped) and false
+     * tells the caller it still owns its reference and must release it.
+     */
+    public boolean put(GraphKey key, CsrGraph graph) {
+        return put(key, graph, -1);
+    }
+
+    /**
+     * As put(), but only if generation(key) still equals generation (negative: always), i.e. nothing
+     * of key's graph type was invalidated or updated since the caller started loading graph.
+     * Otherwise the entry is left alone and false is returned.
+     */
+    public boolean put(GraphKey key, CsrGraph graph, long generation) {
+        long bytes = graph.estimatedBytes();
+        lock.lock();
+        try {
+            if (generation >= 0 && generation != generation(key)) return false;
+            Entry current = entries.get(key);
+            if (current != null && current.graph() == graph) {
+                // already holds a reference of its own
+                graph.release();
+                return true;
+            }
+            remove(key);
+            if (bytes > maxBytes) return false;
+            entries.put(key, new Entry(graph, clock.getAsLong(), bytes));
+            totalBytes += bytes;
+            evictOverBudget(key);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes whenever a snapshot of key's graph type is invalidated or updated; read it before a
+     * load and pass it to put(key, graph, generation).
+     */
+    public long generation(GraphKey key) {
+        lock.lock();
+        try {
+            return allGeneration + typeGenerations.getOrDefault(key.graphType().toLowerCase(), 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void bump(String graphType) {
+        typeGenerations.merge(graphType.toLowerCase(), 1L, Long::sum);
+    }
+
+    /**
+     * Replaces every cached graph of graphType with fn(key, graph), e.g. the same graph with a
+     * GraphDelta applied. The result takes over the entry (and owns a reference, see put()) but
+     * keeps its load time, so the TTL still forces a full reload now and then; a null result drops
+     * the entry. Runs under the cache lock, so concurrent updates of one entry never lose each other.
+     * Returns the number of entries replaced.
+     */
+    public int update(String graphType, BiFunction<GraphKey, CsrGraph, CsrGraph> fn) {
+        lock.lock();
+        try {
+            // loads in flight predate the change the update describes
+            bump(graphType);
+            int updated = 0;
+            Iterator<Map.Entry<GraphKey, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<GraphKey, Entry> e = it.next();
+                if (!e.getKey().graphType().equalsIgnoreCase(graphType)) continue;
+                Entry old = e.getValue();
+                CsrGraph next = fn.apply(e.getKey(), old.graph());
+                if (next == old.graph()) continue;
+                totalBytes -= old.bytes();
+                if (next == null) {
+                    it.remove();
+                } else {
+                    long bytes = next.estimatedBytes();
+                    e.setValue(new Entry(next, old.loadedAt(), bytes));
+                    totalBytes += bytes;
+                    updated++;
+                }
+                old.graph().release();
+            }
+            updates.add(updated);
+            evictOverBudget(null);
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops least recently used entries (never keep) until the budget holds. Caller holds the lock. */
+    private void evictOverBudget(GraphKey keep) {
+        Iterator<Map.Entry<GraphKey, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<GraphKey, Entry> lru = it.next();
+            if (lru.getKey().equals(keep)) continue;
+            totalBytes -= lru.getValue().bytes();
+            it.remove();
+            lru.getValue().graph().release();
+        }
+    }
+
+    /** Drops every snapshot of the given graph type (all parameter variants). */
+    public int invalidate(String graphType) {
+        lock.lock();
+        try {
+            bump(graphType);
+            int removed = 0;
+            Iterator<Map.Entry<GraphKey, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<GraphKey, Entry> e = it.next();
+                if (e.getKey().graphType().equalsIgnoreCase(graphType)) {
+                    totalBytes -= e.getValue().bytes();
+                    it.remove();
+                    e.getValue().graph().release();
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(GraphKey key) {
+        lock.lock();
+        try {
+            bump(key.graphType());
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            allGeneration++;
+            for (Entry e : entries.values()) e.graph().release();
+            entries.clear();
+            totalBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long totalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counters since startup: hits (served from cache), loads (queries actually run), coalesced
+     * (callers that waited on another caller's load), updates (entries replaced in place by update())
+     * and coalescedRate = coalesced / misses.
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum(), l = loads.sum(), c = coalesced.sum();
+        long misses = l + c;
+        return Map.of(
+            "hits", h,
+            "loads", l,
+            "coalesced", c,
+            "updates", updates.sum(),
+            "inFlight", inFlight.size(),
+            "hitRate", h + misses == 0 ? 0.0 : (double) h / (h + misses),
+            "coalescedRate", misses == 0 ? 0.0 : (double) c / misses
+        );
+    }
+
+    /** One row per cached snapshot, least recently used first. */
+    public List<Map<String, Object>> describe() {
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            List<Map<String, Object>> out = new ArrayList<>(entries.size());
+            for (Map.Entry<GraphKey, Entry> e : entries.entrySet()) {
+                CsrGraph g = e.getValue().graph();
+                out.add(Map.of(
+                    "key", e.getKey().canonical(),
+                    "nodes", g.nodeCount(),
+                    "edges", g.edgeCount(),
+                    "bytes", e.getValue().bytes(),
+                    "offHeapBytes", g.offHeapBytes(),
+                    "ageSeconds", (now - e.getValue().loadedAt()) / 1_000_000_000L
+                ));
+            }
+            return out;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(GraphKey key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            totalBytes -= old.bytes();
+            old.graph().release();
+        }
+    }
+}
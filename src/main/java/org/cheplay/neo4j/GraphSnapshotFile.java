@@ -0,0 +1,243 @@
+package org.cheplay.neo4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+
+/**
+ * Binary on-disk form of a CsrGraph snapshot, little endian, laid out so that every column can be
+ * bulk-copied out of a memory-mapped file:
+ *
+ *   header   48 bytes   magic, version, nodeCount, edgeCount, keyBytes, dictBytes, writtenAt, crc
+ *   key      GraphKey the graph was loaded for (graphType, undirected, typed query params)
+ *   weights  double[edgeCount]   (8-byte aligned)
+ *   offsets  int[nodeCount + 1]
+ *   targets  int[edgeCount]
+ *   idEnds   int[nodeCount]      end of every id in the dictionary
+ *   dict     UTF-8 bytes of all ids, back to back
+ *
+ * Snapshots can be read into heap arrays or left in the mapping as an OffHeapCsrGraph.
+ * The CRC32C covers everything after the header. Files are written to a temp file in the same
+ * directory, forced to disk and renamed over the target, so readers never see a partial snapshot.
+ */
+public final class GraphSnapshotFile {
+    static final long MAGIC = 0x3152534359414C50L; // "PLAYCSR1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+
+    private GraphSnapshotFile() {}
+
+    public record Snapshot(GraphKey key, CsrGraph graph, long writtenAtMillis) {}
+
+    public static void write(Path file, GraphKey key, CsrGraph g) throws IOException {
+        int n = g.nodeCount(), m = g.edgeCount();
+        byte[] keyBytes = encodeKey(key);
+        byte[][] ids = new byte[n][];
+        long dictBytes = 0;
+        for (int i = 0; i < n; i++) {
+            ids[i] = g.id(i).getBytes(StandardCharsets.UTF_8);
+            dictBytes += ids[i].length;
+        }
+        Layout layout = new Layout(n, m, keyBytes.length, dictBytes);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, layout.size);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                buf.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, n).putInt(16, m)
+                   .putInt(20, keyBytes.length).putLong(24, dictBytes).putLong(32, System.currentTimeMillis());
+                buf.put(HEADER_BYTES, keyBytes);
+                for (int e = 0; e < m; e++) buf.putDouble(layout.weights + 8 * e, g.weight(e));
+                for (int u = 0; u < n; u++) buf.putInt(layout.offsets + 4 * u, g.begin(u));
+                buf.putInt(layout.offsets + 4 * n, m);
+                for (int e = 0; e < m; e++) buf.putInt(layout.targets + 4 * e, g.target(e));
+                int end = 0;
+                for (int i = 0; i < n; i++) {
+                    buf.put(layout.dict + end, ids[i]);
+                    end += ids[i].length;
+                    buf.putInt(layout.idEnds + 4 * i, end);
+                }
+                buf.putInt(40, checksum(buf, layout.size));
+                buf.force();
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Maps the file and copies the columns out in bulk; no per-edge decoding. */
+    public static Snapshot read(Path file) throws IOException {
+        return read(file, -1);
+    }
+
+    /**
+     * Graphs with at least offHeapMinEdges edges (negative: never) are not copied at all: they
+     * become an OffHeapCsrGraph over slices of the mapping, which is unmapped when the graph's last
+     * reference is released. Only the id dictionary is decoded onto the heap.
+     */
+    public static Snapshot read(Path file, long offHeapMinEdges) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw corrupt(file, "size " + size);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getLong(0) != MAGIC) throw corrupt(file, "bad magic");
+            if (buf.getInt(8) != VERSION) throw corrupt(file, "unsupported version " + buf.getInt(8));
+            int n = buf.getInt(12), m = buf.getInt(16), keyLength = buf.getInt(20);
+            long dictBytes = buf.getLong(24);
+            if (n < 0 || m < 0 || keyLength < 0 || dictBytes < 0) throw corrupt(file, "negative length");
+            Layout layout = new Layout(n, m, keyLength, dictBytes);
+            if (layout.size != size) throw corrupt(file, "expected " + layout.size + " bytes, found " + size);
+            if (buf.getInt(40) != checksum(buf, layout.size)) throw corrupt(file, "checksum mismatch");
+
+            byte[] keyBytes = new byte[keyLength];
+            buf.get(HEADER_BYTES, keyBytes);
+            DoubleBuffer weights = buf.slice(layout.weights, 8 * m).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            IntBuffer offsets = buf.slice(layout.offsets, 4 * (n + 1)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            IntBuffer targets = buf.slice(layout.targets, 4 * m).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            int[] idEnds = new int[n];
+            buf.slice(layout.idEnds, 4 * n).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(idEnds);
+            byte[] dict = new byte[(int) dictBytes];
+            buf.get(layout.dict, dict);
+
+            try {
+                String[] ids = new String[n];
+                for (int i = 0, start = 0; i < n; start = idEnds[i], i++) {
+                    ids[i] = new String(dict, start, idEnds[i] - start, StandardCharsets.UTF_8);
+                }
+                CsrGraph graph;
+                if (offHeapMinEdges >= 0 && m >= offHeapMinEdges) {
+                    graph = OffHeapCsrGraph.wrap(ids, offsets, targets, weights, buf);
+                } else {
+                    double[] w = new double[m];
+                    weights.get(w);
+                    int[] o = new int[n + 1];
+                    offsets.get(o);
+                    int[] t = new int[m];
+                    targets.get(t);
+                    graph = CsrGraph.fromColumns(ids, o, t, w);
+                }
+                return new Snapshot(decodeKey(keyBytes), graph, buf.getLong(32));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw corrupt(file, e.getMessage());
+            }
+        }
+    }
+
+    private static IOException corrupt(Path file, String reason) {
+        return new IOException("corrupt graph snapshot " + file + ": " + reason);
+    }
+
+    private static int checksum(MappedByteBuffer buf, long size) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+        return (int) crc.getValue();
+    }
+
+    /** Byte positions of every section; all int-addressable since a single mapping is at most 2 GB. */
+    private static final class Layout {
+        final int weights, offsets, targets, idEnds, dict;
+        final long size;
+
+        Layout(int n, int m, int keyLength, long dictBytes) throws IOException {
+            long w = (HEADER_BYTES + (long) keyLength + 7) & ~7L;
+            long o = w + 8L * m;
+            long t = o + 4L * (n + 1);
+            long e = t + 4L * m;
+            long d = e + 4L * n;
+            size = d + dictBytes;
+            if (size > Integer.MAX_VALUE) throw new IOException("graph too large for a snapshot file: " + size + " bytes");
+            weights = (int) w;
+            offsets = (int) o;
+            targets = (int) t;
+            idEnds = (int) e;
+            dict = (int) d;
+        }
+    }
+
+    // GraphKey params are ints, doubles, strings or string lists (see GraphKey.of); tagged by type
+    static byte[] encodeKey(GraphKey key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(key.graphType());
+            out.writeBoolean(key.undirected());
+            Map<String, Object> params = new TreeMap<>(key.queryParams());
+            out.writeInt(params.size());
+            for (Map.Entry<String, Object> e : params.entrySet()) {
+                out.writeUTF(e.getKey());
+                Object v = e.getValue();
+                if (v instanceof Integer i) {
+                    out.writeByte('I');
+                    out.writeInt(i);
+                } else if (v instanceof Number d) {
+                    out.writeByte('D');
+                    out.writeDouble(d.doubleValue());
+                } else if (v instanceof List<?> list) {
+                    out.writeByte('L');
+                    out.writeInt(list.size());
+                    for (Object item : list) out.writeUTF(String.valueOf(item));
+                } else {
+                    out.writeByte('S');
+                    out.writeUTF(String.valueOf(v));
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static GraphKey decodeKey(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            String graphType = in.readUTF();
+            boolean undirected = in.readBoolean();
+            int count = in.readInt();
+            Map<String, Object> params = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int tag = in.readByte();
+                Object value = switch (tag) {
+                    case 'I' -> in.readInt();
+                    case 'D' -> in.readDouble();
+                    case 'S' -> in.readUTF();
+                    case 'L' -> {
+                        int size = in.readInt();
+                        List<String> list = new ArrayList<>(size);
+                        for (int k = 0; k < size; k++) list.add(in.readUTF());
+                        yield List.copyOf(list);
+                    }
+                    default -> throw new IOException("unknown key param tag " + tag);
+                };
+                params.put(name, value);
+            }
+            return new GraphKey(graphType, undirected, params);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.cheplay.neo4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Directory of GraphSnapshotFile snapshots, one file per GraphKey, named
+ * {graphType}-{crc32 of the canonical key}.csr. Disabled when cheplay.graph.snapshot.dir is empty.
+ *
+ * Snapshots are a warm-start optimization only: every I/O or format error is counted and reported
+ * in stats(), and the caller falls back to loading from Neo4j.
+ */
+@Service
+public class GraphSnapshotStore {
+    static final String SUFFIX = ".csr";
+
+    private final Path dir;
+    private final LongAdder restored = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    public GraphSnapshotStore(@Value("${cheplay.graph.snapshot.dir:}") String dir) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+    }
+
+    public static GraphSnapshotStore disabled() {
+        return new GraphSnapshotStore("");
+    }
+
+    public boolean enabled() {
+        return dir != null;
+    }
+
+    public Path pathFor(GraphKey key) {
+        CRC32 crc = new CRC32();
+        crc.update(key.canonical().getBytes(StandardCharsets.UTF_8));
+        return dir.resolve(key.graphType() + "-" + String.format("%08x", crc.getValue()) + SUFFIX);
+    }
+
+    /** Snapshot stored for exactly this key, if any. */
+    public Optional<CsrGraph> read(GraphKey key) {
+        return read(key, -1);
+    }
+
+    /** As read(key); graphs with at least offHeapMinEdges edges stay in the file mapping (negative: never). */
+    public Optional<CsrGraph> read(GraphKey key, long offHeapMinEdges) {
+        if (!enabled()) return Optional.empty();
+        Path file = pathFor(key);
+        if (!Files.exists(file)) return Optional.empty();
+        try {
+            GraphSnapshotFile.Snapshot snapshot = GraphSnapshotFile.read(file, offHeapMinEdges);
+            // different keys may share a file name; the key stored inside decides
+            if (!snapshot.key().equals(key)) {
+                snapshot.graph().release();
+                return Optional.empty();
+            }
+            restored.increment();
+            return Optional.of(snapshot.graph());
+        } catch (IOException e) {
+            fail(e);
+            return Optional.empty();
+        }
+    }
+
+    /** Every readable snapshot in the directory, e.g. to fill the cache at startup. */
+    public List<GraphSnapshotFile.Snapshot> readAll() {
+        return readAll(-1);
+    }
+
+    public List<GraphSnapshotFile.Snapshot> readAll(long offHeapMinEdges) {
+        List<GraphSnapshotFile.Snapshot> out = new ArrayList<>();
+        for (Path file : files(null)) {
+            try {
+                out.add(GraphSnapshotFile.read(file, offHeapMinEdges));
+                restored.increment();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return out;
+    }
+
+    public void write(GraphKey key, CsrGraph graph) {
+        if (!enabled()) return;
+        try {
+            GraphSnapshotFile.write(pathFor(key), key, graph);
+            written.increment();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /** Deletes the snapshot of exactly this key, e.g. one written under another configuration. */
+    public boolean remove(GraphKey key) {
+        if (!enabled()) return false;
+        try {
+            return Files.deleteIfExists(pathFor(key));
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    /** Deletes the snapshots of one graph type (null: all), so stale data is not restored again. */
+    public int delete(String graphType) {
+        int removed = 0;
+        for (Path file : files(graphType)) {
+            try {
+                if (Files.deleteIfExists(file)) removed++;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return removed;
+    }
+
+    /** Records a failure that happened outside the store, e.g. a background refresh. */
+    public void fail(Exception e) {
+        failures.increment();
+        lastError.set(e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new HashMap<>();
+        out.put("enabled", enabled());
+        if (enabled()) {
+            out.put("dir", dir.toString());
+            out.put("files", files(null).size());
+        }
+        out.put("restored", restored.sum());
+        out.put("written", written.sum());
+        out.put("failures", failures.sum());
+        if (lastError.get() != null) out.put("lastError", lastError.get());
+        return out;
+    }
+
+    private List<Path> files(String graphType) {
+        List<Path> out = new ArrayList<>();
+        if (!enabled() || !Files.isDirectory(dir)) return out;
+        String glob = (graphType == null ? "*" : graphType.toLowerCase() + "-*") + SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path file : stream) out.add(file);
+        } catch (IOException e) {
+            fail(e);
+        }
+        return out;
+    }
+}
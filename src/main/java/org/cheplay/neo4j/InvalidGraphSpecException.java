@@ -0,0 +1,12 @@
+package org.cheplay.neo4j;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A graph request parameter the graph queries cannot use, e.g. a non-numeric window; answered with 400. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidGraphSpecException extends IllegalArgumentException {
+    public InvalidGraphSpecException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,18 @@
 package org.cheplay.neo4j;
 
 import org.neo4j.driver.Driver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class Neo4jConfig {
     @Bean(destroyMethod = "close")
-    public DbConnector dbConnector(Driver driver) {
+    public DbConnector dbConnector(
+        Driver driver,
+        @Value("${cheplay.graph.fetch-size:" + DynamicGraphAdapter.DEFAULT_FETCH_SIZE + "}") int fetchSize
+    ) {
         // Usa el Driver administrado por Spring (configurado con spring.neo4j.*)
-        return DbConnector.from(driver);
+        return DbConnector.from(driver, fetchSize);
     }
 }
@@ -2,59 +2,191 @@ package org.cheplay.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.cheplay.algorithm.backtracking.BacktrackingExamples;
 import org.cheplay.algorithm.branchandbound.BranchAndBoundExamples;
 import org.cheplay.algorithm.divideandconquer.MergeSort;
 import org.cheplay.algorithm.divideandconquer.QuickSort;
 import org.cheplay.algorithm.dynamic.DynamicProgrammingExamples;
+import org.cheplay.algorithm.graph.AllSourcesTraversal;
 import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
 import org.cheplay.algorithm.graph.DFS;
 import org.cheplay.algorithm.greedy.GreedyExamples;
+import org.cheplay.algorithm.mst.Boruvka;
 import org.cheplay.algorithm.mst.Kruskal;
 import org.cheplay.algorithm.mst.Prim;
+import org.cheplay.algorithm.shortestpath.BidirectionalDijkstra;
+import org.cheplay.algorithm.shortestpath.DeltaStepping;
 import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.cheplay.dto.AlgorithmBatchRequest;
 import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.dto.AlgorithmResponse;
 import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphKey;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AlgorithmService {
+    /** Below this many nodes the sequential heap Dijkstra wins over delta-stepping's phase overhead. */
+    static final int DELTA_STEPPING_MIN_NODES = 50_000;
+
     private final DynamicGraphAdapter dynamicGraphAdapter;
 
     public AlgorithmService(DynamicGraphAdapter dynamicGraphAdapter) {
         this.dynamicGraphAdapter = dynamicGraphAdapter;
     }
 
+    /**
+     * Runs one of the graph algorithms (bfs, dfs, dijkstra, prim, kruskal, boruvka, closeness) on
+     * a graph the caller already holds, e.g. a named projection. Same parameters as the runX methods.
+     */
+    public Object run(String algorithm, CsrGraph graph, AlgorithmRequest req) {
+        return switch (algorithm == null ? "" : algorithm.toLowerCase()) {
+            case "bfs" -> Map.of("order", BFS.bfs(graph, req.start));
+            case "dfs" -> Map.of("order", DFS.dfs(graph, req.start));
+            case "dijkstra" -> dijkstra(graph, req);
+            case "prim" -> Prim.minimumSpanningTree(graph, req.start);
+            case "kruskal" -> Kruskal.minimumSpanningTree(graph);
+            case "boruvka" -> Boruvka.minimumSpanningForest(graph);
+            case "closeness" -> closeness(graph, req);
+            default -> throw new IllegalArgumentException("unknown graph algorithm: " + algorithm);
+        };
+    }
+
+    /**
+     * Runs every invocation of batch against one load of batch.graph instead of one request each.
+     * Results come back in the order of batch.runs, see runAll().
+     */
+    public List<AlgorithmResponse> runBatch(AlgorithmBatchRequest batch) {
+        if (batch == null || batch.graph == null || batch.runs == null || batch.runs.isEmpty()) return List.of();
+        // spec only: per-run starts are added by runAll, not baked into the shared graph
+        AlgorithmRequest spec = GraphKey.of(batch.graph).toRequest();
+        return dynamicGraphAdapter.withGraph(spec, graph -> runAll(graph, batch.runs));
+    }
+
+    /**
+     * Runs the invocations in parallel (one virtual thread each) on graph, which is only read, and
+     * waits for all of them. A start that is not a node is added on a private copy per run. A failing
+     * run does not fail the others: its entry has no result and metadata.error instead.
+     */
+    public List<AlgorithmResponse> runAll(CsrGraph graph, List<AlgorithmBatchRequest.Invocation> runs) {
+        List<Future<AlgorithmResponse>> futures = new ArrayList<>(runs.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (AlgorithmBatchRequest.Invocation run : runs) {
+                futures.add(executor.submit(() -> runOne(graph, run)));
+            }
+        }
+        List<AlgorithmResponse> out = new ArrayList<>(futures.size());
+        for (Future<AlgorithmResponse> f : futures) out.add(f.resultNow());
+        return out;
+    }
+
+    private AlgorithmResponse runOne(CsrGraph graph, AlgorithmBatchRequest.Invocation run) {
+        AlgorithmResponse res = new AlgorithmResponse();
+        res.algorithm = run.algorithm;
+        res.metadata = new HashMap<>();
+        long started = System.nanoTime();
+        try {
+            AlgorithmRequest req = run.toRequest();
+            CsrGraph g = req.start != null && !req.start.isBlank() ? graph.withNode(req.start) : graph;
+            res.result = run(run.algorithm, g, req);
+        } catch (RuntimeException e) {
+            res.metadata.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        res.metadata.put("millis", (System.nanoTime() - started) / 1_000_000);
+        return res;
+    }
+
     public Object runBFS(AlgorithmRequest req) {
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-        List<String> order = BFS.bfs(adj, req.start);
-        return Map.of("order", order);
+        return dynamicGraphAdapter.withGraph(req, graph -> run("bfs", graph, req));
     }
 
     public Object runDFS(AlgorithmRequest req) {
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-        List<String> order = new ArrayList<>();
-        DFS.dfs(req.start, adj, new HashSet<>(), order);
-        return Map.of("order", order);
+        return dynamicGraphAdapter.withGraph(req, graph -> run("dfs", graph, req));
     }
 
+    /**
+     * Single-source distances to every node, or, when req.target is set, a point-to-point
+     * query answered by bidirectional Dijkstra (distance + path, stops when the frontiers meet).
+     *
+     * Full distance maps use parallel delta-stepping on large graphs and the sequential heap
+     * Dijkstra otherwise. params.mode forces one of them ("sequential" or "delta"); params.delta
+     * overrides the bucket width.
+     */
     public Object runDijkstra(AlgorithmRequest req) {
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-        return Dijkstra.dijkstra(adj, req.start);
+        return dynamicGraphAdapter.withGraph(req, graph -> run("dijkstra", graph, req));
+    }
+
+    private static Object dijkstra(CsrGraph graph, AlgorithmRequest req) {
+        if (req.target != null && !req.target.isBlank()) {
+            return BidirectionalDijkstra.shortestPath(graph, req.start, req.target);
+        }
+        Object modeObj = req.params != null ? req.params.get("mode") : null;
+        String mode = modeObj != null ? modeObj.toString() : "auto";
+        boolean parallel = switch (mode.toLowerCase()) {
+            case "sequential" -> false;
+            case "delta" -> true;
+            default -> graph.nodeCount() >= DELTA_STEPPING_MIN_NODES
+                    && java.util.concurrent.ForkJoinPool.getCommonPoolParallelism() > 1;
+        };
+        if (!parallel) return Dijkstra.dijkstra(graph, req.start);
+
+        Object deltaObj = req.params != null ? req.params.get("delta") : null;
+        double delta = (deltaObj instanceof Number) && ((Number) deltaObj).doubleValue() > 0
+                ? ((Number) deltaObj).doubleValue()
+                : DeltaStepping.defaultDelta(graph);
+        return DeltaStepping.dijkstra(graph, req.start, delta, java.util.concurrent.ForkJoinPool.commonPool());
     }
 
     public Object runPrim(AlgorithmRequest req) {
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-        return Prim.minimumSpanningTree(adj, req.start);
+        return dynamicGraphAdapter.withGraph(req, graph -> run("prim", graph, req));
     }
 
     public Object runKruskal(AlgorithmRequest req) {
-        Map<String, Map<String, Double>> adj = dynamicGraphAdapter.buildAdjacency(req);
-        return Kruskal.minimumSpanningTree(adj);
+        return dynamicGraphAdapter.withGraph(req, graph -> run("kruskal", graph, req));
+    }
+
+    /** Parallel minimum spanning forest; unlike Prim it covers every component of the graph. */
+    public Object runBoruvka(AlgorithmRequest req) {
+        return dynamicGraphAdapter.withGraph(req, graph -> run("boruvka", graph, req));
+    }
+
+    /**
+     * Closeness centrality from a BFS out of every node (parallel, see AllSourcesTraversal).
+     * params.k limits the output to the top-k nodes (default 20, <= 0 returns all).
+     */
+    public Object runCloseness(AlgorithmRequest req) {
+        return dynamicGraphAdapter.withGraph(req, graph -> run("closeness", graph, req));
+    }
+
+    private static Object closeness(CsrGraph graph, AlgorithmRequest req) {
+        AllSourcesTraversal.Result res = AllSourcesTraversal.run(graph);
+        Object kObj = req.params != null ? req.params.get("k") : null;
+        int k = (kObj instanceof Number) ? ((Number) kObj).intValue() : 20;
+
+        Integer[] order = new Integer[graph.nodeCount()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> Double.compare(res.closeness(b), res.closeness(a)));
+
+        int limit = k <= 0 ? order.length : Math.min(k, order.length);
+        List<Map<String, Object>> out = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            int v = order[i];
+            out.add(Map.of(
+                "id", graph.id(v),
+                "closeness", res.closeness(v),
+                "harmonic", res.harmonic()[v],
+                "reached", res.reached()[v]
+            ));
+        }
+        return out;
     }
 
     public Object runQuickSort(List<Integer> numbers) {
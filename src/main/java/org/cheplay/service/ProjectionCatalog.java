@@ -0,0 +1,205 @@
+package org.cheplay.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Named graph projections: a graph is loaded once from an AlgorithmRequest spec and kept under a
+ * name until it is dropped, so any number of algorithm runs reuse it without touching Neo4j.
+ *
+ * Unlike the GraphSnapshotCache, projections never expire or get evicted; instead the sum of their
+ * estimatedBytes() is capped at cheplay.graph.projections.max-bytes and create() fails beyond it.
+ * A dropped projection is released once the runs still using it finish (see CsrGraph.tryRetain).
+ */
+@Service
+public class ProjectionCatalog {
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    private final Function<AlgorithmRequest, CsrGraph> loader;
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, Projection> projections = new ConcurrentHashMap<>();
+    /** Names whose graph is being loaded, so a concurrent create of the same name fails before loading. */
+    private final Set<String> creating = ConcurrentHashMap.newKeySet();
+    /** Serializes create/drop so the byte budget is checked against a stable total. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    /** What fn returned in withProjection, possibly null; wrapped so it is never mistaken for a missing projection. */
+    public record Run<T>(T result) {}
+
+    private static final class Projection {
+        final String name;
+        final GraphKey key;
+        final CsrGraph graph;
+        final long bytes;
+        final long loadMillis;
+        final Instant createdAt = Instant.now();
+        final AtomicLong runs = new AtomicLong();
+        volatile Instant lastRunAt;
+
+        Projection(String name, GraphKey key, CsrGraph graph, long loadMillis) {
+            this.name = name;
+            this.key = key;
+            this.graph = graph;
+            this.bytes = graph.estimatedBytes();
+            this.loadMillis = loadMillis;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> out = new HashMap<>();
+            out.put("name", name);
+            out.put("spec", key.canonical());
+            out.put("nodes", graph.nodeCount());
+            out.put("edges", graph.edgeCount());
+            out.put("bytes", bytes);
+            out.put("offHeapBytes", graph.offHeapBytes());
+            out.put("loadMillis", loadMillis);
+            out.put("createdAt", createdAt.toString());
+            out.put("runs", runs.get());
+            if (lastRunAt != null) out.put("lastRunAt", lastRunAt.toString());
+            return out;
+        }
+    }
+
+    @Autowired
+    public ProjectionCatalog(
+        DynamicGraphAdapter dynamicGraphAdapter,
+        @Value("${cheplay.graph.projections.max-bytes:1073741824}") long maxBytes
+    ) {
+        this(dynamicGraphAdapter::loadFresh, maxBytes);
+    }
+
+    public ProjectionCatalog(Function<AlgorithmRequest, CsrGraph> loader, long maxBytes) {
+        this.loader = loader;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Loads spec and registers it as name. Fails with IllegalArgumentException for a bad name and
+     * IllegalStateException if the name is taken (checked before loading, including names still
+     * being created) or the projection does not fit the byte budget. A loaded graph that does not
+     * end up registered is released.
+     */
+    public Map<String, Object> create(String name, AlgorithmRequest spec) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("projection name must match " + NAME.pattern() + ": " + name);
+        }
+        GraphKey key = GraphKey.of(spec);
+        if (projections.containsKey(name) || !creating.add(name)) {
+            throw new IllegalStateException("projection already exists: " + name);
+        }
+        try {
+            long started = System.nanoTime();
+            CsrGraph graph = loader.apply(spec);
+            Projection p;
+            try {
+                p = new Projection(name, key, graph, (System.nanoTime() - started) / 1_000_000);
+                register(p);
+            } catch (RuntimeException | Error e) {
+                graph.release();
+                throw e;
+            }
+            return p.describe();
+        } finally {
+            creating.remove(name);
+        }
+    }
+
+    private void register(Projection p) {
+        lock.lock();
+        try {
+            if (projections.containsKey(p.name)) {
+                throw new IllegalStateException("projection already exists: " + p.name);
+            }
+            if (totalBytes + p.bytes > maxBytes) {
+                throw new IllegalStateException("projection " + p.name + " needs " + p.bytes + " bytes, only "
+                    + (maxBytes - totalBytes) + " of " + maxBytes + " left");
+            }
+            projections.put(p.name, p);
+            totalBytes += p.bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes name; runs in progress finish on the graph they already hold. */
+    public Optional<Map<String, Object>> drop(String name) {
+        lock.lock();
+        try {
+            Projection p = projections.remove(name);
+            if (p == null) return Optional.empty();
+            totalBytes -= p.bytes;
+            Map<String, Object> out = p.describe();
+            p.graph.release();
+            return Optional.of(out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Map<String, Object>> describe(String name) {
+        Projection p = projections.get(name);
+        return p == null ? Optional.empty() : Optional.of(p.describe());
+    }
+
+    /** Every projection (sorted by name) with the memory totals. */
+    public Map<String, Object> list() {
+        List<Projection> all = new ArrayList<>(projections.values());
+        all.sort(Comparator.comparing(p -> p.name));
+        List<Map<String, Object>> rows = new ArrayList<>(all.size());
+        for (Projection p : all) rows.add(p.describe());
+        Map<String, Object> out = new HashMap<>();
+        out.put("projections", rows);
+        out.put("totalBytes", totalBytes());
+        out.put("maxBytes", maxBytes);
+        return out;
+    }
+
+    public long totalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs fn on the projection's graph, holding a reference until it returns; empty only if there is
+     * no such projection, a null result comes back as a Run holding null. req.start, when it is not a
+     * node, is added on a private copy as usual.
+     */
+    public <T> Optional<Run<T>> withProjection(String name, AlgorithmRequest req, Function<CsrGraph, T> fn) {
+        Projection p = projections.get(name);
+        // a failed retain means it was dropped after the lookup
+        if (p == null || !p.graph.tryRetain()) return Optional.empty();
+        try {
+            p.runs.incrementAndGet();
+            p.lastRunAt = Instant.now();
+            CsrGraph graph = p.graph;
+            if (req != null && req.start != null && !req.start.isBlank()) graph = graph.withNode(req.start);
+            return Optional.of(new Run<>(fn.apply(graph)));
+        } finally {
+            p.graph.release();
+        }
+    }
+}
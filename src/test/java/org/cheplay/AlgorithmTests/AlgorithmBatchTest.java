@@ -0,0 +1,70 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.dto.AlgorithmBatchRequest;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.dto.AlgorithmResponse;
+import org.cheplay.service.AlgorithmService;
+import org.junit.jupiter.api.Test;
+
+public class AlgorithmBatchTest {
+
+    private static AlgorithmBatchRequest.Invocation run(String algorithm, String start) {
+        AlgorithmBatchRequest.Invocation inv = new AlgorithmBatchRequest.Invocation();
+        inv.algorithm = algorithm;
+        inv.start = start;
+        return inv;
+    }
+
+    private static CsrGraph square() {
+        return CsrGraph.builder()
+            .addEdge("a", "b", 1.0).addEdge("b", "a", 1.0)
+            .addEdge("b", "c", 2.0).addEdge("c", "b", 2.0)
+            .addEdge("c", "d", 1.0).addEdge("d", "c", 1.0)
+            .addEdge("d", "a", 5.0).addEdge("a", "d", 5.0)
+            .build();
+    }
+
+    @Test
+    void resultsMatchSingleRunsInRequestOrder() {
+        // runAll never goes back to the adapter
+        AlgorithmService service = new AlgorithmService(null);
+        CsrGraph graph = square();
+        List<AlgorithmBatchRequest.Invocation> runs = new ArrayList<>();
+        for (String start : new String[] { "a", "b", "c", "d" }) runs.add(run("bfs", start));
+        runs.add(run("dijkstra", "a"));
+        runs.add(run("prim", "a"));
+        runs.add(run("kruskal", null));
+
+        List<AlgorithmResponse> out = service.runAll(graph, runs);
+        assertEquals(runs.size(), out.size());
+        for (int i = 0; i < runs.size(); i++) {
+            AlgorithmRequest req = runs.get(i).toRequest();
+            assertEquals(runs.get(i).algorithm, out.get(i).algorithm);
+            // MST edges have no equals(), their printed form is compared instead
+            assertEquals(String.valueOf(service.run(runs.get(i).algorithm, graph, req)), String.valueOf(out.get(i).result));
+            assertTrue(out.get(i).metadata.containsKey("millis"));
+        }
+    }
+
+    @Test
+    void aFailingRunDoesNotFailTheBatch() {
+        AlgorithmService service = new AlgorithmService(null);
+        CsrGraph graph = square();
+        List<AlgorithmResponse> out = service.runAll(graph, List.of(run("pagerank", "a"), run("bfs", "nuevo")));
+        assertNull(out.get(0).result);
+        assertTrue(out.get(0).metadata.get("error").toString().contains("pagerank"));
+        // unknown start gets its own copy; the shared graph is untouched
+        assertEquals(Map.of("order", List.of("nuevo")), out.get(1).result);
+        assertEquals(-1, graph.indexOf("nuevo"));
+        assertEquals(List.of(), service.runBatch(new AlgorithmBatchRequest()));
+    }
+}
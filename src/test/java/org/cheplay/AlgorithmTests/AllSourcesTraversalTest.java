@@ -0,0 +1,49 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cheplay.algorithm.graph.AllSourcesTraversal;
+import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.Reachability;
+import org.junit.jupiter.api.Test;
+
+public class AllSourcesTraversalTest {
+
+    @Test
+    void matchesSequentialBfsAndReachability() {
+        Random rnd = new Random(9);
+        int n = 400;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("v" + i);
+        for (int i = 0; i < 700; i++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 1.0);
+        CsrGraph g = b.build();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AllSourcesTraversal.Result res = AllSourcesTraversal.run(g, pool);
+            int[] reach = Reachability.reachableCounts(g);
+            for (int v = 0; v < n; v++) {
+                assertEquals(BFS.bfs(g, g.id(v)).size(), res.reached()[v]);
+                assertEquals(reach[v], res.reached()[v]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void closenessOnPath() {
+        // a - b - c: b is at distance 1 from both ends
+        CsrGraph g = CsrGraph.builder()
+            .addEdge("a", "b", 1).addEdge("b", "a", 1).addEdge("b", "c", 1).addEdge("c", "b", 1)
+            .build();
+        AllSourcesTraversal.Result res = AllSourcesTraversal.run(g);
+        assertEquals(1.0, res.closeness(g.indexOf("b")), 1e-12);
+        assertEquals(2.0 / 3.0, res.closeness(g.indexOf("a")), 1e-12);
+        assertEquals(1.5, res.harmonic()[g.indexOf("a")], 1e-12);
+    }
+}
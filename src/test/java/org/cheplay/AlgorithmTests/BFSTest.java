@@ -1,6 +1,14 @@
 package org.cheplay.AlgorithmTests;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
 import org.junit.jupiter.api.Test;
 
 public class BFSTest {
@@ -8,4 +16,25 @@ public class BFSTest {
     void runBFS() {
         assertDoesNotThrow(() -> ReflectiveTestBase.runClass("org.cheplay.algorithm.graph.BFS"));
     }
+
+    @Test
+    void multiSourceStopsAtDepthAndCountsNearestSeeds() {
+        // s1 - x - y - z,  s2 - x,  s3 - y
+        CsrGraph.Builder b = CsrGraph.builder();
+        String[][] edges = {{"s1", "x"}, {"x", "y"}, {"y", "z"}, {"s2", "x"}, {"s3", "y"}};
+        for (String[] e : edges) b.addEdge(e[0], e[1], 1.0).addEdge(e[1], e[0], 1.0);
+        CsrGraph g = b.build();
+
+        Map<String, BFS.Hit> hits = BFS.multiSource(g, List.of("s1", "s2", "s3"), 1).stream()
+            .collect(Collectors.toMap(BFS.Hit::node, h -> h));
+        assertEquals(new BFS.Hit("x", 1, 2), hits.get("x"));
+        assertEquals(new BFS.Hit("y", 1, 1), hits.get("y"));
+        assertEquals(new BFS.Hit("s1", 0, 1), hits.get("s1"));
+        assertEquals(5, hits.size());
+
+        Map<String, BFS.Hit> deeper = BFS.multiSource(g, List.of("s1", "s2"), 3).stream()
+            .collect(Collectors.toMap(BFS.Hit::node, h -> h));
+        assertEquals(new BFS.Hit("z", 3, 2), deeper.get("z"));
+        assertEquals(new BFS.Hit("s3", 3, 2), deeper.get("s3"));
+    }
 }
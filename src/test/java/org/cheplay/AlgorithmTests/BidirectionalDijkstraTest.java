@@ -0,0 +1,50 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.shortestpath.BidirectionalDijkstra;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.junit.jupiter.api.Test;
+
+public class BidirectionalDijkstraTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchesDijkstraAndReturnsAValidPath() {
+        Random rnd = new Random(21);
+        int n = 300;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("u" + i);
+        for (int i = 0; i < n * 3; i++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 0.05 + rnd.nextDouble());
+        CsrGraph g = b.build();
+
+        for (int q = 0; q < 40; q++) {
+            String s = g.id(rnd.nextInt(n)), t = g.id(rnd.nextInt(n));
+            double expected = ((Map<String, Double>) Dijkstra.dijkstra(g, s).get("distances")).get(t);
+            Map<String, Object> res = BidirectionalDijkstra.shortestPath(g, s, t);
+            double got = (Double) res.get("distance");
+            assertEquals(expected, got, 1e-9);
+
+            List<String> path = (List<String>) res.get("path");
+            if (Double.isInfinite(expected)) {
+                assertTrue(path.isEmpty());
+                continue;
+            }
+            assertEquals(s, path.get(0));
+            assertEquals(t, path.get(path.size() - 1));
+            double len = 0;
+            for (int i = 0; i + 1 < path.size(); i++) {
+                int e = g.findEdge(g.indexOf(path.get(i)), g.indexOf(path.get(i + 1)));
+                assertTrue(e >= 0);
+                len += g.weight(e);
+            }
+            assertEquals(expected, len, 1e-9);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.mst.Boruvka;
+import org.cheplay.algorithm.mst.Kruskal;
+import org.junit.jupiter.api.Test;
+
+public class BoruvkaTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchesKruskalWeightOnLargeRandomGraph() {
+        Random rnd = new Random(12);
+        int n = 20_000;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("s" + i);
+        for (int i = 0; i < n * 6; i++) {
+            int u = rnd.nextInt(n), v = rnd.nextInt(n);
+            // coarse weights produce many ties, which the tie-break has to resolve without cycles
+            double w = rnd.nextInt(20);
+            b.addEdge(u, v, w).addEdge(v, u, w);
+        }
+        CsrGraph g = b.build();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, Object> forest = Boruvka.minimumSpanningForest(g, pool);
+            Map<String, Object> kruskal = Kruskal.minimumSpanningTree(g);
+            assertEquals((Double) kruskal.get("weight"), (Double) forest.get("weight"), 1e-9);
+            int edges = ((List<Kruskal.Edge>) forest.get("mst")).size();
+            assertEquals(((List<Kruskal.Edge>) kruskal.get("mst")).size(), edges);
+            assertEquals(n - edges, forest.get("components"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void spansEveryComponent() {
+        CsrGraph.Builder b = CsrGraph.builder();
+        b.addEdge("a", "b", 1.0).addEdge("b", "a", 1.0)
+         .addEdge("b", "c", 2.0).addEdge("c", "b", 2.0)
+         .addEdge("a", "c", 5.0).addEdge("c", "a", 5.0)
+         .addEdge("x", "y", 3.0).addEdge("y", "x", 3.0);
+        b.addNode("alone");
+        Map<String, Object> forest = Boruvka.minimumSpanningForest(b.build());
+
+        assertEquals(6.0, (Double) forest.get("weight"), 1e-9);
+        assertEquals(3, ((List<Kruskal.Edge>) forest.get("mst")).size());
+        assertEquals(3, forest.get("components"));
+    }
+}
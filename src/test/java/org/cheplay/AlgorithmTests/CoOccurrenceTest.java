@@ -0,0 +1,98 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cheplay.algorithm.graph.BipartiteCsr;
+import org.cheplay.algorithm.graph.CoOccurrence;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.junit.jupiter.api.Test;
+
+public class CoOccurrenceTest {
+
+    @Test
+    void smallHistoryGivesCypherOverlapWeights() {
+        BipartiteCsr a = BipartiteCsr.builder()
+                .add("alice", "s1").add("alice", "s2").add("alice", "s2")
+                .add("bob", "s1").add("bob", "s2").add("bob", "s3")
+                .add("carol", "s3")
+                .build();
+        assertEquals(6, a.interactionCount());
+
+        CoOccurrence.Pairs items = CoOccurrence.itemPairs(a);
+        assertEquals(3, items.size());
+        CsrGraph g = items.toGraph(CoOccurrence.INVERSE_OVERLAP, true);
+        // s1-s2 shared by alice and bob (the repeated listen counts once), s1-s3 and s2-s3 only by bob
+        assertEquals(1.0 / 3.0, g.weight(g.findEdge(g.indexOf("s1"), g.indexOf("s2"))), 1e-12);
+        assertEquals(1.0 / 3.0, g.weight(g.findEdge(g.indexOf("s2"), g.indexOf("s1"))), 1e-12);
+        assertEquals(0.5, g.weight(g.findEdge(g.indexOf("s2"), g.indexOf("s3"))), 1e-12);
+
+        CsrGraph users = CoOccurrence.userPairs(a).toGraph(CoOccurrence.INVERSE_OVERLAP, true);
+        assertEquals(1.0 / 3.0, users.weight(users.findEdge(users.indexOf("alice"), users.indexOf("bob"))), 1e-12);
+        assertEquals(0.5, users.weight(users.findEdge(users.indexOf("bob"), users.indexOf("carol"))), 1e-12);
+        assertEquals(-1, users.findEdge(users.indexOf("alice"), users.indexOf("carol")));
+    }
+
+    @Test
+    void parallelCountsMatchBruteForce() {
+        Random rnd = new Random(5);
+        int users = 3000, items = 800;
+        BipartiteCsr.Builder b = BipartiteCsr.builder();
+        List<Set<Integer>> history = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            b.addUser("u" + u);
+            history.add(new HashSet<>());
+        }
+        for (int i = 0; i < items; i++) b.addItem("i" + i);
+        for (int u = 0; u < users; u++) {
+            // a few heavy users skew the work per user
+            int d = u % 500 == 0 ? 300 : 1 + rnd.nextInt(40);
+            for (int k = 0; k < d; k++) {
+                int i = rnd.nextInt(items);
+                b.add(u, i);
+                history.get(u).add(i);
+            }
+        }
+        BipartiteCsr a = b.build();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        for (Set<Integer> h : history) {
+            Integer[] row = h.toArray(new Integer[0]);
+            for (int p = 0; p < row.length; p++) {
+                for (int q = 0; q < row.length; q++) {
+                    if (row[p] < row[q]) expected.merge(((long) row[p] << 32) | row[q], 1, Integer::sum);
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            CoOccurrence.Pairs pairs = CoOccurrence.itemPairs(a, pool);
+            assertEquals(expected.size(), pairs.size());
+            long previous = -1;
+            for (int k = 0; k < pairs.size(); k++) {
+                long key = ((long) pairs.first(k) << 32) | pairs.second(k);
+                assertTrue(key > previous, "pairs are sorted and unique");
+                previous = key;
+                assertEquals(expected.get(key), pairs.overlap(k));
+            }
+
+            CoOccurrence.Pairs sequential = CoOccurrence.itemPairs(a, single);
+            assertEquals(pairs.size(), sequential.size());
+            for (int k = 0; k < pairs.size(); k++) assertEquals(pairs.overlap(k), sequential.overlap(k));
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.DFS;
+import org.cheplay.algorithm.mst.Kruskal;
+import org.cheplay.algorithm.mst.Prim;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.junit.jupiter.api.Test;
+
+public class CsrGraphTest {
+
+    static Map<String, Map<String, Double>> sample() {
+        Map<String, Map<String, Double>> adj = new HashMap<>();
+        adj.put("A", new HashMap<>(Map.of("B", 1.0, "C", 4.0)));
+        adj.put("B", new HashMap<>(Map.of("A", 1.0, "C", 2.0, "D", 5.0)));
+        adj.put("C", new HashMap<>(Map.of("A", 4.0, "B", 2.0, "D", 1.0)));
+        adj.put("D", new HashMap<>(Map.of("B", 5.0, "C", 1.0)));
+        adj.put("E", new HashMap<>());
+        return adj;
+    }
+
+    @Test
+    void builderKeepsMinimumOfParallelEdgesAndSortsRows() {
+        CsrGraph.Builder b = CsrGraph.builder();
+        b.addEdge("x", "z", 3.0).addEdge("x", "y", 2.0).addEdge("x", "z", 1.0).addNode("w");
+        CsrGraph g = b.build();
+        assertEquals(4, g.nodeCount());
+        assertEquals(2, g.edgeCount());
+        int x = g.indexOf("x");
+        assertTrue(g.target(g.begin(x)) < g.target(g.begin(x) + 1));
+        assertEquals(1.0, g.weight(g.findEdge(x, g.indexOf("z"))));
+        assertEquals(0, g.degree(g.indexOf("w")));
+        assertEquals(-1, g.indexOf("missing"));
+        assertTrue(g.reverse().hasEdge(g.indexOf("z"), x));
+        assertFalse(g.reverse().hasEdge(x, g.indexOf("z")));
+        assertEquals(x, g.sourceOf(g.begin(x) + 1));
+    }
+
+    @Test
+    void algorithmsMatchMapVersions() {
+        Map<String, Map<String, Double>> adj = sample();
+        CsrGraph g = CsrGraph.fromAdjacency(adj);
+        assertEquals(adj, g.toAdjacency());
+
+        assertEquals(new HashSet<>(BFS.bfs(adj, "A")), new HashSet<>(BFS.bfs(g, "A")));
+        assertEquals(4, DFS.dfs(g, "A").size());
+        assertEquals(Dijkstra.dijkstra(adj, "A").get("distances"), Dijkstra.dijkstra(g, "A").get("distances"));
+        assertEquals(Prim.minimumSpanningTree(adj, "A").get("weight"), Prim.minimumSpanningTree(g, "A").get("weight"));
+        assertEquals(Kruskal.minimumSpanningTree(adj).get("weight"), Kruskal.minimumSpanningTree(g).get("weight"));
+        assertEquals(List.of(), BFS.bfs(g, "missing"));
+    }
+}
@@ -1,6 +1,16 @@
 package org.cheplay.AlgorithmTests;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.DFS;
 import org.junit.jupiter.api.Test;
 
 public class DFSTest {
@@ -8,4 +18,38 @@ public class DFSTest {
     void runDFS() {
         assertDoesNotThrow(() -> ReflectiveTestBase.runClass("org.cheplay.algorithm.graph.DFS"));
     }
+
+    @Test
+    void longChainDoesNotOverflow() {
+        int n = 200_000;
+        Map<String, Map<String, Double>> adj = new HashMap<>();
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i + 1 < n; i++) {
+            adj.put("m" + i, Map.of("m" + (i + 1), 1.0));
+            b.addEdge("m" + i, "m" + (i + 1), 1.0);
+        }
+        List<String> order = new ArrayList<>();
+        DFS.dfs("m0", adj, new HashSet<>(), order);
+        assertEquals(n, order.size());
+        assertEquals(n, DFS.dfs(b.build(), "m0").size());
+    }
+
+    @Test
+    void boundedReportsDepthAndRespectsLimits() {
+        // a -> b -> c -> d, plus a -> d
+        CsrGraph g = CsrGraph.builder()
+            .addEdge("a", "b", 1.0).addEdge("b", "c", 1.0).addEdge("c", "d", 1.0).addEdge("a", "d", 1.0)
+            .build();
+
+        List<DFS.Visit> all = DFS.bounded(g, "a", Integer.MAX_VALUE, Integer.MAX_VALUE, 0, null);
+        assertEquals(List.of(new DFS.Visit("a", 0), new DFS.Visit("b", 1), new DFS.Visit("c", 2), new DFS.Visit("d", 3)), all);
+
+        // depth 1: d is skipped from c but reached directly from a
+        List<DFS.Visit> shallow = DFS.bounded(g, "a", 1, Integer.MAX_VALUE, 0, null);
+        assertEquals(List.of(new DFS.Visit("a", 0), new DFS.Visit("b", 1), new DFS.Visit("d", 1)), shallow);
+
+        assertEquals(2, DFS.bounded(g, "a", Integer.MAX_VALUE, 2, 0, null).size());
+        int c = g.indexOf("c");
+        assertEquals(3, DFS.bounded(g, "a", Integer.MAX_VALUE, Integer.MAX_VALUE, 1, v -> v == c).size());
+    }
 }
@@ -0,0 +1,68 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.shortestpath.DeltaStepping;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.junit.jupiter.api.Test;
+
+public class DeltaSteppingTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void distancesAreIdenticalToDijkstra() {
+        Random rnd = new Random(10);
+        int n = 20_000;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("n" + i);
+        for (int i = 0; i < n * 4; i++) {
+            // mix of light and heavy edges so both relaxation steps run
+            double w = rnd.nextInt(10) == 0 ? 5 + rnd.nextDouble() * 20 : rnd.nextDouble();
+            b.addEdge(rnd.nextInt(n), rnd.nextInt(n), w);
+        }
+        CsrGraph g = b.build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String source : new String[] { "n0", "n17", "n9999" }) {
+                Map<String, Double> expected = (Map<String, Double>) Dijkstra.dijkstra(g, source).get("distances");
+                for (double delta : new double[] { 0.05, DeltaStepping.defaultDelta(g), 50.0 }) {
+                    Map<String, Object> res = DeltaStepping.dijkstra(g, source, delta, pool);
+                    Map<String, Double> got = (Map<String, Double>) res.get("distances");
+                    assertEquals(expected, got);
+
+                    Map<String, String> prev = (Map<String, String>) res.get("prev");
+                    for (Map.Entry<String, String> e : prev.entrySet()) {
+                        int u = g.indexOf(e.getValue()), v = g.indexOf(e.getKey());
+                        assertEquals(got.get(e.getKey()), got.get(e.getValue()) + g.weight(g.findEdge(u, v)));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void handlesZeroWeightsAndUnknownSource() {
+        CsrGraph.Builder b = CsrGraph.builder();
+        b.addEdge("a", "b", 0.0).addEdge("b", "a", 0.0).addEdge("b", "c", 2.0);
+        b.addNode("lonely");
+        CsrGraph g = b.build();
+
+        Map<String, Object> res = DeltaStepping.dijkstra(g, "a");
+        Map<String, Double> dist = (Map<String, Double>) res.get("distances");
+        assertEquals(Dijkstra.dijkstra(g, "a").get("distances"), dist);
+        assertEquals("b", ((Map<String, String>) res.get("prev")).get("c"));
+        assertTrue(Double.isInfinite(dist.get("lonely")));
+
+        Map<String, Double> none = (Map<String, Double>) DeltaStepping.dijkstra(g, "missing").get("distances");
+        assertTrue(none.values().stream().allMatch(d -> Double.isInfinite(d)));
+    }
+}
@@ -1,6 +1,13 @@
 package org.cheplay.AlgorithmTests;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
 import org.junit.jupiter.api.Test;
 
 public class DijkstraTest {
@@ -8,4 +15,26 @@ public class DijkstraTest {
     void runDijkstra() {
         assertDoesNotThrow(() -> ReflectiveTestBase.runClass("org.cheplay.algorithm.shortestpath.Dijkstra"));
     }
+
+    @Test
+    void nearestReturnsFirstKInDistanceOrder() {
+        // chain a-b-c-d-e with unit weights plus a shortcut a-e of 2.5
+        CsrGraph.Builder b = CsrGraph.builder();
+        String[] chain = {"a", "b", "c", "d", "e"};
+        for (int i = 0; i + 1 < chain.length; i++) {
+            b.addEdge(chain[i], chain[i + 1], 1.0).addEdge(chain[i + 1], chain[i], 1.0);
+        }
+        b.addEdge("a", "e", 2.5).addEdge("e", "a", 2.5);
+        CsrGraph g = b.build();
+
+        List<Map.Entry<String, Double>> top2 = Dijkstra.nearest(g, List.of("a"), 2, Double.POSITIVE_INFINITY, null);
+        assertEquals(List.of(Map.entry("b", 1.0), Map.entry("c", 2.0)), top2);
+
+        int c = g.indexOf("c");
+        List<Map.Entry<String, Double>> skipC = Dijkstra.nearest(g, List.of("a"), 2, Double.POSITIVE_INFINITY, v -> v != c);
+        assertEquals(List.of(Map.entry("b", 1.0), Map.entry("e", 2.5)), skipC);
+
+        List<Map.Entry<String, Double>> radius = Dijkstra.nearest(g, List.of("a"), 0, 1.5, null);
+        assertEquals(List.of(Map.entry("b", 1.0)), radius);
+    }
 }
@@ -0,0 +1,271 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphRegistry;
+import org.cheplay.neo4j.GraphSnapshotCache;
+import org.cheplay.neo4j.GraphSnapshotStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GraphRegistryTest {
+
+    private static final Duration PERIOD = Duration.ofSeconds(60);
+
+    private static AlgorithmRequest bands() {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = "bands";
+        return req;
+    }
+
+    /** Graph whose single edge weight tells which load produced it. */
+    private static CsrGraph generation(int n) {
+        return CsrGraph.builder().addEdge("a", "b", n).build();
+    }
+
+    private static double weightOf(CsrGraph g) {
+        return g.weight(g.findEdge(g.indexOf("a"), g.indexOf("b")));
+    }
+
+    private static void awaitRefreshes(GraphRegistry registry, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (((Number) registry.stats().get("refreshes")).longValue() < expected) {
+            if (System.nanoTime() > deadline) throw new AssertionError("refresh did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void readsServeTheOldSnapshotWhileARefreshRuns() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Function<AlgorithmRequest, CsrGraph> loader = req -> {
+            int n = loads.incrementAndGet();
+            if (n > 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return generation(n);
+        };
+        GraphRegistry registry = new GraphRegistry(loader, PERIOD, now::get);
+
+        assertEquals(1.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        now.addAndGet(PERIOD.toNanos());
+        // stale: this read triggers the refresh but does not wait for it
+        assertEquals(1.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        assertEquals(1.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        release.countDown();
+        awaitRefreshes(registry, 1);
+        assertEquals(2.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        assertEquals(2, loads.get(), "only one refresh for concurrent stale reads");
+    }
+
+    @Test
+    void inFlightReadsKeepTheirSnapshotAcrossASwap() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicLong now = new AtomicLong();
+        OffHeapCsrGraph[] loaded = new OffHeapCsrGraph[2];
+        GraphRegistry registry = new GraphRegistry(req -> {
+            int n = loads.incrementAndGet();
+            loaded[n - 1] = OffHeapCsrGraph.copyOf(generation(n));
+            return loaded[n - 1];
+        }, PERIOD, now::get);
+
+        double seen = registry.withGraph(bands(), g -> {
+            registry.refresh("bands");
+            try {
+                awaitRefreshes(registry, 1);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            // swapped out but still leased by this read
+            assertEquals(1, loaded[0].references());
+            return weightOf(g);
+        });
+        assertEquals(1.0, seen);
+        assertEquals(0, loaded[0].references(), "freed once the last reader is done");
+        assertEquals(2.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+    }
+
+    private static void awaitFreed(OffHeapCsrGraph[] loaded, int i) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loaded[i] == null || loaded[i].references() > 0) {
+            if (System.nanoTime() > deadline) throw new AssertionError("graph was not released");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void aRefreshOnlyReplacesTheSnapshotItStartedFrom() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OffHeapCsrGraph[] loaded = new OffHeapCsrGraph[2];
+        GraphRegistry registry = new GraphRegistry(req -> {
+            int n = loads.incrementAndGet();
+            if (n == 2) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            OffHeapCsrGraph g = OffHeapCsrGraph.copyOf(generation(n));
+            loaded[n - 1] = g;
+            return g;
+        }, PERIOD, now::get);
+
+        assertEquals(1.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        registry.refresh("bands");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the key goes idle and is dropped while the reload is still running
+        now.addAndGet(10 * PERIOD.toNanos());
+        registry.refreshStale();
+        assertEquals(0, loaded[0].references());
+        release.countDown();
+        awaitFreed(loaded, 1);
+        assertEquals(0L, ((Number) registry.stats().get("refreshes")).longValue());
+        assertEquals(List.of(), registry.stats().get("entries"), "the dropped key is not brought back");
+    }
+
+    @Test
+    void aRefreshThatLosesToADeltaIsDiscarded() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        GraphRegistry registry = new GraphRegistry(req -> {
+            int n = loads.incrementAndGet();
+            if (n == 2) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return generation(n);
+        }, PERIOD, System::nanoTime);
+
+        registry.withGraph(bands(), GraphRegistryTest::weightOf);
+        registry.refresh("bands");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, registry.applyDelta("bands", key -> GraphDelta.builder().put("b", "c", 0.5).build()));
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.stats().toString().contains("refreshing=true")) {
+            if (System.nanoTime() > deadline) throw new AssertionError("refresh did not finish");
+            Thread.sleep(5);
+        }
+        CsrGraph g = registry.graph(bands());
+        assertEquals(1.0, weightOf(g));
+        assertTrue(g.hasEdge(g.indexOf("b"), g.indexOf("c")), "the delta is kept");
+        assertEquals(0L, ((Number) registry.stats().get("refreshes")).longValue());
+    }
+
+    @Test
+    void scheduledTickRefreshesStaleKeysAndDropsIdleOnes() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        GraphRegistry registry = new GraphRegistry(req -> generation(loads.incrementAndGet()), PERIOD, now::get);
+        registry.graph(bands());
+
+        now.addAndGet(PERIOD.toNanos() / 2);
+        registry.refreshStale();
+        awaitRefreshes(registry, 1);
+        assertEquals(2.0, weightOf(registry.graph(bands())));
+
+        now.addAndGet(10 * PERIOD.toNanos());
+        registry.refreshStale();
+        assertEquals(List.of(), registry.stats().get("entries"));
+        assertEquals(3.0, weightOf(registry.graph(bands())), "dropped keys load again on demand");
+    }
+
+    @Test
+    void firstReadsShareTheAdapterCacheAndItsSnapshotFiles(@TempDir Path dir) {
+        GraphSnapshotStore store = new GraphSnapshotStore(dir.toString());
+        GraphKey key = GraphKey.of(bands());
+        store.write(key, generation(7));
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, 1L << 20);
+        // no driver: the load fails and the snapshot file stands in
+        DynamicGraphAdapter adapter = new DynamicGraphAdapter(null, cache, 100, "cypher", store, -1);
+        GraphRegistry registry = new GraphRegistry(adapter);
+
+        assertEquals(7.0, registry.withGraph(bands(), GraphRegistryTest::weightOf));
+        CsrGraph cached = cache.getIfPresent(key);
+        assertSame(cached, registry.graph(bands()), "one copy for the cache and the registry");
+    }
+
+    @Test
+    void registryTakesOverTheCachesDeltaVersion(@TempDir Path dir) {
+        GraphKey key = GraphKey.of(bands());
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, 1L << 20);
+        cache.put(key, generation(7));
+        DynamicGraphAdapter adapter = new DynamicGraphAdapter(null, cache, 100, "cypher",
+            new GraphSnapshotStore(dir.toString()), -1);
+        GraphRegistry registry = new GraphRegistry(adapter);
+        registry.graph(bands());
+
+        GraphDelta delta = GraphDelta.builder().put("b", "c", 0.5).build();
+        Map<CsrGraph, CsrGraph> applied = new IdentityHashMap<>();
+        assertEquals(1, adapter.applyDelta("bands", k -> delta, applied));
+        assertEquals(1, registry.applyDelta("bands", k -> delta, applied));
+        CsrGraph updated = registry.graph(bands());
+        assertSame(cache.getIfPresent(key), updated, "one segmented version for both");
+        assertTrue(updated.hasEdge(updated.indexOf("b"), updated.indexOf("c")));
+
+        // without the shared versions the registry still applies the delta itself
+        GraphDelta next = GraphDelta.builder().put("c", "d", 0.5).build();
+        assertEquals(1, registry.applyDelta("bands", k -> next));
+        CsrGraph own = registry.graph(bands());
+        assertTrue(own.hasEdge(own.indexOf("c"), own.indexOf("d")));
+    }
+
+    @Test
+    void deltasAndFailedFirstLoads() {
+        AtomicInteger calls = new AtomicInteger();
+        GraphRegistry registry = new GraphRegistry(req -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("neo4j down");
+            return generation(1);
+        }, PERIOD, System::nanoTime);
+        assertThrows(IllegalStateException.class, () -> registry.graph(bands()));
+
+        CsrGraph before = registry.graph(bands());
+        int updated = registry.applyDelta("bands", key -> GraphDelta.builder().put("b", "c", 0.5).build());
+        assertEquals(1, updated);
+        CsrGraph after = registry.graph(bands());
+        assertTrue(after.hasEdge(after.indexOf("b"), after.indexOf("c")));
+        assertEquals(-1, before.indexOf("c"));
+        assertSame(after, registry.graph(bands()));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> entry = ((List<Map<String, Object>>) registry.stats().get("entries")).get(0);
+        assertEquals(2L, entry.get("version"));
+    }
+}
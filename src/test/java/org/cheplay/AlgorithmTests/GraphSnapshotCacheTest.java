@@ -0,0 +1,221 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphSnapshotCache;
+import org.cheplay.neo4j.InvalidGraphSpecException;
+import org.junit.jupiter.api.Test;
+
+public class GraphSnapshotCacheTest {
+
+    private static CsrGraph chain(int n) {
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i + 1 < n; i++) b.addEdge("n" + i, "n" + (i + 1), 1.0);
+        return b.build();
+    }
+
+    private static GraphKey key(String type) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = type;
+        return GraphKey.of(req);
+    }
+
+    @Test
+    void keyIgnoresFieldsTheQueryDoesNotRead() {
+        AlgorithmRequest a = new AlgorithmRequest();
+        a.graphType = "songs_hybrid";
+        a.undirected = true;
+        a.start = "x";
+        a.params = Map.of("window", 10, "k", 5);
+        AlgorithmRequest b = new AlgorithmRequest();
+        b.graphType = "SONGS_HYBRID";
+        b.undirected = true;
+        b.params = Map.of("lambda", 0.5);
+        assertEquals(GraphKey.of(a), GraphKey.of(b));
+        assertEquals("songs_hybrid|undirected|lambda=0.5,window=10", GraphKey.of(a).canonical());
+
+        AlgorithmRequest c = new AlgorithmRequest();
+        c.platforms = List.of("Netflix", "Disney");
+        AlgorithmRequest d = new AlgorithmRequest();
+        d.graphType = "movies";
+        d.platforms = List.of("Disney", "Netflix");
+        assertEquals(GraphKey.of(c), GraphKey.of(d));
+        d.undirected = true;
+        assertNotEquals(GraphKey.of(c), GraphKey.of(d));
+    }
+
+    @Test
+    void songsHybridParamsAreNormalizedLikeTheQuery() {
+        AlgorithmRequest text = new AlgorithmRequest();
+        text.graphType = "songs_hybrid";
+        text.params = Map.of("window", "20", "lambda", " 0.25 ");
+        AlgorithmRequest number = new AlgorithmRequest();
+        number.graphType = "songs_hybrid";
+        number.params = Map.of("window", 20.9, "lambda", 0.25);
+        // toInteger("20") = 20, toInteger(20.9) = 20: same graph, same key, never the default one
+        assertEquals(GraphKey.of(text), GraphKey.of(number));
+        assertEquals("songs_hybrid|directed|lambda=0.25,window=20", GraphKey.of(text).canonical());
+        assertEquals(GraphKey.of(text), GraphKey.of(GraphKey.of(text).toRequest()));
+
+        for (Object bad : List.of("veinte", -1, Double.NaN, true)) {
+            AlgorithmRequest req = new AlgorithmRequest();
+            req.graphType = "songs_hybrid";
+            req.params = Map.of("window", bad);
+            assertThrows(InvalidGraphSpecException.class, () -> GraphKey.of(req));
+        }
+        AlgorithmRequest negative = new AlgorithmRequest();
+        negative.graphType = "songs_hybrid";
+        negative.params = Map.of("lambda", "-0.5");
+        assertThrows(InvalidGraphSpecException.class, () -> GraphKey.of(negative));
+    }
+
+    @Test
+    void sharesSnapshotUntilTtlExpires() {
+        AtomicLong now = new AtomicLong();
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ofSeconds(10), 1L << 30, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        CsrGraph first = cache.get(key("bands"), () -> { loads.incrementAndGet(); return chain(10); });
+        assertSame(first, cache.get(key("bands"), () -> { loads.incrementAndGet(); return chain(10); }));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNull(cache.getIfPresent(key("bands")));
+        cache.get(key("bands"), () -> { loads.incrementAndGet(); return chain(10); });
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudgetAndInvalidatesByType() {
+        long one = chain(100).estimatedBytes();
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, one * 2 + one / 2);
+        cache.put(key("bands"), chain(100));
+        cache.put(key("movies_rated"), chain(100));
+        cache.getIfPresent(key("bands"));
+        cache.put(key("movies_by_users"), chain(100));
+
+        assertNotNull(cache.getIfPresent(key("bands")));
+        assertNull(cache.getIfPresent(key("movies_rated")));
+        assertEquals(2, cache.size());
+
+        assertEquals(1, cache.invalidate("BANDS"));
+        assertNull(cache.getIfPresent(key("bands")));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    void loadsThatRaceAnInvalidationAreNotCached() throws Exception {
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, 1L << 30);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<CsrGraph> stale = pool.submit(() -> cache.get(key("bands"), () -> {
+                loading.countDown();
+                try {
+                    written.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return chain(3);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // the source data changes while the load is still reading the old version
+            cache.invalidate("bands");
+            written.countDown();
+            assertEquals(3, stale.get(5, TimeUnit.SECONDS).nodeCount(), "its own caller still gets it");
+        } finally {
+            pool.shutdown();
+        }
+        assertNull(cache.getIfPresent(key("bands")));
+        assertEquals(4, cache.get(key("bands"), () -> chain(4)).nodeCount());
+
+        long generation = cache.generation(key("movies_rated"));
+        cache.update("movies_rated", (k, g) -> g);
+        assertFalse(cache.put(key("movies_rated"), chain(2), generation));
+        assertNull(cache.getIfPresent(key("movies_rated")));
+        assertTrue(cache.put(key("movies_rated"), chain(2), cache.generation(key("movies_rated"))));
+    }
+
+    @Test
+    void withNodeAddsIsolatedNodeWithoutTouchingTheSnapshot() {
+        CsrGraph g = chain(3);
+        CsrGraph h = g.withNode("extra");
+        assertSame(g, g.withNode("n1"));
+        assertEquals(3, g.nodeCount());
+        assertEquals(4, h.nodeCount());
+        assertEquals(0, h.degree(h.indexOf("extra")));
+        assertEquals(g.edgeCount(), h.edgeCount());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoadOnVirtualAndPlatformThreads() throws Exception {
+        for (boolean virtual : new boolean[] { true, false }) {
+            GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ofMinutes(1), 1L << 30);
+            AtomicInteger loads = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            int callers = 32;
+
+            ExecutorService pool = virtual
+                    ? Executors.newVirtualThreadPerTaskExecutor()
+                    : Executors.newFixedThreadPool(callers);
+            try {
+                List<Future<CsrGraph>> results = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    results.add(pool.submit(() -> cache.get(key("bands"), () -> {
+                        loads.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return chain(50);
+                    })));
+                }
+                // let every caller reach the cache before the single load completes
+                while ((Long) cache.stats().get("coalesced") + loads.get() < callers) Thread.sleep(5);
+                release.countDown();
+
+                CsrGraph first = results.get(0).get(10, TimeUnit.SECONDS);
+                for (Future<CsrGraph> f : results) assertSame(first, f.get(10, TimeUnit.SECONDS));
+                assertEquals(1, loads.get());
+                assertEquals((long) callers - 1, cache.stats().get("coalesced"));
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void failedLoadPropagatesToWaitersAndIsNotCached() {
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ofMinutes(1), 1L << 30);
+        assertThrows(IllegalStateException.class,
+                () -> cache.get(key("bands"), () -> { throw new IllegalStateException("db down"); }));
+        assertNull(cache.getIfPresent(key("bands")));
+        assertNotNull(cache.get(key("bands"), () -> chain(5)));
+    }
+}
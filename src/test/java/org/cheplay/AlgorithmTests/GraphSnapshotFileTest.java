@@ -0,0 +1,104 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphSnapshotFile;
+import org.cheplay.neo4j.GraphSnapshotStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GraphSnapshotFileTest {
+
+    private static CsrGraph randomGraph(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        CsrGraph.Builder b = CsrGraph.builder();
+        // non-ASCII ids exercise the UTF-8 dictionary
+        for (int i = 0; i < n; i++) b.addNode("canción-" + i);
+        b.addNode("aislado");
+        for (int e = 0; e < m; e++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), rnd.nextDouble());
+        return b.build();
+    }
+
+    private static GraphKey moviesKey(List<String> platforms) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.minScore = 0.25;
+        req.platforms = platforms;
+        req.undirected = true;
+        return GraphKey.of(req);
+    }
+
+    @Test
+    void roundTripKeepsGraphAndKey(@TempDir Path dir) throws IOException {
+        CsrGraph g = randomGraph(2_000, 20_000, 3);
+        GraphKey key = moviesKey(List.of("Netflix", "Max"));
+        Path file = dir.resolve("movies.csr");
+        GraphSnapshotFile.write(file, key, g);
+
+        GraphSnapshotFile.Snapshot snapshot = GraphSnapshotFile.read(file);
+        assertEquals(key, snapshot.key());
+        CsrGraph back = snapshot.graph();
+        assertEquals(g.fingerprint(), back.fingerprint());
+        assertEquals(g.ids(), back.ids());
+        assertEquals(g.indexOf("aislado"), back.indexOf("aislado"));
+        assertEquals(0, back.degree(back.indexOf("aislado")));
+
+        // the restored key reloads the same graph
+        AlgorithmRequest req = key.toRequest();
+        assertEquals(key, GraphKey.of(req));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "no temp file left behind");
+        }
+    }
+
+    @Test
+    void corruptedFileIsRejected(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("g.csr");
+        GraphSnapshotFile.write(file, moviesKey(List.of()), randomGraph(100, 500, 4));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+        assertTrue(e.getMessage().contains("checksum"));
+
+        Files.write(file, new byte[] { 1, 2, 3 });
+        assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+    }
+
+    @Test
+    void storeMatchesKeysAndDeletesByType(@TempDir Path dir) {
+        GraphSnapshotStore store = new GraphSnapshotStore(dir.toString());
+        GraphKey netflix = moviesKey(List.of("Netflix"));
+        GraphKey max = moviesKey(List.of("Max"));
+        AlgorithmRequest bands = new AlgorithmRequest();
+        bands.graphType = "bands";
+        GraphKey bandsKey = GraphKey.of(bands);
+
+        store.write(netflix, randomGraph(50, 200, 5));
+        store.write(bandsKey, randomGraph(30, 90, 6));
+        assertTrue(store.read(netflix).isPresent());
+        assertFalse(store.read(max).isPresent());
+        assertEquals(2, store.readAll().size());
+
+        assertEquals(1, store.delete("movies"));
+        assertFalse(store.read(netflix).isPresent());
+        assertTrue(store.read(bandsKey).isPresent());
+        Map<String, Object> stats = store.stats();
+        assertEquals(2L, stats.get("written"));
+        assertEquals(0L, stats.get("failures"));
+
+        assertFalse(GraphSnapshotStore.disabled().read(bandsKey).isPresent());
+    }
+}
@@ -0,0 +1,63 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.heap.IndexedMinHeap;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.junit.jupiter.api.Test;
+
+public class IndexedMinHeapTest {
+
+    @Test
+    void pollsInPriorityOrderAfterDecreaseKey() {
+        Random rnd = new Random(7);
+        int n = 500;
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        double[] p = new double[n];
+        for (int i = 0; i < n; i++) heap.insert(i, p[i] = rnd.nextDouble() * 100);
+        for (int i = 0; i < n; i += 3) {
+            p[i] = p[i] / 2;
+            heap.decreaseKey(i, p[i]);
+        }
+        assertFalse(heap.insertOrDecrease(1, p[1] + 1));
+        double last = -1;
+        while (!heap.isEmpty()) {
+            int k = heap.poll();
+            assertTrue(p[k] >= last);
+            last = p[k];
+            assertFalse(heap.contains(k));
+        }
+    }
+
+    @Test
+    void dijkstraMatchesBellmanFord() {
+        Random rnd = new Random(11);
+        int n = 200;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("n" + i);
+        for (int i = 0; i < n * 6; i++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 0.1 + rnd.nextDouble());
+        CsrGraph g = b.build();
+
+        double[] ref = new double[n];
+        Arrays.fill(ref, Double.POSITIVE_INFINITY);
+        ref[0] = 0;
+        for (int round = 0; round < n; round++) {
+            for (int u = 0; u < n; u++) {
+                for (int e = g.begin(u); e < g.end(u); e++) {
+                    ref[g.target(e)] = Math.min(ref[g.target(e)], ref[u] + g.weight(e));
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Double> dist = (Map<String, Double>) Dijkstra.dijkstra(g, g.id(0)).get("distances");
+        for (int v = 0; v < n; v++) assertEquals(ref[v], dist.get(g.id(v)), 1e-9);
+    }
+}
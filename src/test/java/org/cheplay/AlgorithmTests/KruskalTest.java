@@ -1,6 +1,19 @@
 package org.cheplay.AlgorithmTests;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.mst.ArrayUnionFind;
+import org.cheplay.algorithm.mst.EdgeList;
+import org.cheplay.algorithm.mst.Kruskal;
+import org.cheplay.algorithm.mst.Prim;
 import org.junit.jupiter.api.Test;
 
 public class KruskalTest {
@@ -8,4 +21,48 @@ public class KruskalTest {
     void runKruskal() {
         assertDoesNotThrow(() -> ReflectiveTestBase.runClass("org.cheplay.algorithm.mst.Kruskal"));
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void edgeListForestMatchesPrimOnConnectedGraph() {
+        Random rnd = new Random(11);
+        int n = 3000;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("m" + i);
+        for (int i = 1; i < n; i++) {
+            // random tree keeps the graph connected, extra edges give Kruskal something to reject
+            int j = rnd.nextInt(i);
+            double w = rnd.nextDouble();
+            b.addEdge(i, j, w).addEdge(j, i, w);
+        }
+        for (int i = 0; i < n * 5; i++) {
+            int u = rnd.nextInt(n), v = rnd.nextInt(n);
+            if (u == v) continue;
+            double w = rnd.nextDouble();
+            b.addEdge(u, v, w).addEdge(v, u, w);
+        }
+        CsrGraph g = b.build();
+
+        EdgeList edges = EdgeList.undirected(g);
+        assertEquals(g.edgeCount() / 2, edges.size());
+        int[] order = edges.sortedByWeight();
+        for (int i = 1; i < order.length; i++) assertTrue(edges.weight(order[i - 1]) <= edges.weight(order[i]));
+
+        Map<String, Object> kruskal = Kruskal.minimumSpanningTree(g);
+        Map<String, Object> prim = Prim.minimumSpanningTree(g, "m0");
+        assertEquals(n - 1, ((List<Kruskal.Edge>) kruskal.get("mst")).size());
+        assertEquals((Double) prim.get("weight"), (Double) kruskal.get("weight"), 1e-9);
+    }
+
+    @Test
+    void unionFindTracksComponents() {
+        ArrayUnionFind uf = new ArrayUnionFind(5);
+        assertTrue(uf.union(0, 1));
+        assertTrue(uf.union(3, 4));
+        assertFalse(uf.union(1, 0));
+        assertTrue(uf.connected(0, 1));
+        assertFalse(uf.connected(1, 3));
+        assertEquals(3, uf.components());
+        assertEquals(2, uf.sizeOf(4));
+    }
 }
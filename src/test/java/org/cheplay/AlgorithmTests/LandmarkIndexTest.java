@@ -0,0 +1,83 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.cheplay.algorithm.shortestpath.LandmarkIndex;
+import org.junit.jupiter.api.Test;
+
+public class LandmarkIndexTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchesDijkstraOnRandomDirectedGraph() {
+        Random rnd = new Random(9);
+        int n = 400;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("v" + i);
+        for (int i = 0; i < n * 3; i++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 0.1 + rnd.nextDouble());
+        CsrGraph g = b.build();
+        LandmarkIndex index = LandmarkIndex.build(g, 6);
+        assertEquals(6, index.landmarkCount());
+
+        for (int q = 0; q < 60; q++) {
+            String s = g.id(rnd.nextInt(n)), t = g.id(rnd.nextInt(n));
+            Map<String, Double> dist = (Map<String, Double>) Dijkstra.dijkstra(g, s).get("distances");
+            double expected = dist.get(t);
+            Map<String, Object> res = index.shortestPath(s, t);
+            assertEquals(expected, (Double) res.get("distance"), 1e-9);
+
+            List<String> path = (List<String>) res.get("path");
+            if (Double.isInfinite(expected)) {
+                assertTrue(path.isEmpty());
+                continue;
+            }
+            assertEquals(s, path.get(0));
+            assertEquals(t, path.get(path.size() - 1));
+            double len = 0;
+            for (int i = 1; i < path.size(); i++) {
+                len += g.weight(g.findEdge(g.indexOf(path.get(i - 1)), g.indexOf(path.get(i))));
+            }
+            assertEquals(expected, len, 1e-9);
+            assertTrue(index.lowerBound(g.indexOf(s), g.indexOf(t)) <= expected + 1e-9);
+        }
+    }
+
+    @Test
+    void settlesFewNodesOnALongPath() {
+        // a 2000-node line with the query near one end: plain Dijkstra from the middle settles
+        // half the line, ALT heads straight for the target
+        int n = 2000;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("p" + i);
+        for (int i = 0; i + 1 < n; i++) {
+            b.addEdge(i, i + 1, 1.0);
+            b.addEdge(i + 1, i, 1.0);
+        }
+        CsrGraph g = b.build();
+        LandmarkIndex index = LandmarkIndex.build(g, 4);
+
+        Map<String, Object> res = index.shortestPath("p1000", "p1010");
+        assertEquals(10.0, (Double) res.get("distance"), 1e-9);
+        assertTrue((Integer) res.get("settled") <= 11);
+    }
+
+    @Test
+    void provesUnreachableAcrossComponents() {
+        CsrGraph g = CsrGraph.builder()
+                .addEdge("a", "b", 1.0)
+                .addEdge("c", "d", 1.0)
+                .build();
+        LandmarkIndex index = LandmarkIndex.build(g, 2);
+        Map<String, Object> res = index.shortestPath("a", "d");
+        assertTrue(Double.isInfinite((Double) res.get("distance")));
+        assertTrue(((List<?>) res.get("path")).isEmpty());
+        assertEquals(0.0, (Double) index.shortestPath("b", "b").get("distance"));
+    }
+}
@@ -0,0 +1,137 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphSnapshotCache;
+import org.cheplay.neo4j.GraphSnapshotFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OffHeapCsrGraphTest {
+
+    private static CsrGraph randomGraph(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("n" + i);
+        for (int e = 0; e < m; e++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 1 + rnd.nextInt(50));
+        return b.build();
+    }
+
+    private static GraphKey key(String type) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = type;
+        return GraphKey.of(req);
+    }
+
+    @Test
+    void copyBehavesLikeTheHeapGraph() {
+        CsrGraph heap = randomGraph(500, 4_000, 1);
+        try (OffHeapCsrGraph off = OffHeapCsrGraph.copyOf(heap)) {
+            assertEquals(heap.fingerprint(), off.fingerprint());
+            assertEquals(heap.ids(), off.ids());
+            assertEquals(16L * heap.edgeCount() + 4L * (heap.nodeCount() + 1), off.offHeapBytes());
+            assertEquals(heap.reverse().fingerprint(), off.reverse().fingerprint());
+            assertSame(off.reverse(), off.reverse());
+            assertEquals(Dijkstra.dijkstra(heap, "n0"), Dijkstra.dijkstra(off, "n0"));
+
+            CsrGraph extended = off.withNode("nuevo");
+            assertEquals(off.nodeCount() + 1, extended.nodeCount());
+            assertEquals(0, extended.degree(extended.indexOf("nuevo")));
+            assertEquals(Dijkstra.dijkstra(heap.withNode("nuevo"), "n7"), Dijkstra.dijkstra(extended, "n7"));
+        }
+    }
+
+    @Test
+    void memoryIsFreedOnLastRelease() {
+        OffHeapCsrGraph g = OffHeapCsrGraph.copyOf(randomGraph(50, 200, 2));
+        assertTrue(g.tryRetain());
+        assertEquals(2, g.references());
+        g.release();
+        g.release();
+        assertEquals(0, g.references());
+        assertFalse(g.tryRetain(), "freed graphs cannot be retained again");
+        assertThrows(IllegalStateException.class, g::release);
+        assertThrows(IllegalStateException.class, g::view);
+    }
+
+    @Test
+    void cacheReleasesEvictedGraphs() {
+        CsrGraph heap = randomGraph(200, 1_000, 3);
+        OffHeapCsrGraph first = OffHeapCsrGraph.copyOf(heap);
+        long budget = first.estimatedBytes() + first.estimatedBytes() / 2;
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, budget);
+
+        CsrGraph leased = cache.acquire(key("bands"), () -> first);
+        assertSame(first, leased);
+        assertEquals(2, first.references());
+
+        // the second graph pushes the first one out; the lease keeps it alive until released
+        OffHeapCsrGraph second = OffHeapCsrGraph.copyOf(heap);
+        cache.put(key("movies_rated"), second);
+        assertEquals(1, cache.size());
+        assertEquals(1, first.references());
+        assertEquals(heap.fingerprint(), leased.fingerprint());
+        leased.release();
+        assertEquals(0, first.references());
+
+        cache.invalidateAll();
+        assertEquals(0, second.references());
+    }
+
+    @Test
+    void graphsOverTheBudgetAreFreedByTheirLastUser() {
+        OffHeapCsrGraph big = OffHeapCsrGraph.copyOf(randomGraph(200, 1_000, 5));
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, big.estimatedBytes() / 2);
+        assertFalse(cache.put(key("bands"), big), "does not fit: the caller keeps its reference");
+        assertEquals(1, big.references());
+        big.release();
+
+        OffHeapCsrGraph loaded = OffHeapCsrGraph.copyOf(randomGraph(200, 1_000, 5));
+        CsrGraph leased = cache.acquire(key("bands"), () -> loaded);
+        assertEquals(0, cache.size());
+        assertEquals(1, loaded.references(), "only the caller's, the loader's was handed over");
+        leased.release();
+        assertEquals(0, loaded.references());
+
+        OffHeapCsrGraph viewed = OffHeapCsrGraph.copyOf(randomGraph(200, 1_000, 5));
+        CsrGraph view = cache.get(key("bands"), () -> viewed);
+        assertEquals(1, viewed.references(), "held by the view alone");
+        assertEquals(viewed.fingerprint(), view.fingerprint());
+    }
+
+    @Test
+    void snapshotFileIsReadWithoutCopying(@TempDir Path dir) throws IOException {
+        CsrGraph heap = randomGraph(1_000, 8_000, 4);
+        Path file = dir.resolve("g.csr");
+        GraphKey key = key("movies_by_users");
+        GraphSnapshotFile.write(file, key, heap);
+
+        GraphSnapshotFile.Snapshot small = GraphSnapshotFile.read(file, heap.edgeCount() + 1L);
+        assertEquals(0, small.graph().offHeapBytes());
+
+        GraphSnapshotFile.Snapshot mapped = GraphSnapshotFile.read(file, 0);
+        OffHeapCsrGraph g = assertInstanceOf(OffHeapCsrGraph.class, mapped.graph());
+        assertEquals(key, mapped.key());
+        assertEquals(heap.fingerprint(), g.fingerprint());
+        Map<String, Object> expected = Dijkstra.dijkstra(heap, "n3");
+        assertEquals(expected, Dijkstra.dijkstra(g, "n3"));
+        g.release();
+        assertEquals(0, g.references());
+    }
+}
@@ -0,0 +1,36 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.cheplay.algorithm.divideandconquer.ParallelIndexSort;
+import org.junit.jupiter.api.Test;
+
+public class ParallelIndexSortTest {
+
+    @Test
+    void matchesStableSortOnLargeInputWithTies() {
+        Random rnd = new Random(5);
+        int n = 100_000;
+        double[] keys = new double[n];
+        // few distinct values so stability is actually exercised
+        for (int i = 0; i < n; i++) keys[i] = rnd.nextInt(50) / 7.0;
+
+        int[] expected = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble(i -> keys[i]))
+                .mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, ParallelIndexSort.sortByKey(keys, n));
+    }
+
+    @Test
+    void sortsPrefixOnly() {
+        double[] keys = { 3.0, 1.0, 2.0, -5.0 };
+        assertArrayEquals(new int[] { 1, 2, 0 }, ParallelIndexSort.sortByKey(keys, 3));
+        assertArrayEquals(new int[0], ParallelIndexSort.sortByKey(keys, 0));
+        assertArrayEquals(new int[] { 3, 1, 2, 0 }, ParallelIndexSort.sortByKey(Arrays.copyOf(keys, 4), 4));
+    }
+}
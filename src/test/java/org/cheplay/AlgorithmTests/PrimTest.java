@@ -1,6 +1,16 @@
 package org.cheplay.AlgorithmTests;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.mst.Boruvka;
+import org.cheplay.algorithm.mst.Prim;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
 import org.junit.jupiter.api.Test;
 
 public class PrimTest {
@@ -8,4 +18,57 @@ public class PrimTest {
     void runPrim() {
         assertDoesNotThrow(() -> ReflectiveTestBase.runClass("org.cheplay.algorithm.mst.Prim"));
     }
+
+    @Test
+    void forestCoversEveryComponentWithMinimumWeight() {
+        Random rnd = new Random(13);
+        int n = 2000;
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("s" + i);
+        // two halves with no edge between them
+        for (int i = 0; i < n * 4; i++) {
+            int half = rnd.nextInt(2) * (n / 2);
+            int u = half + rnd.nextInt(n / 2), v = half + rnd.nextInt(n / 2);
+            double w = rnd.nextDouble();
+            b.addEdge(u, v, w).addEdge(v, u, w);
+        }
+        CsrGraph g = b.build();
+
+        Prim.Forest forest = Prim.minimumSpanningForest(g, "s1500");
+        assertEquals(n, forest.size());
+        assertEquals("s1500", g.id(forest.vertexAt(0)));
+        assertEquals((Integer) Boruvka.minimumSpanningForest(g).get("components"), forest.components());
+        assertEquals((Double) Boruvka.minimumSpanningForest(g).get("weight"), forest.weight(), 1e-9);
+        for (int i = 0; i < forest.size(); i++) {
+            int v = forest.vertexAt(i), p = forest.parent(v);
+            if (p >= 0) {
+                assertTrue(forest.contains(p));
+                assertEquals(g.weight(g.findEdge(p, v)), forest.parentWeight(v));
+            }
+        }
+    }
+
+    @Test
+    void treeDistancesMatchDijkstraOnTheTree() {
+        CsrGraph.Builder b = CsrGraph.builder();
+        String[][] edges = { {"a", "b"}, {"b", "c"}, {"c", "d"}, {"b", "e"}, {"e", "f"}, {"a", "f"}, {"x", "y"} };
+        double[] w = { 1, 2, 3, 4, 1, 9, 2 };
+        for (int i = 0; i < edges.length; i++) b.addEdge(edges[i][0], edges[i][1], w[i]).addEdge(edges[i][1], edges[i][0], w[i]);
+        CsrGraph g = b.build();
+
+        Prim.Forest forest = Prim.minimumSpanningForest(g, "a");
+        CsrGraph.Builder tree = CsrGraph.builder();
+        for (String id : g.ids()) tree.addNode(id);
+        for (Prim.Edge e : forest.edges(g)) tree.addEdge(e.from, e.to, e.weight).addEdge(e.to, e.from, e.weight);
+        CsrGraph t = tree.build();
+
+        int[] sources = { g.indexOf("d"), g.indexOf("f") };
+        double[] got = forest.distancesFrom(sources);
+        double[] expected = Dijkstra.multiSource(t, List.of("d", "f"));
+        for (int v = 0; v < g.nodeCount(); v++) {
+            assertEquals(expected[t.indexOf(g.id(v))], got[v], 1e-12);
+        }
+        assertTrue(Double.isInfinite(got[g.indexOf("x")]));
+        assertEquals(2, forest.components());
+    }
 }
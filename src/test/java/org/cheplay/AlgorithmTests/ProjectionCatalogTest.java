@@ -0,0 +1,140 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.OffHeapCsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.service.AlgorithmService;
+import org.cheplay.service.ProjectionCatalog;
+import org.junit.jupiter.api.Test;
+
+public class ProjectionCatalogTest {
+
+    private static AlgorithmRequest spec(String graphType) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = graphType;
+        return req;
+    }
+
+    private static AlgorithmRequest from(String start) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.start = start;
+        return req;
+    }
+
+    private static CsrGraph chain() {
+        return CsrGraph.builder().addEdge("a", "b", 1.0).addEdge("b", "c", 2.0).build();
+    }
+
+    @Test
+    void loadsOnceAndRunsAnyAlgorithmByName() {
+        AtomicInteger loads = new AtomicInteger();
+        ProjectionCatalog catalog = new ProjectionCatalog(req -> {
+            loads.incrementAndGet();
+            return chain();
+        }, Long.MAX_VALUE);
+        // the graph algorithms never touch the adapter when handed a graph
+        AlgorithmService algorithms = new AlgorithmService(null);
+
+        Map<String, Object> info = catalog.create("bands", spec("bands"));
+        assertEquals(3, info.get("nodes"));
+        assertEquals(2, info.get("edges"));
+        assertEquals(chain().estimatedBytes(), info.get("bytes"));
+
+        Optional<ProjectionCatalog.Run<Object>> bfs =
+            catalog.withProjection("bands", from("a"), g -> algorithms.run("bfs", g, from("a")));
+        assertEquals(Map.of("order", List.of("a", "b", "c")), bfs.orElseThrow().result());
+        Optional<ProjectionCatalog.Run<Object>> kruskal =
+            catalog.withProjection("bands", from(null), g -> algorithms.run("Kruskal", g, from(null)));
+        assertTrue(kruskal.isPresent());
+        // a start outside the projection is added to a private copy only
+        catalog.withProjection("bands", from("nuevo"), g -> algorithms.run("dijkstra", g, from("nuevo")));
+        assertEquals(3, catalog.describe("bands").orElseThrow().get("nodes"));
+        assertThrows(IllegalArgumentException.class,
+            () -> catalog.withProjection("bands", from("a"), g -> algorithms.run("pagerank", g, from("a"))));
+
+        assertEquals(1, loads.get());
+        assertEquals(4L, catalog.describe("bands").orElseThrow().get("runs"));
+        assertEquals(Optional.empty(), catalog.withProjection("missing", from("a"), g -> 1));
+        // a null result is still a run on an existing projection, not a missing one
+        assertEquals(Optional.of(new ProjectionCatalog.Run<>(null)), catalog.withProjection("bands", null, g -> null));
+    }
+
+    @Test
+    void namesAndByteBudgetAreEnforced() {
+        long one = chain().estimatedBytes();
+        ProjectionCatalog catalog = new ProjectionCatalog(req -> chain(), 2 * one);
+        catalog.create("first", spec("bands"));
+        assertThrows(IllegalStateException.class, () -> catalog.create("first", spec("bands")));
+        assertThrows(IllegalArgumentException.class, () -> catalog.create("no spaces", spec("bands")));
+        catalog.create("second", spec("movies"));
+        assertThrows(IllegalStateException.class, () -> catalog.create("third", spec("bands")));
+        assertEquals(2 * one, catalog.totalBytes());
+
+        assertTrue(catalog.drop("first").isPresent());
+        assertEquals(Optional.empty(), catalog.drop("first"));
+        catalog.create("third", spec("bands"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) catalog.list().get("projections");
+        assertEquals(List.of("second", "third"), rows.stream().map(r -> r.get("name")).toList());
+    }
+
+    @Test
+    void duplicatesFailBeforeLoadingAndRejectedGraphsAreReleased() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ProjectionCatalog catalog = new ProjectionCatalog(req -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return chain();
+        }, Long.MAX_VALUE);
+        Thread first = Thread.ofVirtual().start(() -> catalog.create("slow", spec("bands")));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        // the first create is still loading: the name is already taken
+        assertThrows(IllegalStateException.class, () -> catalog.create("slow", spec("bands")));
+        finish.countDown();
+        first.join();
+        assertThrows(IllegalStateException.class, () -> catalog.create("slow", spec("bands")));
+        assertEquals(1, loads.get());
+
+        OffHeapCsrGraph big = OffHeapCsrGraph.copyOf(chain());
+        ProjectionCatalog full = new ProjectionCatalog(req -> big, 0);
+        assertThrows(IllegalStateException.class, () -> full.create("big", spec("bands")));
+        assertEquals(0, big.references(), "over budget: freed right away");
+        assertEquals(Optional.empty(), full.describe("big"));
+    }
+
+    @Test
+    void droppedOffHeapProjectionIsFreedAfterRunningReads() {
+        OffHeapCsrGraph graph = OffHeapCsrGraph.copyOf(chain());
+        ProjectionCatalog catalog = new ProjectionCatalog(req -> graph, Long.MAX_VALUE);
+        catalog.create("big", spec("bands"));
+        assertEquals(graph.offHeapBytes(), catalog.describe("big").orElseThrow().get("offHeapBytes"));
+
+        int edges = catalog.withProjection("big", null, g -> {
+            catalog.drop("big");
+            // still leased by this run
+            assertEquals(1, graph.references());
+            return g.edgeCount();
+        }).orElseThrow().result();
+        assertEquals(2, edges);
+        assertEquals(0, graph.references());
+        assertEquals(0L, catalog.totalBytes());
+    }
+}
@@ -0,0 +1,64 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.BFS;
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.Reachability;
+import org.junit.jupiter.api.Test;
+
+public class ReachabilityTest {
+
+    static CsrGraph randomGraph(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) b.addNode("v" + i);
+        for (int i = 0; i < m; i++) b.addEdge(rnd.nextInt(n), rnd.nextInt(n), 1.0);
+        return b.build();
+    }
+
+    @Test
+    void reachableCountsMatchBfsFromEveryNode() {
+        CsrGraph g = randomGraph(300, 420, 3);
+        int[] counts = Reachability.reachableCounts(g);
+        for (int v = 0; v < g.nodeCount(); v++) {
+            assertEquals(BFS.bfs(g, g.id(v)).size(), counts[v], "node " + g.id(v));
+        }
+    }
+
+    @Test
+    void componentsAreInReverseTopologicalOrder() {
+        CsrGraph g = randomGraph(200, 260, 5);
+        Reachability.Condensation c = Reachability.condense(g);
+        for (int u = 0; u < g.nodeCount(); u++) {
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                assertTrue(c.component()[g.target(e)] <= c.component()[u]);
+            }
+        }
+    }
+
+    @Test
+    void estimatorStaysWithinItsErrorBound() {
+        // a threshold of 0 bytes forces the min-rank estimator even on a small graph
+        double sigma = 1.0 / Math.sqrt(Reachability.ESTIMATOR_RANKS - 2);
+        for (long seed : new long[] {3, 7, 11}) {
+            CsrGraph g = randomGraph(400, 520, seed);
+            int[] estimated = Reachability.reachableCounts(g, 0);
+            double sum = 0;
+            int withinTwoSigma = 0;
+            for (int v = 0; v < g.nodeCount(); v++) {
+                int exact = BFS.bfs(g, g.id(v)).size();
+                // counts are rounded, so half a node of the error is not the estimator's
+                double error = Math.max(0, Math.abs(estimated[v] - exact) - 0.5) / exact;
+                sum += error;
+                if (error <= 2 * sigma) withinTwoSigma++;
+                assertTrue(error <= 5 * sigma, "node " + g.id(v) + ": " + estimated[v] + " for " + exact);
+            }
+            assertTrue(sum / g.nodeCount() <= sigma, "mean relative error " + sum / g.nodeCount());
+            assertTrue(withinTwoSigma >= 0.9 * g.nodeCount(), withinTwoSigma + " nodes within two sigma");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.cheplay.algorithm.graph.SegmentedCsrGraph;
+import org.cheplay.algorithm.shortestpath.Dijkstra;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphSnapshotCache;
+import org.junit.jupiter.api.Test;
+
+public class SegmentedCsrGraphTest {
+
+    private static Map<String, Map<String, Double>> randomAdjacency(int n, int m, Random rnd) {
+        Map<String, Map<String, Double>> adj = new HashMap<>();
+        for (int i = 0; i < n; i++) adj.put("n" + i, new HashMap<>());
+        for (int e = 0; e < m; e++) {
+            adj.get("n" + rnd.nextInt(n)).put("n" + rnd.nextInt(n), 1.0 + rnd.nextInt(20));
+        }
+        return adj;
+    }
+
+    @Test
+    void deltasMatchARebuildAndKeepOldVersions() {
+        Random rnd = new Random(11);
+        int n = 5 * SegmentedCsrGraph.SEGMENT_NODES + 17;
+        Map<String, Map<String, Double>> model = randomAdjacency(n, 30_000, rnd);
+        SegmentedCsrGraph g = SegmentedCsrGraph.of(CsrGraph.fromAdjacency(model));
+        assertEquals(6, g.segmentCount());
+
+        for (int round = 0; round < 20; round++) {
+            long before = g.fingerprint();
+            Map<String, Map<String, Double>> snapshot = g.toAdjacency();
+            GraphDelta.Builder delta = GraphDelta.builder();
+            for (int k = 0; k < 30; k++) {
+                // mostly existing nodes, sometimes a brand new one
+                String from = "n" + rnd.nextInt(n + 40);
+                String to = "n" + rnd.nextInt(n + 40);
+                if (rnd.nextInt(3) == 0) {
+                    delta.remove(from, to);
+                    if (model.containsKey(from)) model.get(from).remove(to);
+                } else {
+                    double w = 1.0 + rnd.nextInt(20);
+                    delta.put(from, to, w);
+                    model.computeIfAbsent(from, x -> new HashMap<>()).put(to, w);
+                    model.computeIfAbsent(to, x -> new HashMap<>());
+                }
+            }
+            SegmentedCsrGraph next = g.apply(delta.build());
+            assertEquals(model, next.toAdjacency());
+            // the previous version is untouched
+            assertEquals(before, g.fingerprint());
+            assertEquals(snapshot, g.toAdjacency());
+            assertTrue(next.copiedSegments() <= next.segmentCount());
+            g = next;
+        }
+
+        CsrGraph rebuilt = CsrGraph.fromAdjacency(model);
+        assertEquals(rebuilt.edgeCount(), g.edgeCount());
+        for (String start : new String[] { "n0", "n1000", "n5000" }) {
+            // node order differs from the rebuild, so only distances are comparable (ties pick other parents)
+            assertEquals(Dijkstra.dijkstra(rebuilt, start).get("distances"), Dijkstra.dijkstra(g, start).get("distances"));
+        }
+        assertEquals(rebuilt.reverse().toAdjacency(), g.reverse().toAdjacency());
+    }
+
+    @Test
+    void onlyTouchedSegmentsAreCopied() {
+        Random rnd = new Random(12);
+        int n = 8 * SegmentedCsrGraph.SEGMENT_NODES;
+        SegmentedCsrGraph g = SegmentedCsrGraph.of(CsrGraph.fromAdjacency(randomAdjacency(n, 20_000, rnd)));
+        String a = g.id(3), b = g.id(n - 1);
+        SegmentedCsrGraph next = g.apply(GraphDelta.builder().put(a, b, 0.25).build());
+        assertEquals(1, next.copiedSegments());
+        assertEquals(0.25, next.weight(next.findEdge(next.indexOf(a), next.indexOf(b))));
+
+        SegmentedCsrGraph grown = next.apply(GraphDelta.builder().put(a, "nuevo", 2.0).build());
+        assertEquals(2, grown.copiedSegments(), "row of a plus the segment receiving the new node");
+        assertEquals(n + 1, grown.nodeCount());
+        assertEquals(-1, next.indexOf("nuevo"));
+        assertSame(grown, grown.withNode("nuevo"));
+        assertSame(grown, grown.apply(GraphDelta.builder().remove("x", "y").build()));
+        assertThrows(IllegalArgumentException.class, () -> GraphDelta.builder().put("a", "b", -1));
+    }
+
+    @Test
+    void edgePositionsResolveAcrossEmptyAndDenseSegments() {
+        // three segments without edges, one dense segment, one with a single edge
+        Map<String, Map<String, Double>> adj = new HashMap<>();
+        int n = 5 * SegmentedCsrGraph.SEGMENT_NODES;
+        for (int i = 0; i < n; i++) adj.put("n" + i, new HashMap<>());
+        int dense = 3 * SegmentedCsrGraph.SEGMENT_NODES;
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) adj.get("n" + (dense + i)).put("n" + j, 1.0 + i + j);
+        }
+        adj.get("n" + (n - 1)).put("n0", 0.5);
+        CsrGraph flat = CsrGraph.fromAdjacency(adj);
+        SegmentedCsrGraph g = SegmentedCsrGraph.of(flat);
+        assertEquals(flat.edgeCount(), g.edgeCount());
+        for (int u = 0; u < flat.nodeCount(); u++) {
+            int v = g.indexOf(flat.id(u));
+            for (int e = g.begin(v), f = flat.begin(u); e < g.end(v); e++, f++) {
+                assertEquals(flat.id(flat.target(f)), g.id(g.target(e)));
+                assertEquals(flat.weight(f), g.weight(e));
+            }
+        }
+    }
+
+    @Test
+    void cacheUpdateReplacesEveryVariantOfAType() {
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, Long.MAX_VALUE);
+        AlgorithmRequest directed = new AlgorithmRequest();
+        directed.graphType = "movies_by_users";
+        AlgorithmRequest undirected = new AlgorithmRequest();
+        undirected.graphType = "movies_by_users";
+        undirected.undirected = true;
+        CsrGraph base = CsrGraph.builder().addEdge("a", "b", 1.0).build();
+        cache.put(GraphKey.of(directed), base);
+        cache.put(GraphKey.of(undirected), base);
+
+        GraphDelta delta = GraphDelta.builder().put("b", "c", 0.5).build();
+        int updated = cache.update("movies_by_users", (key, g) ->
+            SegmentedCsrGraph.of(g).apply(key.undirected() ? delta.mirrored() : delta));
+        assertEquals(2, updated);
+        CsrGraph d = cache.getIfPresent(GraphKey.of(directed));
+        CsrGraph u = cache.getIfPresent(GraphKey.of(undirected));
+        assertTrue(d.hasEdge(d.indexOf("b"), d.indexOf("c")));
+        assertEquals(-1, d.findEdge(d.indexOf("c"), d.indexOf("b")));
+        assertTrue(u.hasEdge(u.indexOf("c"), u.indexOf("b")));
+        assertEquals(2L, cache.stats().get("updates"));
+    }
+}
@@ -0,0 +1,137 @@
+package org.cheplay.AlgorithmTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.algorithm.graph.Sparsifier;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.DynamicGraphAdapter;
+import org.cheplay.neo4j.GraphKey;
+import org.cheplay.neo4j.GraphSnapshotCache;
+import org.cheplay.neo4j.GraphSnapshotStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SparsifierTest {
+
+    /** Undirected near-clique with overlap-style weights 1 / (overlap + 1). */
+    private static CsrGraph clique(int n, Random rnd) {
+        CsrGraph.Builder b = CsrGraph.builder();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double w = 1.0 / (rnd.nextInt(50) + 1.0);
+                b.addEdge("n" + i, "n" + j, w);
+                b.addEdge("n" + j, "n" + i, w);
+            }
+        }
+        return b.build();
+    }
+
+    @Test
+    void topNKeepsTheLightestOutEdgesOfEveryNode() {
+        CsrGraph g = clique(60, new Random(3));
+        CsrGraph s = Sparsifier.sparsify(g, Sparsifier.Spec.topN(5));
+        assertEquals(g.nodeCount(), s.nodeCount());
+        assertEquals(60 * 5, s.edgeCount());
+        for (int u = 0; u < g.nodeCount(); u++) {
+            double heaviestKept = 0;
+            for (int e = s.begin(u); e < s.end(u); e++) {
+                heaviestKept = Math.max(heaviestKept, s.weight(e));
+                assertEquals(s.weight(e), g.weight(g.findEdge(u, s.target(e))));
+            }
+            int lighterDropped = 0;
+            for (int e = g.begin(u); e < g.end(u); e++) {
+                if (g.weight(e) < heaviestKept && !s.hasEdge(u, g.target(e))) lighterDropped++;
+            }
+            assertEquals(0, lighterDropped);
+        }
+    }
+
+    @Test
+    void symmetricKnnKeepsEitherEndsChoiceAndStaysUndirected() {
+        CsrGraph g = clique(80, new Random(4));
+        CsrGraph top = Sparsifier.sparsify(g, Sparsifier.Spec.topN(6));
+        CsrGraph union = Sparsifier.sparsify(g, Sparsifier.Spec.symmetricKnn(6));
+        assertTrue(union.edgeCount() >= top.edgeCount());
+        for (int u = 0; u < union.nodeCount(); u++) {
+            for (int e = union.begin(u); e < union.end(u); e++) {
+                int v = union.target(e);
+                assertTrue(union.hasEdge(v, u));
+                assertTrue(top.hasEdge(u, v) || top.hasEdge(v, u));
+            }
+            for (int e = top.begin(u); e < top.end(u); e++) assertTrue(union.hasEdge(u, top.target(e)));
+        }
+    }
+
+    @Test
+    void symmetricKnnAddsMissingReverseEdgesOnDirectedGraphs() {
+        // one edge per pair, from the lower index, like songs_hybrid with undirected=false
+        Random rnd = new Random(6);
+        CsrGraph.Builder b = CsrGraph.builder();
+        int n = 40;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) b.addEdge("n" + i, "n" + j, 1.0 / (rnd.nextInt(50) + 1.0));
+        }
+        CsrGraph g = b.build();
+        CsrGraph s = Sparsifier.sparsify(g, Sparsifier.Spec.symmetricKnn(3));
+        assertTrue(s.edgeCount() > 0);
+        for (int u = 0; u < s.nodeCount(); u++) {
+            assertTrue(s.degree(u) >= Math.min(3, g.degree(u)));
+            int previous = -1;
+            for (int e = s.begin(u); e < s.end(u); e++) {
+                int v = s.target(e);
+                assertTrue(v > previous, "rows stay sorted by target");
+                previous = v;
+                assertTrue(s.hasEdge(v, u));
+                int original = g.hasEdge(u, v) ? g.findEdge(u, v) : g.findEdge(v, u);
+                assertEquals(g.weight(original), s.weight(e));
+            }
+        }
+    }
+
+    @Test
+    void thresholdAndParsing() {
+        CsrGraph g = CsrGraph.fromAdjacency(Map.of(
+            "a", Map.of("b", 0.1, "c", 0.5),
+            "b", Map.of("c", 0.2),
+            "c", Map.of()));
+        CsrGraph s = Sparsifier.sparsify(g, Sparsifier.Spec.parse("WEIGHT_THRESHOLD:0.25"));
+        assertEquals(Map.of("a", Map.of("b", 0.1), "b", Map.of("c", 0.2), "c", Map.of()), s.toAdjacency());
+        assertSame(g, Sparsifier.sparsify(g, Sparsifier.Spec.parse("top_n:3")), "nothing to drop");
+        assertEquals("symmetric_knn:10", Sparsifier.Spec.parse(" symmetric_knn : 10 ").toString());
+        assertThrows(IllegalArgumentException.class, () -> Sparsifier.Spec.parse("top_n:0"));
+        assertThrows(IllegalArgumentException.class, () -> Sparsifier.Spec.parse("pagerank:3"));
+    }
+
+    private static DynamicGraphAdapter adapter(GraphSnapshotStore store, Map<String, Sparsifier.Spec> sparsify) {
+        // no driver: only the snapshot files are read
+        return new DynamicGraphAdapter(null, new GraphSnapshotCache(Duration.ZERO, 1L << 20), 100, "cypher",
+            store, -1, sparsify);
+    }
+
+    @Test
+    void snapshotFilesWrittenUnderAnotherSpecAreNotRestored(@TempDir Path dir) {
+        GraphSnapshotStore store = new GraphSnapshotStore(dir.toString());
+        AlgorithmRequest bands = new AlgorithmRequest();
+        bands.graphType = "bands";
+        // written without sparsification
+        store.write(GraphKey.of(bands), clique(10, new Random(5)));
+
+        DynamicGraphAdapter plain = adapter(store, Map.of());
+        plain.restoreSnapshots();
+        assertEquals(1, plain.cache().size());
+
+        DynamicGraphAdapter sparse = adapter(store, Map.of("bands", Sparsifier.Spec.topN(2)));
+        sparse.restoreSnapshots();
+        assertEquals(0, sparse.cache().size());
+        assertEquals(0, store.stats().get("files"), "the mismatched file is deleted");
+    }
+}
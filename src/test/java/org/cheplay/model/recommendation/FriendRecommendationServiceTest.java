@@ -12,6 +12,8 @@ import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class FriendRecommendationServiceTest {
@@ -69,4 +71,24 @@ public class FriendRecommendationServiceTest {
         assertEquals("Bob", viaPaths.get(0).get("id"));
         assertEquals("Carol", viaPaths.get(1).get("id"));
     }
+
+    @Test
+    void connectionPathReusesTheGraphStoredWithTheLandmarks() {
+        DbConnector db = mock(DbConnector.class);
+        List<GraphRelationship> globalEdges = List.of(
+                new GraphRelationship("Alan", "Bob", 0.25),
+                new GraphRelationship("Bob", "Carol", 0.5)
+        );
+        when(db.readList(anyString(), isNull(), any())).thenReturn((List<Object>) (List<?>) globalEdges);
+        FriendRecommendationService svc = new FriendRecommendationService(db, mock(FriendRecommendationMapper.class));
+
+        assertEquals(0.75, svc.connectionPath("Alan", "Carol").get("distance"));
+        assertEquals(0.25, svc.connectionPath("Alan", "Bob").get("distance"));
+        verify(db, times(1)).readList(anyString(), isNull(), any());
+
+        // only the scheduled refresh goes back to Neo4j
+        svc.refreshLandmarks();
+        assertEquals(0.75, svc.connectionPath("Alan", "Carol").get("distance"));
+        verify(db, times(2)).readList(anyString(), isNull(), any());
+    }
 }
@@ -0,0 +1,80 @@
+package org.cheplay.neo4j;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cheplay.algorithm.graph.GraphDelta;
+import org.cheplay.dto.AlgorithmRequest;
+import org.cheplay.neo4j.CoOccurrenceMaintenance.Kind;
+import org.cheplay.neo4j.CoOccurrenceMaintenance.PairOverlap;
+import org.junit.jupiter.api.Test;
+
+public class CoOccurrenceMaintenanceTest {
+
+    private static GraphKey key(String graphType, Map<String, Object> params) {
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = graphType;
+        req.params = params;
+        return GraphKey.of(req);
+    }
+
+    @Test
+    void kindParsesEveryAlias() {
+        for (String s : List.of("songs", "Song", "LISTENED", "co_listened", "songs_hybrid")) {
+            assertEquals(Kind.SONGS, Kind.parse(s));
+        }
+        for (String s : List.of("movies", "movie", "Watched", "CO_WATCHED", "movies_by_users")) {
+            assertEquals(Kind.MOVIES, Kind.parse(s));
+        }
+        assertThrows(IllegalArgumentException.class, () -> Kind.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> Kind.parse("bands"));
+        assertEquals("songs_hybrid", Kind.SONGS.graphType());
+        assertEquals("movies_by_users", Kind.MOVIES.graphType());
+    }
+
+    @Test
+    void materializedQueriesReturnTheSameEdgesAsTheSelfJoins() {
+        // same pair ordering and weight expression, only the overlap source differs
+        assertTrue(DynamicGraphAdapter.songsHybridQuery(false).endsWith(DynamicGraphAdapter.SONGS_HYBRID_EDGES));
+        assertTrue(DynamicGraphAdapter.songsHybridQuery(true).endsWith(DynamicGraphAdapter.SONGS_HYBRID_EDGES));
+        assertTrue(DynamicGraphAdapter.moviesByUsersQuery(false).endsWith(DynamicGraphAdapter.MOVIES_BY_USERS_EDGES));
+        assertTrue(DynamicGraphAdapter.moviesByUsersQuery(true).endsWith(DynamicGraphAdapter.MOVIES_BY_USERS_EDGES));
+
+        // the materialized reads scan what the maintenance queries write
+        for (Kind kind : Kind.values()) {
+            String read = kind == Kind.SONGS ? DynamicGraphAdapter.songsHybridQuery(true)
+                : DynamicGraphAdapter.moviesByUsersQuery(true);
+            assertTrue(read.contains(":" + kind.relationship + "]"));
+            assertTrue(CoOccurrenceMaintenance.buildQuery(kind).contains(":" + kind.relationship + " {overlap"));
+            assertTrue(CoOccurrenceMaintenance.bumpQuery(kind).contains(":" + kind.relationship + "]"));
+            // rebuild and bump store each pair once, from the smaller elementId
+            assertTrue(CoOccurrenceMaintenance.buildQuery(kind).contains("elementId(a) < elementId(b)"));
+            assertTrue(CoOccurrenceMaintenance.bumpQuery(kind).contains("elementId(i) < elementId(o) THEN i"));
+        }
+        // ids in the deltas are the ids the graph queries return
+        assertTrue(DynamicGraphAdapter.SONGS_HYBRID_EDGES.contains(Kind.SONGS.itemKey("a") + " AS from"));
+        assertTrue(DynamicGraphAdapter.MOVIES_BY_USERS_EDGES.contains(Kind.MOVIES.itemKey("m1") + " AS from"));
+    }
+
+    @Test
+    void deltasFollowTheGraphQueryOrderingAndWeights() {
+        // a has the smaller elementId but the larger internal id: the edge points b -> a
+        PairOverlap pair = new PairOverlap("s1", "s2", 3, 20, 10, 2000, 2004);
+        GraphDelta songs = CoOccurrenceMaintenance.delta(Kind.SONGS,
+            key("songs_hybrid", Map.of("window", 8, "lambda", 0.5)), List.of(pair));
+        assertEquals(List.of(new GraphDelta.Op(GraphDelta.Kind.PUT, "s2", "s1", 1.0 / 4 + 0.5 * 4 / 8)), songs.ops());
+        assertEquals(1.0 / 4 + 0.5 * 4 / 8, DynamicGraphAdapter.songsHybridWeight(3, 2000, 2004, 8, 0.5));
+        assertEquals(1.0 / 4, DynamicGraphAdapter.songsHybridWeight(3, Double.NaN, 2004, 8, 0.5));
+        assertEquals(1.0 / 4, DynamicGraphAdapter.songsHybridWeight(3, 2000, 2004, 0, 0.5));
+
+        GraphDelta movies = CoOccurrenceMaintenance.delta(Kind.MOVIES, key("movies_by_users", null),
+            List.of(new PairOverlap("m1", "m2", 1, 5, 6, Double.NaN, Double.NaN)));
+        assertEquals(List.of(
+            new GraphDelta.Op(GraphDelta.Kind.PUT, "m1", "m2", 0.5),
+            new GraphDelta.Op(GraphDelta.Kind.PUT, "m2", "m1", 0.5)), movies.ops());
+    }
+}
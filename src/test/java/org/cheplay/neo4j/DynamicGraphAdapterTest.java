@@ -0,0 +1,57 @@
+package org.cheplay.neo4j;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.cheplay.algorithm.graph.CsrGraph;
+import org.cheplay.dto.AlgorithmRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DynamicGraphAdapterTest {
+
+    @Test
+    void snapshotWritesOfInvalidatedLoadsAreSkipped(@TempDir Path dir) {
+        GraphSnapshotStore store = new GraphSnapshotStore(dir.toString());
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, 1L << 20);
+        // no driver: nothing here loads from Neo4j
+        DynamicGraphAdapter adapter = new DynamicGraphAdapter(null, cache, 100, "cypher", store, -1);
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = "bands";
+        GraphKey key = GraphKey.of(req);
+        CsrGraph graph = CsrGraph.builder().addEdge("a", "b", 1.0).build();
+
+        long generation = cache.generation(key);
+        adapter.invalidate("bands");
+        adapter.writeSnapshot(key, graph, generation);
+        assertEquals(0, store.stats().get("files"), "loaded before the invalidation");
+
+        adapter.writeSnapshot(key, graph, cache.generation(key));
+        assertTrue(store.read(key).isPresent());
+        generation = cache.generation(key);
+        adapter.applyDelta("bands", k -> null);
+        adapter.writeSnapshot(key, graph, generation);
+        assertEquals(0, store.stats().get("files"), "a delta deletes the file and stops older writes");
+    }
+
+    @Test
+    void snapshotFilesOnlyStandInForFailedLoads(@TempDir Path dir) {
+        GraphSnapshotStore store = new GraphSnapshotStore(dir.toString());
+        GraphSnapshotCache cache = new GraphSnapshotCache(Duration.ZERO, 1L << 20);
+        // no driver: every load from Neo4j fails
+        DynamicGraphAdapter adapter = new DynamicGraphAdapter(null, cache, 100, "cypher", store, -1);
+        AlgorithmRequest req = new AlgorithmRequest();
+        req.graphType = "bands";
+        assertThrows(RuntimeException.class, () -> adapter.buildGraph(req), "no file to fall back to");
+
+        GraphKey key = GraphKey.of(req);
+        store.write(key, CsrGraph.builder().addEdge("a", "b", 3.0).build());
+        CsrGraph g = adapter.buildGraph(req);
+        assertEquals(3.0, g.weight(g.findEdge(g.indexOf("a"), g.indexOf("b"))));
+        assertEquals(1L, store.stats().get("failures"), "the failure behind the fallback is recorded");
+    }
+}